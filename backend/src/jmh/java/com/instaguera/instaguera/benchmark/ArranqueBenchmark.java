@@ -0,0 +1,152 @@
+package com.instaguera.instaguera.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Arranque en frio del jar armado con -Parranque (target/arranque), como proceso aparte:
+//   jvm      el jar extraido, sin nada
+//   aot      + -Dspring.aot.enabled=true (contexto con el codigo generado en el build)
+//   aot-cds  + el archivo AppCDS de la corrida de entrenamiento
+// hastaListo es desde lanzar el java hasta que Tomcat acepta conexiones (el contexto ya termino el refresh);
+// primerRequest, con la app recien levantada, el primer GET /media (seguridad + MVC + JPA + Jackson en frio).
+// La base es H2 en memoria como en los tests, sumada al classpath del jar. La imagen nativa no entra porque
+// ahi no se puede sumar H2: se mide a mano contra PostgreSQL.
+//   mvn -Parranque -DskipTests package
+//   mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.include=ArranqueBenchmark
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class ArranqueBenchmark {
+
+    private static final Path DIRECTORIO = Path.of("target", "arranque");
+    private static final int PUERTO = 18080;
+    // Los perfiles con los que se hizo el AOT (arranque.perfiles en el pom)
+    private static final String PERFILES = "prod";
+
+    @State(Scope.Thread)
+    public static class App {
+
+        @Param({"jvm", "aot", "aot-cds"})
+        public String modo;
+
+        Process proceso;
+
+        Process arrancar() throws IOException {
+            List<String> comando = new ArrayList<>();
+            comando.add(ProcessHandle.current().info().command().orElse("java"));
+            if (!modo.equals("jvm")) {
+                comando.add("-Dspring.aot.enabled=true");
+            }
+            if (modo.equals("aot-cds")) {
+                Path archivo = DIRECTORIO.resolve("instaguera.jsa");
+                if (!Files.exists(archivo)) {
+                    throw new IllegalStateException("Falta " + archivo + ": correr mvn -Parranque -DskipTests package");
+                }
+                comando.add("-XX:SharedArchiveFile=" + archivo);
+            }
+            // El jar extraido trae lib/ en su Class-Path; H2 va despues para no cambiarle el classpath a CDS
+            comando.add("-cp");
+            comando.add(jar() + File.pathSeparator + h2());
+            comando.add("com.instaguera.instaguera.Instaguera");
+            comando.add("--spring.profiles.active=" + PERFILES);
+            comando.add("--spring.datasource.url=jdbc:h2:mem:instaguera;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+            comando.add("--spring.datasource.username=sa");
+            comando.add("--spring.datasource.password=");
+            comando.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            comando.add("--server.port=" + PUERTO);
+            comando.add("--management.server.port=" + (PUERTO + 1));
+            comando.add("--instaguera.media.directorio=" + DIRECTORIO.resolve("media"));
+            proceso = new ProcessBuilder(comando)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return proceso;
+        }
+
+        // Listo = el puerto acepta conexiones. Si el proceso se muere antes, falla en vez de esperar para siempre
+        void esperarListo() throws Exception {
+            while (true) {
+                if (!proceso.isAlive()) {
+                    throw new IllegalStateException("La app termino con " + proceso.exitValue() + " antes de estar lista");
+                }
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress("localhost", PUERTO), 100);
+                    return;
+                } catch (IOException e) {
+                    Thread.sleep(5);
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void parar() throws InterruptedException {
+            if (proceso == null) return;
+            proceso.destroy();
+            if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly().waitFor();
+            }
+            proceso = null;
+        }
+
+        private static Path jar() throws IOException {
+            try (DirectoryStream<Path> jars = Files.newDirectoryStream(DIRECTORIO, "*.jar")) {
+                for (Path jar : jars) return jar;
+            }
+            throw new IllegalStateException("No hay jar en " + DIRECTORIO + ": correr mvn -Parranque -DskipTests package");
+        }
+
+        private static String h2() {
+            try {
+                return Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // Ya levantada: lo que se mide es solo el primer request
+    @State(Scope.Thread)
+    public static class AppLista extends App {
+
+        final HttpClient client = HttpClient.newHttpClient();
+
+        @Setup(Level.Invocation)
+        public void levantar() throws Exception {
+            arrancar();
+            esperarListo();
+        }
+    }
+
+    @Benchmark
+    public Process hastaListo(App app) throws Exception {
+        Process proceso = app.arrancar();
+        app.esperarListo();
+        return proceso;
+    }
+
+    @Benchmark
+    public int primerRequest(AppLista app) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PUERTO + "/media?limite=1")).build();
+        HttpResponse<Void> respuesta = app.client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("GET /media dio " + respuesta.statusCode());
+        }
+        return respuesta.statusCode();
+    }
+}
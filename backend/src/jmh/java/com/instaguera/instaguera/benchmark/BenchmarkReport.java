@@ -0,0 +1,84 @@
+package com.instaguera.instaguera.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// Corre los benchmarks, guarda el JSON de JMH en benchmarks/<label>.json
+// y si se pasa un baseline imprime la diferencia de cada benchmark contra esa corrida.
+// Uso: BenchmarkReport <regex de benchmarks> <label> [<label baseline> | none]
+public class BenchmarkReport {
+
+    private static final Path DIRECTORIO = Path.of("benchmarks");
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+        String label = args.length > 1 ? args[1] : "local";
+        String baseline = args.length > 2 && !"none".equals(args[2]) ? args[2] : null;
+
+        Files.createDirectories(DIRECTORIO);
+        Path resultado = DIRECTORIO.resolve(label + ".json");
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultado.toString())
+                .build();
+        Collection<RunResult> corrida = new Runner(options).run();
+
+        System.out.println();
+        System.out.println("Resultados guardados en " + resultado.toAbsolutePath());
+        if (baseline != null) {
+            comparar(leer(DIRECTORIO.resolve(baseline + ".json")), leer(resultado), baseline, label);
+        } else if (corrida.isEmpty()) {
+            System.out.println("No se corrio ningun benchmark para '" + include + "'");
+        }
+    }
+
+    private static void comparar(Map<String, JsonNode> antes, Map<String, JsonNode> ahora, String baseline, String label) {
+        System.out.printf("%n%-70s %14s %14s %9s%n", "Benchmark", baseline, label, "delta");
+        ahora.forEach((clave, actual) -> {
+            double score = actual.path("primaryMetric").path("score").asDouble();
+            String unidad = actual.path("primaryMetric").path("scoreUnit").asText();
+            JsonNode anterior = antes.get(clave);
+            if (anterior == null) {
+                System.out.printf("%-70s %14s %14.3f %9s  %s%n", clave, "-", score, "nuevo", unidad);
+                return;
+            }
+            double scoreAnterior = anterior.path("primaryMetric").path("score").asDouble();
+            double delta = (score - scoreAnterior) / scoreAnterior * 100;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%  %s%n", clave, scoreAnterior, score, delta, unidad);
+        });
+    }
+
+    // benchmark + params -> resultado, para poder cruzar dos corridas
+    private static Map<String, JsonNode> leer(Path archivo) throws IOException {
+        Map<String, JsonNode> resultados = new LinkedHashMap<>();
+        for (JsonNode nodo : new ObjectMapper().readTree(archivo.toFile())) {
+            String clave = nodo.path("benchmark").asText().replace("com.instaguera.instaguera.", "");
+            JsonNode params = nodo.path("params");
+            if (!params.isMissingNode()) {
+                Map<String, String> ordenados = new TreeMap<>();
+                params.properties().forEach(e -> ordenados.put(e.getKey(), e.getValue().asText()));
+                clave += ordenados.entrySet().stream()
+                        .map(e -> e.getKey() + "=" + e.getValue())
+                        .collect(Collectors.joining(",", "[", "]"));
+            }
+            resultados.put(clave, nodo);
+        }
+        return resultados;
+    }
+}
@@ -0,0 +1,60 @@
+package com.instaguera.instaguera.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson con la misma config que arma Spring MVC, serializando listas como las que devuelve la API
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializacionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int cantidad;
+
+    private ObjectMapper objectMapper;
+    private List<TurnoResponse> turnos;
+    private List<Usuario> usuarios;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        OffsetDateTime inicio = OffsetDateTime.of(2030, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+        UsuarioResumen dueno = new UsuarioResumen(1L, "Thiago", "Tatuador", "1155550000", "thiago", "thiago@test.com", Role.DUENO);
+
+        turnos = new ArrayList<>(cantidad);
+        usuarios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Usuario usuario = new Usuario("Cliente" + i, "Apellido" + i, "11" + (55550000 + i), "cliente" + i,
+                    "$2a$10$7EqJtq98hPqEX7fNZaFWoOa1m6x7rZ4jWvQ5Q9pXy8b3hQ2cS4lGe", Role.CLIENTE, "cliente" + i + "@test.com");
+            usuarios.add(usuario);
+            turnos.add(new TurnoResponse((long) i, inicio.plusHours(i), 60, EstadoTurno.CONFIRMADO,
+                    "Tatuaje chico en el antebrazo, linea fina", UsuarioResumen.de(usuario), dueno, 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] turnos() throws Exception {
+        return objectMapper.writeValueAsBytes(turnos);
+    }
+
+    @Benchmark
+    public byte[] usuarios() throws Exception {
+        return objectMapper.writeValueAsBytes(usuarios);
+    }
+}
@@ -0,0 +1,92 @@
+package com.instaguera.instaguera.benchmark;
+
+import com.instaguera.instaguera.Instaguera;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// GET /turnos de punta a punta (MVC + JPA + Jackson) contra H2 en memoria con la config de los tests.
+// No pasa por la cadena de seguridad, eso lo mide JwtAuthBenchmark.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TurnoListadoBenchmark {
+
+    private static final int CLIENTES = 200;
+    private static final int TURNOS_POR_CLIENTE = 25;
+
+    @Param({"20", "100"})
+    public int limite;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long clienteId;
+
+    @Setup
+    public void setup() {
+        SpringApplication app = new SpringApplication(Instaguera.class);
+        app.setWebApplicationType(WebApplicationType.SERVLET);
+        app.setDefaultProperties(java.util.Map.of(
+                "server.port", "0",
+                "spring.jpa.properties.hibernate.generate_statistics", "false"));
+        context = app.run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        UsuarioRepository usuarioRepository = context.getBean(UsuarioRepository.class);
+        TurnoRepository turnoRepository = context.getBean(TurnoRepository.class);
+        Usuario dueno = usuarioRepository.save(
+                new Usuario("Thiago", "Tatuador", "111", "thiago", "x", Role.DUENO, "thiago@bench.com"));
+        OffsetDateTime inicio = OffsetDateTime.of(2030, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+
+        List<Turno> turnos = new ArrayList<>();
+        for (int c = 0; c < CLIENTES; c++) {
+            Usuario cliente = usuarioRepository.save(new Usuario("Cliente" + c, "Apellido", "222",
+                    "cliente" + c, "x", Role.CLIENTE, "cliente" + c + "@bench.com"));
+            if (c == 0) clienteId = cliente.getId();
+            for (int t = 0; t < TURNOS_POR_CLIENTE; t++) {
+                turnos.add(new Turno(inicio.plusHours((long) c * TURNOS_POR_CLIENTE + t), EstadoTurno.CONFIRMADO,
+                        "turno " + t, cliente, dueno));
+            }
+        }
+        turnoRepository.saveAll(turnos);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] listarTodos() throws Exception {
+        return mockMvc.perform(get("/turnos").param("limite", String.valueOf(limite)))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] listarPorCliente() throws Exception {
+        return mockMvc.perform(get("/turnos").param("clienteId", String.valueOf(clienteId))
+                        .param("limite", String.valueOf(limite)))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,108 @@
+package com.instaguera.instaguera.security;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Costo de autenticar un request con JWT: camino viejo (3 parseos + lookup del usuario) vs. el actual
+// (un parseo + el principal del cache). El lookup se simula con un Map en los dos, como un acierto del
+// PrincipalCache; en el camino viejo sin cache era un SELECT a la base.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtAuthBenchmark {
+
+    private static final FilterChain NO_OP = (request, response) -> {};
+
+    private JwtFilter jwtFilter;
+    private Key key;
+    private UserDetailsService usuarios;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        key = Keys.hmacShaKeyFor("claveDeBenchmarkQueTambienTieneQueSerLarga123456".getBytes());
+        JwtUtil jwtUtil = new JwtUtil(key);
+        UsuarioPrincipal usuario = new UsuarioPrincipal(
+                new UsuarioResumen(1L, "Ana", "Perez", "1155550000", "ana", "cliente@test.com", Role.CLIENTE), "hash");
+        Map<String, UserDetails> porEmail = Map.of(usuario.getUsername(), usuario);
+
+        usuarios = email -> {
+            UserDetails encontrado = porEmail.get(email);
+            if (encontrado == null) throw new UsernameNotFoundException("Usuario no encontrado");
+            return encontrado;
+        };
+        jwtFilter = new JwtFilter(jwtUtil, usuarios, new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("GET", "/turnos");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(usuario));
+    }
+
+    // Cada variante limpia el contexto adentro del metodo (y no con @TearDown(Level.Invocation), que
+    // en operaciones de microsegundos mete su propio costo en la medicion): las dos pagan lo mismo
+    @Benchmark
+    public Authentication parseoUnico() throws Exception {
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), NO_OP);
+        Authentication autenticado = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return autenticado;
+    }
+
+    @Benchmark
+    public Authentication legado() {
+        // Copia de lo que hacia JwtFilter antes: extractUsername + loadUserByUsername + validateToken
+        String jwt = request.getHeader("Authorization").substring(7);
+        String username = legacyExtractUsername(jwt);
+
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = usuarios.loadUserByUsername(username);
+
+            if (userDetails.getUsername().equals(legacyExtractUsername(jwt)) && !legacyIsTokenExpired(jwt)) {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+            }
+        }
+        Authentication autenticado = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return autenticado;
+    }
+
+    private String legacyExtractUsername(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    private boolean legacyIsTokenExpired(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getExpiration()
+                .before(new Date());
+    }
+}
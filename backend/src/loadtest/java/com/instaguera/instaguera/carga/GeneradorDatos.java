@@ -0,0 +1,231 @@
+package com.instaguera.instaguera.carga;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Llena una base PostgreSQL aparte (p. ej. instaguera_carga, migrada arrancando la app una vez contra ella)
+// con volumen de produccion para PruebaDeCarga:
+// clientes y dueños, y turnos repartidos entre los dueños, de 10 a 20 hs, sin pisarse mientras entren en la agenda.
+// Los que ya pasaron quedan mayormente COMPLETADO (algunos CANCELADO o CONFIRMADO sin cerrar); los que vienen,
+// SOLICITADO o CONFIRMADO. Va directo por JDBC en lotes (100k usuarios y 5M turnos son minutos, no horas).
+// Conviene correrlo con la app apagada: el panel del dueño y los ETags se arman desde la base al arrancar.
+//   mvn -Ploadtest test-compile exec:exec@datos -Ddatos.jdbc=jdbc:postgresql://localhost:5432/instaguera_carga
+//       -Ddatos.clave=... -Ddatos.usuarios=100000 -Ddatos.turnos=5000000
+// Parametros (clave=valor): jdbc y clave (obligatorios), usuario, usuarios, duenos, turnos, dias-atras,
+// dias-adelante, password, semilla, lote, borrar
+// Los mails son cliente<N>@carga.instaguera y dueno<N>@carga.instaguera (N desde 1), todos con la misma password
+public class GeneradorDatos {
+
+    static final String DOMINIO = "@carga.instaguera";
+    static final String PASSWORD_DEFAULT = "carga1234";
+
+    private static final int INCREMENTO_SECUENCIA = 50;
+    private static final int HORA_APERTURA = 10;
+    private static final int TURNOS_POR_DIA = 10;
+    private static final ZoneId ZONA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final String[] DESCRIPCIONES = {
+            "Blackwork antebrazo", "Fine line muñeca", "Retoque", "Lettering costillas", "Realismo pierna",
+            "Tradicional hombro", "Minimalista tobillo", "Cover up espalda", "Sesion de consulta", "Mandala rodilla"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parametros(args);
+        String jdbc = requerido(params, "jdbc");
+        String clave = requerido(params, "clave");
+        int usuarios = Integer.parseInt(params.getOrDefault("usuarios", "100000"));
+        int duenos = Integer.parseInt(params.getOrDefault("duenos", String.valueOf(Math.max(1, usuarios / 100))));
+        long turnos = Long.parseLong(params.getOrDefault("turnos", "5000000"));
+        int diasAtras = Integer.parseInt(params.getOrDefault("dias-atras", "730"));
+        int diasAdelante = Integer.parseInt(params.getOrDefault("dias-adelante", "180"));
+        int lote = Integer.parseInt(params.getOrDefault("lote", "5000"));
+        boolean borrar = Boolean.parseBoolean(params.getOrDefault("borrar", "false"));
+        Random random = new Random(Long.parseLong(params.getOrDefault("semilla", "42")));
+        int clientes = usuarios - duenos;
+        if (clientes < 1) {
+            throw new IllegalArgumentException("usuarios tiene que ser mayor que duenos");
+        }
+        // Con reWriteBatchedInserts el driver manda cada lote como un solo INSERT de muchas filas
+        if (jdbc.startsWith("jdbc:postgresql:") && !jdbc.contains("reWriteBatchedInserts")) {
+            jdbc += (jdbc.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+
+        try (Connection conexion = DriverManager.getConnection(jdbc,
+                params.getOrDefault("usuario", "postgres"), clave)) {
+            conexion.setAutoCommit(false);
+            if (borrar) {
+                borrarAnteriores(conexion);
+            } else if (contar(conexion, "select count(*) from usuario where email like '%" + DOMINIO + "'") > 0) {
+                throw new IllegalStateException("Ya hay datos de carga en la base; correr con borrar=true para regenerarlos");
+            }
+
+            long inicio = System.nanoTime();
+            // Un solo hash para todos: BCrypt de 100k passwords seria casi todo el tiempo de la carga
+            String hash = new BCryptPasswordEncoder().encode(params.getOrDefault("password", PASSWORD_DEFAULT));
+            long primerUsuario = reservarIds(conexion, "usuario", usuarios);
+            insertarUsuarios(conexion, primerUsuario, duenos, clientes, hash, lote);
+            System.out.printf("%d usuarios (%d dueños) en %ds%n", usuarios, duenos, segundosDesde(inicio));
+
+            long primerTurno = reservarIds(conexion, "turno", turnos);
+            insertarTurnos(conexion, primerTurno, primerUsuario, duenos, clientes, turnos, diasAtras, diasAdelante,
+                    lote, random);
+            System.out.printf("%d turnos en %ds%n", turnos, segundosDesde(inicio));
+
+            try (Statement statement = conexion.createStatement()) {
+                // Que los ETags de listados que ya hubiera en algun cache no sigan valiendo
+                statement.executeUpdate("update sello_coleccion set version = version + 1");
+                conexion.commit();
+                conexion.setAutoCommit(true);
+                // Estadisticas del planificador al dia, si no las primeras consultas eligen mal los indices
+                if (jdbc.startsWith("jdbc:postgresql:")) {
+                    statement.execute("analyze usuario");
+                    statement.execute("analyze turno");
+                }
+            }
+            System.out.printf("Listo en %ds. Login: cliente1%s / dueno1%s%n", segundosDesde(inicio), DOMINIO, DOMINIO);
+        }
+    }
+
+    // Borra los usuarios de una carga anterior; sus turnos (y notificaciones) se van en cascada
+    private static void borrarAnteriores(Connection conexion) throws SQLException {
+        try (Statement statement = conexion.createStatement()) {
+            int borrados = statement.executeUpdate("delete from usuario where email like '%" + DOMINIO + "'");
+            conexion.commit();
+            System.out.printf("Borrados %d usuarios de una carga anterior%n", borrados);
+        }
+    }
+
+    // Devuelve el primer id de un rango de 'cantidad' ids libres y deja la secuencia despues del rango.
+    // El nextval reserva un bloque de Hibernate (pooled): todo lo que este por encima del bloque anterior es nuestro
+    private static long reservarIds(Connection conexion, String tabla, long cantidad) throws SQLException {
+        long maximo = contar(conexion, "select coalesce(max(id), 0) from " + tabla);
+        long siguiente = contar(conexion, "select nextval('" + tabla + "_seq')");
+        long primero = Math.max(maximo, siguiente) + 1;
+        try (Statement statement = conexion.createStatement()) {
+            statement.execute("alter sequence " + tabla + "_seq restart with "
+                    + (primero + cantidad - 1 + INCREMENTO_SECUENCIA));
+        }
+        conexion.commit();
+        return primero;
+    }
+
+    // Primero los dueños (ids primerId..primerId+duenos-1) y despues los clientes
+    private static void insertarUsuarios(Connection conexion, long primerId, int duenos, int clientes, String hash,
+                                         int lote) throws SQLException {
+        String sql = "insert into usuario (id, version, nombre, apellido, celular, username, password, role, email)"
+                + " values (?, 0, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement insert = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < duenos + clientes; i++) {
+                boolean dueno = i < duenos;
+                String usuario = dueno ? "dueno" + (i + 1) : "cliente" + (i - duenos + 1);
+                insert.setLong(1, primerId + i);
+                insert.setString(2, dueno ? "Dueño" : "Cliente");
+                insert.setString(3, String.valueOf(dueno ? i + 1 : i - duenos + 1));
+                insert.setString(4, String.format("11%08d", i));
+                insert.setString(5, usuario + ".carga");
+                insert.setString(6, hash);
+                insert.setString(7, dueno ? "DUENO" : "CLIENTE");
+                insert.setString(8, usuario + DOMINIO);
+                insert.addBatch();
+                if ((i + 1) % lote == 0) {
+                    insert.executeBatch();
+                    conexion.commit();
+                }
+            }
+            insert.executeBatch();
+            conexion.commit();
+        }
+    }
+
+    // Cada dueño recibe su parte de los turnos, espaciados parejo en su agenda (si hay mas turnos que huecos, se
+    // pisan: el volumen manda). El cliente de cada turno es uno cualquiera
+    private static void insertarTurnos(Connection conexion, long primerId, long primerUsuario, int duenos, int clientes,
+                                       long turnos, int diasAtras, int diasAdelante, int lote, Random random)
+            throws SQLException {
+        String sql = "insert into turno (id, version, fecha_hora, estado, duracion_minutos, descripcion, cliente_id, dueno_id)"
+                + " values (?, 0, ?, ?, 60, ?, ?, ?)";
+        LocalDate desde = LocalDate.now(ZONA).minusDays(diasAtras);
+        OffsetDateTime ahora = OffsetDateTime.now(ZONA);
+        long huecos = (long) (diasAtras + diasAdelante) * TURNOS_POR_DIA;
+        long id = primerId;
+        long avisarCada = Math.max(1, turnos / 10);
+
+        try (PreparedStatement insert = conexion.prepareStatement(sql)) {
+            for (int d = 0; d < duenos; d++) {
+                // Los primeros dueños se llevan el resto de la division
+                long propios = turnos / duenos + (d < turnos % duenos ? 1 : 0);
+                for (long i = 0; i < propios; i++) {
+                    long hueco = i * huecos / propios;
+                    OffsetDateTime fecha = desde.plusDays(hueco / TURNOS_POR_DIA)
+                            .atTime(HORA_APERTURA + (int) (hueco % TURNOS_POR_DIA), 0)
+                            .atZone(ZONA).toOffsetDateTime();
+                    insert.setLong(1, id);
+                    insert.setObject(2, fecha);
+                    insert.setString(3, estado(fecha.isBefore(ahora), random.nextInt(100)));
+                    insert.setString(4, DESCRIPCIONES[random.nextInt(DESCRIPCIONES.length)]);
+                    insert.setLong(5, primerUsuario + duenos + random.nextInt(clientes));
+                    insert.setLong(6, primerUsuario + d);
+                    insert.addBatch();
+                    id++;
+                    if ((id - primerId) % lote == 0) {
+                        insert.executeBatch();
+                        conexion.commit();
+                    }
+                    if ((id - primerId) % avisarCada == 0) {
+                        System.out.printf("  %d%% de los turnos%n", (id - primerId) * 100 / turnos);
+                    }
+                }
+            }
+            insert.executeBatch();
+            conexion.commit();
+        }
+    }
+
+    private static String estado(boolean paso, int dado) {
+        if (paso) {
+            return dado < 75 ? "COMPLETADO" : dado < 90 ? "CANCELADO" : "CONFIRMADO";
+        }
+        return dado < 35 ? "SOLICITADO" : dado < 90 ? "CONFIRMADO" : "CANCELADO";
+    }
+
+    private static long contar(Connection conexion, String sql) throws SQLException {
+        try (Statement statement = conexion.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static long segundosDesde(long inicio) {
+        return Duration.ofNanos(System.nanoTime() - inicio).toSeconds();
+    }
+
+    // Sin default a proposito: que nadie llene sin querer la base de la app con millones de filas
+    private static String requerido(Map<String, String> params, String nombre) {
+        String valor = params.get(nombre);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta " + nombre + "=... (con mvn, -Ddatos." + nombre + "=...)");
+        }
+        return valor;
+    }
+
+    private static Map<String, String> parametros(String[] args) {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual > 0 && igual < arg.length() - 1) params.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        return params;
+    }
+}
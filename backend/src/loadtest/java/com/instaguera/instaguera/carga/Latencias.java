@@ -0,0 +1,51 @@
+package com.instaguera.instaguera.carga;
+
+import java.util.Arrays;
+
+// Latencias de un endpoint. Cada worker tiene las suyas (sin locks) y al final se juntan
+final class Latencias {
+
+    private long[] nanos = new long[1024];
+    private int cantidad;
+    private int errores;
+
+    void registrar(long duracionNanos, boolean ok) {
+        if (cantidad == nanos.length) nanos = Arrays.copyOf(nanos, cantidad * 2);
+        nanos[cantidad++] = duracionNanos;
+        if (!ok) errores++;
+    }
+
+    void sumar(Latencias otras) {
+        for (int i = 0; i < otras.cantidad; i++) registrar(otras.nanos[i], true);
+        errores += otras.errores;
+    }
+
+    String resumen(String nombre, double segundos) {
+        long[] ordenadas = Arrays.copyOf(nanos, cantidad);
+        Arrays.sort(ordenadas);
+        return String.format("%-28s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                nombre, cantidad, errores, cantidad / segundos,
+                percentil(ordenadas, 50), percentil(ordenadas, 90), percentil(ordenadas, 99), percentil(ordenadas, 100));
+    }
+
+    double porcentajeErrores() {
+        return cantidad == 0 ? 0 : errores * 100.0 / cantidad;
+    }
+
+    double percentilMs(int percentil) {
+        long[] ordenadas = Arrays.copyOf(nanos, cantidad);
+        Arrays.sort(ordenadas);
+        return percentil(ordenadas, percentil);
+    }
+
+    static String encabezado() {
+        return String.format("%-28s %9s %8s %10s %9s %9s %9s %9s",
+                "endpoint", "requests", "errores", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+    }
+
+    private static double percentil(long[] ordenadas, int percentil) {
+        if (ordenadas.length == 0) return 0;
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.instaguera.instaguera.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Prueba de carga contra un backend ya levantado sobre una base llenada con GeneradorDatos.
+// Cada usuario virtual entra como un cliente y un dueño al azar de los generados y repite escenarios segun su peso:
+//   login       POST /auth/login (BCrypt)
+//   mis-turnos  GET /turnos?clienteId=... (panel del cliente)
+//   panel-dueno GET /turnos/stats + GET /turnos?duenoId=...&desde=ahora (agenda)
+//   reserva     GET /turnos/disponibilidad de un dia que viene + POST /turnos en el primer hueco (409 si se lo
+//               ganaron: con muchos usuarios sobre el mismo dueño es lo esperable, no cuenta como error)
+// Al final imprime req/s y percentiles por endpoint y sale con 1 si los errores o el p99 pasan los umbrales.
+// El limite de logins por IP frena a cualquier prueba desde una sola maquina: levantar la app con
+//   --instaguera.login.throttle.ip.capacidad=1000000
+//   mvn -Ploadtest test-compile exec:exec@carga -Dcarga.clientes=99000 -Dcarga.duenos=1000
+// Para comparar modos se corre igual contra la app con y sin --spring.profiles.active=virtual.
+// Parametros (clave=valor): url, clientes, duenos, password, segundos, concurrencia, escenarios
+// (nombre:peso separados por coma), dias-adelante, max-errores (%), p99-max-ms (0 = sin limite)
+public class PruebaDeCarga {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ZoneId ZONA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final String ESCENARIOS_DEFAULT = "login:10,mis-turnos:45,panel-dueno:30,reserva:15";
+
+    private record Sesion(String token, long id) {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parametros(args);
+        String url = params.getOrDefault("url", "http://localhost:8080");
+        int clientes = Integer.parseInt(params.getOrDefault("clientes", "99000"));
+        int duenos = Integer.parseInt(params.getOrDefault("duenos", "1000"));
+        String password = params.getOrDefault("password", GeneradorDatos.PASSWORD_DEFAULT);
+        int segundos = Integer.parseInt(params.getOrDefault("segundos", "30"));
+        int concurrencia = Integer.parseInt(params.getOrDefault("concurrencia", "200"));
+        int diasAdelante = Integer.parseInt(params.getOrDefault("dias-adelante", "180"));
+        double maxErrores = Double.parseDouble(params.getOrDefault("max-errores", "1"));
+        double p99MaxMs = Double.parseDouble(params.getOrDefault("p99-max-ms", "0"));
+        List<String> sorteo = sorteo(params.getOrDefault("escenarios", ESCENARIOS_DEFAULT));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("Carga contra %s: %d usuarios concurrentes, %ds, escenarios %s%n",
+                url, concurrencia, segundos, params.getOrDefault("escenarios", ESCENARIOS_DEFAULT));
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        List<Map<String, Latencias>> porWorker = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < concurrencia; i++) {
+            Map<String, Latencias> propias = new HashMap<>();
+            porWorker.add(propias);
+            workers.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String bodyCliente = bodyLogin("cliente" + (random.nextInt(clientes) + 1), password);
+                String bodyDueno = bodyLogin("dueno" + (random.nextInt(duenos) + 1), password);
+                Sesion cliente = null;
+                Sesion dueno = null;
+                while (System.nanoTime() < fin) {
+                    // Sin sesion (login rechazado o caido) no tiene sentido seguir con los otros escenarios
+                    if (cliente == null) {
+                        cliente = iniciarSesion(client, url, bodyCliente, propias);
+                        continue;
+                    }
+                    if (dueno == null) {
+                        dueno = iniciarSesion(client, url, bodyDueno, propias);
+                        continue;
+                    }
+                    switch (sorteo.get(random.nextInt(sorteo.size()))) {
+                        case "login" -> {
+                            Sesion nueva = iniciarSesion(client, url, bodyCliente, propias);
+                            if (nueva != null) cliente = nueva;
+                        }
+                        case "mis-turnos" -> medir(client, propias, "GET /turnos (cliente)",
+                                get(url + "/turnos?clienteId=" + cliente.id() + "&limite=50", cliente), false);
+                        case "panel-dueno" -> {
+                            medir(client, propias, "GET /turnos/stats", get(url + "/turnos/stats", dueno), false);
+                            medir(client, propias, "GET /turnos (agenda dueño)", get(url + "/turnos?duenoId=" + dueno.id()
+                                    + "&desde=" + fecha(OffsetDateTime.now(ZONA)) + "&limite=50", dueno), false);
+                        }
+                        case "reserva" -> reservar(client, url, cliente, dueno.id(),
+                                LocalDate.now(ZONA).plusDays(random.nextInt(diasAdelante) + 1), propias);
+                        default -> throw new IllegalStateException();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) worker.join();
+
+        Map<String, Latencias> total = new TreeMap<>();
+        Latencias todas = new Latencias();
+        for (Map<String, Latencias> propias : porWorker) {
+            propias.forEach((nombre, latencias) -> {
+                total.computeIfAbsent(nombre, k -> new Latencias()).sumar(latencias);
+                todas.sumar(latencias);
+            });
+        }
+        System.out.println(Latencias.encabezado());
+        total.forEach((nombre, latencias) -> System.out.println(latencias.resumen(nombre, segundos)));
+        System.out.println(todas.resumen("total", segundos));
+
+        // Para CI: si empeoro, que falle el build
+        boolean fallo = false;
+        if (todas.porcentajeErrores() > maxErrores) {
+            System.out.printf("Errores %.2f%% > %.2f%%%n", todas.porcentajeErrores(), maxErrores);
+            fallo = true;
+        }
+        if (p99MaxMs > 0) {
+            for (Map.Entry<String, Latencias> entrada : total.entrySet()) {
+                if (entrada.getValue().percentilMs(99) > p99MaxMs) {
+                    System.out.printf("p99 de %s %.2f ms > %.2f ms%n", entrada.getKey(), entrada.getValue().percentilMs(99), p99MaxMs);
+                    fallo = true;
+                }
+            }
+        }
+        if (fallo) System.exit(1);
+    }
+
+    // Disponibilidad del dia y reserva en el primer hueco de una hora
+    private static void reservar(HttpClient client, String url, Sesion cliente, long duenoId, LocalDate dia,
+                                 Map<String, Latencias> propias) {
+        OffsetDateTime desde = dia.atTime(10, 0).atZone(ZONA).toOffsetDateTime();
+        HttpResponse<String> respuesta = medir(client, propias, "GET /turnos/disponibilidad",
+                get(url + "/turnos/disponibilidad?duenoId=" + duenoId + "&desde=" + fecha(desde)
+                        + "&hasta=" + fecha(desde.plusHours(10)), cliente), false);
+        if (respuesta == null || respuesta.statusCode() >= 400) return;
+
+        OffsetDateTime inicio = null;
+        try {
+            for (JsonNode franja : MAPPER.readTree(respuesta.body())) {
+                OffsetDateTime desdeFranja = OffsetDateTime.parse(franja.path("inicio").asText());
+                if (!desdeFranja.plusHours(1).isAfter(OffsetDateTime.parse(franja.path("fin").asText()))) {
+                    inicio = desdeFranja;
+                    break;
+                }
+            }
+            if (inicio == null) return;
+            String body = MAPPER.writeValueAsString(Map.of(
+                    "fechaHora", inicio.toString(),
+                    "duracionMinutos", 60,
+                    "estado", "SOLICITADO",
+                    "descripcion", "Reserva de prueba de carga",
+                    "cliente", Map.of("id", cliente.id()),
+                    "dueno", Map.of("id", duenoId)));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/turnos"))
+                    .header("Authorization", "Bearer " + cliente.token())
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            medir(client, propias, "POST /turnos", request, true);
+        } catch (Exception e) {
+            propias.computeIfAbsent("POST /turnos", k -> new Latencias()).registrar(0, false);
+        }
+    }
+
+    private static Sesion iniciarSesion(HttpClient client, String url, String body, Map<String, Latencias> propias) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> respuesta = medir(client, propias, "POST /auth/login", request, false);
+        if (respuesta == null || respuesta.statusCode() >= 400) return null;
+        try {
+            JsonNode sesion = MAPPER.readTree(respuesta.body());
+            return new Sesion(sesion.path("token").asText(), sesion.path("user").path("id").asLong());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Manda el request y anota cuanto tardo; null si ni siquiera hubo respuesta
+    private static HttpResponse<String> medir(HttpClient client, Map<String, Latencias> propias, String nombre,
+                                              HttpRequest request, boolean conflictoEsperable) {
+        long inicio = System.nanoTime();
+        HttpResponse<String> respuesta;
+        try {
+            respuesta = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            respuesta = null;
+        }
+        int status = respuesta != null ? respuesta.statusCode() : 0;
+        boolean ok = status > 0 && (status < 400 || (conflictoEsperable && status == 409));
+        propias.computeIfAbsent(nombre, k -> new Latencias()).registrar(System.nanoTime() - inicio, ok);
+        return respuesta;
+    }
+
+    private static HttpRequest get(String url, Sesion sesion) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + sesion.token())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static String bodyLogin(String usuario, String password) {
+        try {
+            return MAPPER.writeValueAsString(Map.of("email", usuario + GeneradorDatos.DOMINIO, "password", password));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String fecha(OffsetDateTime fecha) {
+        return URLEncoder.encode(fecha.withNano(0).toString(), StandardCharsets.UTF_8);
+    }
+
+    // "login:10,reserva:5" => una lista con cada nombre repetido segun su peso, para sortear con un indice
+    private static List<String> sorteo(String escenarios) {
+        Set<String> conocidos = Set.of("login", "mis-turnos", "panel-dueno", "reserva");
+        List<String> sorteo = new ArrayList<>();
+        for (String escenario : escenarios.split(",")) {
+            String[] partes = escenario.trim().split(":");
+            if (!conocidos.contains(partes[0])) {
+                throw new IllegalArgumentException("Escenario desconocido: " + partes[0] + " (hay " + conocidos + ")");
+            }
+            int peso = partes.length > 1 ? Integer.parseInt(partes[1]) : 1;
+            for (int i = 0; i < peso; i++) sorteo.add(partes[0]);
+        }
+        if (sorteo.isEmpty()) throw new IllegalArgumentException("No hay escenarios con peso");
+        return sorteo;
+    }
+
+    private static Map<String, String> parametros(String[] args) {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual > 0 && igual < arg.length() - 1) params.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,30 @@
+package com.instaguera.instaguera.config;
+
+import org.hibernate.SessionEventListener;
+
+// Hibernate crea uno por sesion (hibernate.session.events.auto). Cada sentencia o batch ejecutado
+// cuenta como uno, con el tiempo que tardo el driver en contestar
+public class ContadorSql implements SessionEventListener {
+
+    private long inicio;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlPorRequest.registrar(System.nanoTime() - inicio);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlPorRequest.registrar(System.nanoTime() - inicio);
+    }
+}
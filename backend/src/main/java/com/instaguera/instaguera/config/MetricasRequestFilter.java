@@ -0,0 +1,95 @@
+package com.instaguera.instaguera.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Por cada request: cuantas sentencias SQL ejecuto y cuanto tiempo paso en JDBC, por endpoint.
+// La latencia total por endpoint ya la mide Spring (http.server.requests); esto dice que parte es base.
+// Ademas deja una linea de log por request, pero solo para una muestra, los lentos y los 5xx
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricasRequestFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricasRequestFilter.class);
+
+    private final MeterRegistry registry;
+    private final double muestreo;
+    private final Duration lento;
+
+    public MetricasRequestFilter(MeterRegistry registry,
+                                 @Value("${instaguera.log.muestreo:0}") double muestreo,
+                                 @Value("${instaguera.log.lento:1s}") Duration lento) {
+        this.registry = registry;
+        this.muestreo = muestreo;
+        this.lento = lento;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long inicio = System.nanoTime();
+        SqlPorRequest sql = SqlPorRequest.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlPorRequest.terminar();
+            registrar(request, response, sql, System.nanoTime() - inicio);
+        }
+    }
+
+    private void registrar(HttpServletRequest request, HttpServletResponse response, SqlPorRequest sql, long nanos) {
+        // El patron (/turnos/{id}) y no la URI real, para no abrir una serie por id
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : "UNKNOWN";
+        String metodo = request.getMethod();
+
+        DistributionSummary.builder("instaguera.sql.sentencias")
+                .description("Sentencias SQL por request")
+                .tags("uri", uri, "method", metodo)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sql.sentencias());
+        Timer.builder("instaguera.sql.tiempo")
+                .description("Tiempo en JDBC por request")
+                .tags("uri", uri, "method", metodo)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sql.nanos(), TimeUnit.NANOSECONDS);
+
+        int status = response.getStatus();
+        if (status >= 500 || nanos >= lento.toNanos() || ThreadLocalRandom.current().nextDouble() < muestreo) {
+            log.atInfo()
+                    .setMessage("request")
+                    .addKeyValue("method", metodo)
+                    .addKeyValue("uri", uri)
+                    .addKeyValue("status", status)
+                    .addKeyValue("ms", TimeUnit.NANOSECONDS.toMillis(nanos))
+                    .addKeyValue("sql", sql.sentencias())
+                    .addKeyValue("sql_ms", TimeUnit.NANOSECONDS.toMillis(sql.nanos()))
+                    .log();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.instaguera.instaguera.config;
+
+import db.migration.V4__ids_con_secuencia;
+import db.migration.V7__turnos_en_cascada;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.NativeDetector;
+
+// Lo que el AOT de Spring no deduce solo para la imagen nativa (mvn -Pnative native:compile).
+// ContadorSql lo instancia Hibernate por nombre (hibernate.session.events.auto), y las migraciones en Java
+// Flyway las busca escaneando clases del classpath, que en la imagen nativa no hay: ahi se le pasan ya armadas
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeConfig.Hints.class)
+public class NativeConfig {
+
+    @Bean
+    public FlywayConfigurationCustomizer migracionesJavaEnNativo() {
+        return configuration -> {
+            if (NativeDetector.inNativeImage()) {
+                configuration.javaMigrations(new V4__ids_con_secuencia(), new V7__turnos_en_cascada());
+            }
+        };
+    }
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.reflection().registerType(ContadorSql.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.instaguera.instaguera.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Tareas periodicas (@Scheduled), p. ej. la reconciliacion de las estadisticas de turnos
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,22 +1,31 @@
 package com.instaguera.instaguera.config;
 
+import com.instaguera.instaguera.security.BoundedPasswordEncoder;
 import com.instaguera.instaguera.security.JwtFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
 public class SecurityConfig {
 
+    // Costo de BCrypt (2^10 rondas), el default de Spring
+    public static final int BCRYPT_STRENGTH = 10;
+
     private final JwtFilter jwtFilter;
 
     public SecurityConfig(JwtFilter jwtFilter) {
@@ -31,7 +40,13 @@ public class SecurityConfig {
                 .cors(cors -> {})
                 // Autorizamos los distintos endpoint desde acá
                 .authorizeHttpRequests(auth -> auth
+                        // Los dispatch async/error (p. ej. cuando termina un SSE) no vuelven a pasar por el JwtFilter
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/auth/**").permitAll()
+                        // Health para el balanceador y el scrape de Prometheus (en prod van en otro puerto, ver application-prod)
+                        .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                        // Galeria y sus archivos son publicos; subir fotos no
+                        .requestMatchers(HttpMethod.GET, "/media", "/media/**").permitAll()
                         .requestMatchers("/turnos/**").authenticated()
                         .requestMatchers("/usuarios/**").authenticated()
                         .anyRequest().authenticated()
@@ -41,9 +56,14 @@ public class SecurityConfig {
                 .build();
     }
 
+    // hilos = 0 usa tantos como cores tenga la maquina
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${instaguera.password.hilos:0}") int hilos,
+                                                  @Value("${instaguera.password.cola:64}") int cola,
+                                                  @Value("${instaguera.password.timeout:5s}") Duration timeout,
+                                                  MeterRegistry registry) {
+        int tamanio = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(BCRYPT_STRENGTH), tamanio, cola, timeout, registry);
     }
 
     @Bean
@@ -60,6 +80,7 @@ public class SecurityConfig {
                         .allowedOrigins("http://localhost:3000")
                         .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor")
                         .allowCredentials(true);
             }
         };
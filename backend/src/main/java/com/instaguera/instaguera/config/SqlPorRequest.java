@@ -0,0 +1,40 @@
+package com.instaguera.instaguera.config;
+
+// Sentencias SQL y tiempo en JDBC del request en curso. Lo abre y lo cierra MetricasRequestFilter,
+// y lo va sumando ContadorSql desde Hibernate en el mismo hilo
+final class SqlPorRequest {
+
+    private static final ThreadLocal<SqlPorRequest> ACTUAL = new ThreadLocal<>();
+
+    private int sentencias;
+    private long nanos;
+
+    private SqlPorRequest() {}
+
+    static SqlPorRequest iniciar() {
+        SqlPorRequest medicion = new SqlPorRequest();
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    static void terminar() {
+        ACTUAL.remove();
+    }
+
+    // Fuera de un request (jobs programados, arranque) no hay medicion y no se cuenta nada
+    static void registrar(long nanos) {
+        SqlPorRequest medicion = ACTUAL.get();
+        if (medicion != null) {
+            medicion.sentencias++;
+            medicion.nanos += nanos;
+        }
+    }
+
+    int sentencias() {
+        return sentencias;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+}
@@ -5,7 +5,14 @@ import com.instaguera.instaguera.dto.RegisterRequest;
 import com.instaguera.instaguera.model.Role;
 import com.instaguera.instaguera.model.Usuario;
 import com.instaguera.instaguera.repository.UsuarioRepository;
+import com.instaguera.instaguera.security.BoundedPasswordEncoder;
 import com.instaguera.instaguera.security.JwtUtil;
+import com.instaguera.instaguera.security.LoginThrottle;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.UsuarioService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,56 +28,95 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
     private final UsuarioRepository usuarioRepository;
+    private final UsuarioService usuarioService;
     private final PasswordEncoder passwordEncoder;
+    private final LoginThrottle loginThrottle;
 
     public AuthController(AuthenticationManager authenticationManager,
                           JwtUtil jwtUtil,
                           UsuarioRepository usuarioRepository,
-                          PasswordEncoder passwordEncoder) {
+                          UsuarioService usuarioService,
+                          PasswordEncoder passwordEncoder,
+                          LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.usuarioRepository = usuarioRepository;
+        this.usuarioService = usuarioService;
         this.passwordEncoder = passwordEncoder;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/login")
-    public AuthResponse login(@RequestBody LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // Antes de gastar un BCrypt: demasiados intentos para ese email o desde esa IP => 429
+        if (!loginThrottle.permitirLogin(request.getEmail(), httpRequest.getRemoteAddr())) {
+            return demasiadosIntentos();
+        }
 
-        // Generamos token para la sesion
-        String token = jwtUtil.generateToken(authentication.getName());
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
+            );
+        } catch (BoundedPasswordEncoder.HashingSaturadoException e) {
+            return saturado(e);
+        }
 
-        // Buscamos el usuario a loguear...
-        Usuario usuario = usuarioRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        // El principal ya trae al usuario (lo cargo el UserDetailsService), no hace falta buscarlo de nuevo
+        UsuarioPrincipal principal = (UsuarioPrincipal) authentication.getPrincipal();
+
+        // Generamos token para la sesion
+        String token = jwtUtil.generateToken(principal);
 
         // Si se da, devolvemos user y token que guardaremos en local en el front
-        return new AuthResponse(token, usuario);
+        return ResponseEntity.ok(new AuthResponse(token, principal.getUsuario()));
     }
 
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody RegisterRequest request) {
+    public ResponseEntity<?> register(@RequestBody RegisterRequest request, HttpServletRequest httpRequest) {
+
+        if (!loginThrottle.permitirIp(httpRequest.getRemoteAddr())) {
+            return demasiadosIntentos();
+        }
 
         // Primero chequeamos que no exista un mail igual ya
         if (usuarioRepository.findByEmail(request.getEmail()).isPresent()) {
             return ResponseEntity.badRequest().body("El email ya está registrado");
         }
 
-        // Creamos el user, y encriptamos la contraseña
+        // Encriptamos la contraseña (en el pool acotado de BCrypt)
+        String hash;
+        try {
+            hash = passwordEncoder.encode(request.getPassword());
+        } catch (BoundedPasswordEncoder.HashingSaturadoException e) {
+            return saturado(e);
+        }
+
+        // Creamos el user
         Usuario nuevo = new Usuario(
                 request.getNombre(),
                 request.getApellido(),
                 request.getCelular(),
                 request.getUsername(),
-                passwordEncoder.encode(request.getPassword()), // importante encriptar
+                hash, // importante encriptar
                 Role.valueOf(request.getRole().toUpperCase()), // o fijar Role.CLIENTE
                 request.getEmail()
         );
 
-        usuarioRepository.save(nuevo);
+        usuarioService.crear(nuevo);
 
         return ResponseEntity.ok("Usuario registrado con éxito");
     }
+
+    private static ResponseEntity<String> demasiadosIntentos() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "10")
+                .body("Demasiados intentos, esperá un momento");
+    }
+
+    private static ResponseEntity<String> saturado(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(e.getMessage());
+    }
 }
\ No newline at end of file
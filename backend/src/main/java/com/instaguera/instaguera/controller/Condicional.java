@@ -0,0 +1,52 @@
+package com.instaguera.instaguera.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+// GET condicionales de los listados: If-None-Match contra el ETag de la coleccion.
+// Para un recurso suelto el ETag es su @Version, y el If-Match de PATCH/DELETE se compara con esa version
+final class Condicional {
+
+    // private: solo lo guarda el navegador del usuario; no-cache: lo revalida siempre con el ETag
+    static final CacheControl LISTADOS = CacheControl.noCache().cachePrivate();
+
+    private Condicional() {}
+
+    static boolean noModificado(WebRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) return false;
+        String buscado = "\"" + etag + "\"";
+        for (String valor : ifNoneMatch.split(",")) {
+            String candidato = valor.trim();
+            // If-None-Match compara en forma debil
+            if (candidato.startsWith("W/")) candidato = candidato.substring(2);
+            if (candidato.equals("*") || candidato.equals(buscado)) return true;
+        }
+        return false;
+    }
+
+    static String etag(Long version) {
+        return String.valueOf(version);
+    }
+
+    // Version pedida en If-Match, o null si no vino (o es *). Tiene que ser un solo ETag fuerte
+    static Long versionIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String valor = ifMatch.trim();
+        if (valor.length() < 2 || !valor.startsWith("\"") || !valor.endsWith("\"")) {
+            throw new IllegalArgumentException("If-Match tiene que ser el ETag que devolvió el GET");
+        }
+        try {
+            return Long.parseLong(valor.substring(1, valor.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match tiene que ser el ETag que devolvió el GET");
+        }
+    }
+
+    static ResponseEntity<?> respuesta304(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(LISTADOS).build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Lo comun de los endpoints /export: quien puede bajar, formato y headers de la descarga.
+// Escriben directo en la respuesta (sin StreamingResponseBody) para no quedar atados al timeout de los requests async
+final class Descargas {
+
+    private Descargas() {}
+
+    // Devuelve null (y deja la respuesta con el error) si no se puede exportar
+    static ExportService.Formato preparar(UsuarioPrincipal principal, String formato, String nombre,
+                                          HttpServletResponse response) throws IOException {
+        if (principal == null || principal.getRole() == Role.CLIENTE) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+        ExportService.Formato elegido;
+        try {
+            elegido = ExportService.Formato.valueOf(formato.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Formato inválido, usá csv o ndjson");
+            return null;
+        }
+        response.setContentType(elegido.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(nombre + "." + elegido.extension()).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        return elegido;
+    }
+}
@@ -0,0 +1,96 @@
+package com.instaguera.instaguera.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Manda un archivo inmutable (nombre = hash del contenido) con Range y cache para siempre.
+// Con Tomcat (NIO) usa sendfile: el servlet solo deja los atributos y Tomcat lo pasa del disco al socket
+// con FileChannel.transferTo, sin copiarlo por el heap. Si no hay sendfile (tests, otro contenedor)
+// hace el mismo transferTo contra el stream de la respuesta
+final class EnvioArchivo {
+
+    private static final String SENDFILE_SOPORTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    private EnvioArchivo() {}
+
+    static void enviar(Path archivo, String contentType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long largo;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            largo = canal.size();
+        }
+        // El nombre ya identifica el contenido, asi que sirve de ETag fuerte
+        String etag = "\"" + archivo.getFileName() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_INMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long inicio = 0;
+        long fin = largo - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> rangos = HttpRange.parseRanges(range);
+                // Varios rangos (multipart/byteranges) no se usan para imagenes: se contesta el archivo entero
+                if (rangos.size() == 1) {
+                    inicio = rangos.get(0).getRangeStart(largo);
+                    fin = rangos.get(0).getRangeEnd(largo);
+                    // HttpRange no chequea que el rango arranque dentro del archivo
+                    if (inicio >= largo || inicio > fin) throw new IllegalArgumentException("Rango fuera del archivo");
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + largo);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + largo);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        long cantidad = fin - inicio + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(cantidad);
+        if ("HEAD".equals(request.getMethod()) || cantidad == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTE))) {
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            // Tomcat toma el fin como exclusivo
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long resto = cantidad;
+            while (resto > 0) {
+                long enviados = canal.transferTo(posicion, resto, salida);
+                posicion += enviados;
+                resto -= enviados;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.dto.ImagenCursor;
+import com.instaguera.instaguera.dto.ImagenResponse;
+import com.instaguera.instaguera.model.Imagen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.AlmacenMedia;
+import com.instaguera.instaguera.service.GaleriaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/media")
+public class MediaController {
+
+    private static final int LIMITE_DEFAULT = 30;
+    private static final int LIMITE_MAXIMO = 100;
+
+    @Autowired
+    private GaleriaService galeriaService;
+
+    @Autowired
+    private AlmacenMedia almacen;
+
+    // GET - Galeria (publica), de la mas nueva a la mas vieja; la siguiente pagina en X-Next-Cursor
+    @GetMapping
+    public ResponseEntity<?> getGaleria(@RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "" + LIMITE_DEFAULT) int limite) {
+        Long antesDe;
+        try {
+            antesDe = cursor != null ? ImagenCursor.decodificar(cursor).id() : null;
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        // Uno de mas para saber si hay otra pagina sin COUNT
+        List<Imagen> imagenes = galeriaService.pagina(antesDe, tamanio + 1);
+        List<ImagenResponse> pagina = imagenes.stream().limit(tamanio).map(ImagenResponse::de).toList();
+        if (imagenes.size() <= tamanio) {
+            return ResponseEntity.ok(pagina);
+        }
+        return ResponseEntity.ok()
+                .header(TurnoController.HEADER_CURSOR, new ImagenCursor(imagenes.get(tamanio - 1).getId()).codificar())
+                .body(pagina);
+    }
+
+    // POST - Subir una foto (solo el dueño o un admin). Si ya estaba devuelve la misma con 200
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> subir(@RequestParam("archivo") MultipartFile archivo,
+                                   @AuthenticationPrincipal UsuarioPrincipal principal) throws IOException {
+        if (principal == null || principal.getRole() == Role.CLIENTE) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        GaleriaService.Subida subida;
+        try (InputStream contenido = archivo.getInputStream()) {
+            subida = galeriaService.subir(contenido, principal.getId());
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        ImagenResponse imagen = ImagenResponse.de(subida.imagen());
+        return subida.creada()
+                ? ResponseEntity.created(URI.create(imagen.original())).body(imagen)
+                : ResponseEntity.ok(imagen);
+    }
+
+    // GET - El archivo (original o variante) por su nombre, que es el hash: se cachea para siempre
+    @GetMapping("/{nombre:.+}")
+    public void descargar(@PathVariable String nombre, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path archivo = almacen.buscar(nombre).orElse(null);
+        if (archivo == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String contentType = nombre.endsWith(".png") ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE;
+        EnvioArchivo.enviar(archivo, contentType, request, response);
+    }
+
+    // El front lee errorData.message
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, RuntimeException e) {
+        return ResponseEntity.status(status).body(Map.of("message", e.getMessage()));
+    }
+}
@@ -1,65 +1,302 @@
 package com.instaguera.instaguera.controller;
 
+import com.instaguera.instaguera.dto.OperacionTurno;
+import com.instaguera.instaguera.dto.TurnoCursor;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.SelloColeccion;
 import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.TurnoArchivado;
+import com.instaguera.instaguera.repository.TurnoArchivadoRepository;
 import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.ExportService;
+import com.instaguera.instaguera.service.Idempotencia;
+import com.instaguera.instaguera.service.SellosColeccion;
+import com.instaguera.instaguera.service.TurnoEstadisticas;
+import com.instaguera.instaguera.service.TurnoLoteService;
+import com.instaguera.instaguera.service.TurnoService;
+import com.instaguera.instaguera.service.TurnoSolapadoException;
+import com.instaguera.instaguera.service.TurnoStream;
+import com.instaguera.instaguera.service.VersionDistintaException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/turnos")
 public class TurnoController {
 
+    static final String HEADER_CURSOR = "X-Next-Cursor";
+    private static final int LIMITE_DEFAULT = 100;
+    private static final int LIMITE_MAXIMO = 500;
+
     @Autowired
     private TurnoRepository turnoRepository;
 
-    // GET - TODOS los turnos
+    @Autowired
+    private TurnoArchivadoRepository turnoArchivadoRepository;
+
+    @Autowired
+    private TurnoService turnoService;
+
+    @Autowired
+    private TurnoLoteService turnoLoteService;
+
+    @Autowired
+    private TurnoEstadisticas estadisticas;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private SellosColeccion sellos;
+
+    @Autowired
+    private TurnoStream turnoStream;
+
+    @Autowired
+    private Idempotencia idempotencia;
+
+    // GET - Turnos filtrados y paginados por cursor (fechaHora, id)
+    // Si hay mas paginas, el cursor de la siguiente viene en el header X-Next-Cursor.
+    // Con If-None-Match y sin cambios en los turnos responde 304 sin consultar la tabla
     @GetMapping
-    public List<Turno> getAllTurnos() {
-        return turnoRepository.findAll();
+    public ResponseEntity<?> getAllTurnos(
+            @RequestParam(required = false) Long clienteId,
+            @RequestParam(required = false) Long duenoId,
+            @RequestParam(required = false) EstadoTurno estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + LIMITE_DEFAULT) int limite,
+            WebRequest webRequest) {
+
+        String etag = sellos.etag(SelloColeccion.TURNOS, webRequest.getParameterMap());
+        if (Condicional.noModificado(webRequest, etag)) {
+            return Condicional.respuesta304(etag);
+        }
+
+        TurnoCursor despuesDe;
+        try {
+            despuesDe = cursor != null ? TurnoCursor.decodificar(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        // Pedimos uno de mas para saber si queda otra pagina sin hacer un COUNT
+        List<Turno> turnos = turnoRepository.buscar(
+                new TurnoFiltro(clienteId, duenoId, estado, desde, hasta), despuesDe, tamanio + 1);
+
+        if (turnos.size() <= tamanio) {
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(Condicional.LISTADOS)
+                    .body(turnos.stream().map(TurnoResponse::de).toList());
+        }
+        List<Turno> pagina = turnos.subList(0, tamanio);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(Condicional.LISTADOS)
+                .header(HEADER_CURSOR, TurnoCursor.de(pagina.get(tamanio - 1)).codificar())
+                .body(pagina.stream().map(TurnoResponse::de).toList());
+    }
+
+    // GET - Export completo en CSV o NDJSON, con los mismos filtros que GET /turnos pero sin paginar.
+    // Sale fila por fila desde un cursor de la base, la memoria no crece con la cantidad de turnos
+    @GetMapping("/export")
+    public void exportTurnos(
+            @RequestParam(required = false) Long clienteId,
+            @RequestParam(required = false) Long duenoId,
+            @RequestParam(required = false) EstadoTurno estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime hasta,
+            @RequestParam(defaultValue = "csv") String formato,
+            @AuthenticationPrincipal UsuarioPrincipal principal,
+            HttpServletResponse response) throws IOException {
+
+        ExportService.Formato elegido = Descargas.preparar(principal, formato, "turnos", response);
+        if (elegido != null) {
+            exportService.exportarTurnos(new TurnoFiltro(clienteId, duenoId, estado, desde, hasta), elegido,
+                    response.getOutputStream());
+        }
+    }
+
+    // GET - Historial archivado (turnos terminados viejos), mismos filtros y cursor que GET /turnos
+    @GetMapping("/archivo")
+    public ResponseEntity<?> getArchivo(
+            @RequestParam(required = false) Long clienteId,
+            @RequestParam(required = false) Long duenoId,
+            @RequestParam(required = false) EstadoTurno estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + LIMITE_DEFAULT) int limite) {
+
+        TurnoCursor despuesDe;
+        try {
+            despuesDe = cursor != null ? TurnoCursor.decodificar(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        List<TurnoArchivado> turnos = turnoArchivadoRepository.buscar(
+                new TurnoFiltro(clienteId, duenoId, estado, desde, hasta), despuesDe, tamanio + 1);
+
+        if (turnos.size() <= tamanio) {
+            return ResponseEntity.ok(turnos.stream().map(TurnoResponse::de).toList());
+        }
+        List<TurnoArchivado> pagina = turnos.subList(0, tamanio);
+        TurnoArchivado ultimo = pagina.get(tamanio - 1);
+        return ResponseEntity.ok()
+                .header(HEADER_CURSOR, new TurnoCursor(ultimo.getFechaHora(), ultimo.getId()).codificar())
+                .body(pagina.stream().map(TurnoResponse::de).toList());
+    }
+
+    // GET - Cambios de turnos en vivo (SSE): CREADO / ACTUALIZADO / ELIMINADO con el turno ya armado.
+    // El cliente solo recibe los suyos; dueño y admin, todos. Al reconectar conviene volver a pedir el listado
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> stream(@AuthenticationPrincipal UsuarioPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(turnoStream.suscribir(principal.getId(), principal.getRole() != Role.CLIENTE));
+        } catch (TurnoStream.StreamLlenoException e) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, e);
+        }
+    }
+
+    // GET - Resumen para el panel del dueño (contadores precalculados + proximos turnos).
+    // Un dueño ve siempre el suyo (el duenoId que mande se ignora); el admin tiene que decir de quien
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats(@RequestParam(required = false) Long duenoId,
+                                      @AuthenticationPrincipal UsuarioPrincipal principal) {
+        if (principal == null || principal.getRole() == Role.CLIENTE) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Long id = principal.getRole() == Role.ADMIN ? duenoId : principal.getId();
+        if (id == null) {
+            return error(HttpStatus.BAD_REQUEST, new IllegalArgumentException("Falta duenoId"));
+        }
+        return ResponseEntity.ok(estadisticas.estadisticas(id));
     }
 
-    // GET - Turno por ID
+    // GET - Turno por ID, con su version como ETag (es lo que va en el If-Match del PATCH/DELETE)
     @GetMapping("/{id}")
-    public ResponseEntity<Turno> getTurnoById(@PathVariable Long id) {
-        Optional<Turno> turno = turnoRepository.findById(id);
-        return turno.map(ResponseEntity::ok)
+    public ResponseEntity<?> getTurnoById(@PathVariable Long id, WebRequest webRequest) {
+        return turnoRepository.findConClienteYDuenoById(id)
+                .<ResponseEntity<?>>map(turno -> {
+                    String etag = Condicional.etag(turno.getVersion());
+                    if (Condicional.noModificado(webRequest, etag)) {
+                        return Condicional.respuesta304(etag);
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(TurnoResponse.de(turno));
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // POST - Turno
+    // GET - Huecos libres en la agenda de un dueño
+    @GetMapping("/disponibilidad")
+    public ResponseEntity<?> getDisponibilidad(
+            @RequestParam Long duenoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime hasta) {
+        try {
+            return ResponseEntity.ok(turnoService.franjasLibres(duenoId, desde, hasta));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    // POST - Turno. Con Idempotency-Key un reintento devuelve la respuesta del primero en vez de crear otro
     @PostMapping
-    public Turno createTurno(@RequestBody Turno turno) {
-        return turnoRepository.save(turno);
+    public ResponseEntity<?> createTurno(@RequestBody TurnoRequest turno,
+                                         @RequestHeader(value = Idempotencia.HEADER, required = false) String clave,
+                                         Principal principal) {
+        return idempotencia.ejecutar(principal.getName(), clave, "POST /turnos", turno, () -> {
+            try {
+                return ResponseEntity.ok(turnoService.crear(turno));
+            } catch (TurnoSolapadoException e) {
+                return error(HttpStatus.CONFLICT, e);
+            } catch (IllegalArgumentException e) {
+                return error(HttpStatus.BAD_REQUEST, e);
+            }
+        });
     }
 
-    // PATCH - Turno
+    // POST - Lote de altas/cambios/bajas en una sola transaccion, con un resultado por item (mismo orden).
+    // Acepta Idempotency-Key igual que POST /turnos
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchTurnos(@RequestBody List<OperacionTurno> operaciones,
+                                         @RequestHeader(value = Idempotencia.HEADER, required = false) String clave,
+                                         Principal principal) {
+        return idempotencia.ejecutar(principal.getName(), clave, "POST /turnos/batch", operaciones, () -> {
+            try {
+                return ResponseEntity.ok(turnoLoteService.aplicar(operaciones));
+            } catch (IllegalArgumentException e) {
+                return error(HttpStatus.BAD_REQUEST, e);
+            }
+        });
+    }
+
+    // PATCH - Turno. Con If-Match (el ETag del GET) solo se aplica si nadie lo cambio mientras tanto:
+    // 412 si ya estaba cambiado al leerlo, 409 si lo cambiaron en paralelo
     @PatchMapping("/{id}")
-    public ResponseEntity<Turno> updateTurno(@PathVariable Long id, @RequestBody Turno turnoDetails) {
-        return turnoRepository.findById(id)
-                .map(turno -> {
-                    if (turnoDetails.getFechaHora() != null) turno.setFechaHora(turnoDetails.getFechaHora());
-                    if (turnoDetails.getEstado() != null) turno.setEstado(turnoDetails.getEstado());
-                    if (turnoDetails.getDescripcion() != null) turno.setDescripcion(turnoDetails.getDescripcion());
-                    if (turnoDetails.getCliente() != null) turno.setCliente(turnoDetails.getCliente());
-                    if (turnoDetails.getDueno() != null) turno.setDueno(turnoDetails.getDueno());
-
-                    Turno updated = turnoRepository.save(turno);
-                    return ResponseEntity.ok(updated);
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateTurno(@PathVariable Long id, @RequestBody TurnoRequest turnoDetails,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return turnoService.actualizar(id, turnoDetails, Condicional.versionIfMatch(ifMatch))
+                    .<ResponseEntity<?>>map(turno -> ResponseEntity.ok().eTag(Condicional.etag(turno.version())).body(turno))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (VersionDistintaException e) {
+            return error(HttpStatus.PRECONDITION_FAILED, e);
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, new VersionDistintaException());
+        } catch (TurnoSolapadoException e) {
+            return error(HttpStatus.CONFLICT, e);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
     }
 
-    // DELETE - Turno
+    // DELETE - Turno, con If-Match opcional igual que el PATCH
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTurno(@PathVariable Long id) {
-        return turnoRepository.findById(id)
-                .map(turno -> {
-                    turnoRepository.delete(turno);
-                    return ResponseEntity.noContent().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> deleteTurno(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return turnoService.eliminar(id, Condicional.versionIfMatch(ifMatch))
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (VersionDistintaException e) {
+            return error(HttpStatus.PRECONDITION_FAILED, e);
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, new VersionDistintaException());
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    // El front lee errorData.message
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, RuntimeException e) {
+        return ResponseEntity.status(status).body(Map.of("message", e.getMessage()));
     }
-}
\ No newline at end of file
+}
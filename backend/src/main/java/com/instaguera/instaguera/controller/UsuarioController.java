@@ -1,62 +1,193 @@
 package com.instaguera.instaguera.controller;
 
+import com.instaguera.instaguera.dto.ClienteCursor;
+import com.instaguera.instaguera.dto.UsuarioCursor;
+import com.instaguera.instaguera.dto.UsuarioResumen;
 import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.SelloColeccion;
 import com.instaguera.instaguera.model.Usuario;
 import com.instaguera.instaguera.repository.UsuarioRepository;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.BajaUsuarios;
+import com.instaguera.instaguera.service.BuscadorClientes;
+import com.instaguera.instaguera.service.ExportService;
+import com.instaguera.instaguera.service.SellosColeccion;
+import com.instaguera.instaguera.service.UsuarioService;
+import com.instaguera.instaguera.service.VersionDistintaException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/usuarios")
 public class UsuarioController {
 
+    private static final int LIMITE_DEFAULT = 100;
+    private static final int LIMITE_MAXIMO = 500;
+    private static final int LIMITE_BUSQUEDA_DEFAULT = 20;
+    private static final int LIMITE_BUSQUEDA_MAXIMO = 100;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
-    // GET - TODOS los usuarios - sin uso
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private SellosColeccion sellos;
+
+    @Autowired
+    private BuscadorClientes buscadorClientes;
+
+    @Autowired
+    private BajaUsuarios bajaUsuarios;
+
+    // GET - Usuarios paginados por cursor sobre id, opcionalmente de un rol.
+    // Van como UsuarioResumen (sin password ni turnos) y la siguiente pagina en el header X-Next-Cursor
     @GetMapping
-    public List<Usuario> getAllUsuarios() {
-        return usuarioRepository.findAll();
+    public ResponseEntity<?> getAllUsuarios(@RequestParam(required = false) Role role,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "" + LIMITE_DEFAULT) int limite,
+                                            WebRequest webRequest) {
+        return listar(role, cursor, limite, webRequest);
     }
 
-    // GET Clientes
+    // GET Clientes - igual que /usuarios?role=CLIENTE; 304 si no cambio ningun usuario desde el ETag que manda el front
     @GetMapping("/clientes")
-    public List<Usuario> getClientes() {
-        return usuarioRepository.findByRole(Role.CLIENTE);
+    public ResponseEntity<?> getClientes(@RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "" + LIMITE_DEFAULT) int limite,
+                                         WebRequest webRequest) {
+        return listar(Role.CLIENTE, cursor, limite, webRequest);
+    }
+
+    private ResponseEntity<?> listar(Role role, String cursor, int limite, WebRequest webRequest) {
+        String etag = sellos.etag(SelloColeccion.USUARIOS, webRequest.getParameterMap());
+        if (Condicional.noModificado(webRequest, etag)) {
+            return Condicional.respuesta304(etag);
+        }
+
+        UsuarioCursor despuesDe;
+        try {
+            despuesDe = cursor != null ? UsuarioCursor.decodificar(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        // Uno de mas para saber si queda otra pagina sin hacer un COUNT
+        List<UsuarioResumen> usuarios = usuarioRepository.buscarResumenes(role, despuesDe, tamanio + 1);
+        if (usuarios.size() <= tamanio) {
+            return ResponseEntity.ok().eTag(etag).cacheControl(Condicional.LISTADOS).body(usuarios);
+        }
+        List<UsuarioResumen> pagina = usuarios.subList(0, tamanio);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(Condicional.LISTADOS)
+                .header(TurnoController.HEADER_CURSOR, UsuarioCursor.de(pagina.get(tamanio - 1)).codificar())
+                .body(pagina);
+    }
+
+    // GET - Typeahead de clientes por prefijo de nombre, apellido, email, username o celular
+    // (desde BuscadorClientes.TERMINO_MINIMO letras; sin q, todos por apellido).
+    // Si hay mas resultados, el cursor de la pagina siguiente viene en el header X-Next-Cursor
+    @GetMapping("/clientes/search")
+    public ResponseEntity<?> buscarClientes(@RequestParam(defaultValue = "") String q,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "" + LIMITE_BUSQUEDA_DEFAULT) int limite) {
+        ClienteCursor despuesDe;
+        try {
+            despuesDe = cursor != null ? ClienteCursor.decodificar(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_BUSQUEDA_MAXIMO));
+
+        // Uno de mas para saber si hay otra pagina
+        List<UsuarioResumen> encontrados = buscadorClientes.buscar(q, despuesDe, tamanio + 1);
+        if (encontrados.size() <= tamanio) {
+            return ResponseEntity.ok(encontrados);
+        }
+        List<UsuarioResumen> pagina = encontrados.subList(0, tamanio);
+        return ResponseEntity.ok()
+                .header(TurnoController.HEADER_CURSOR, BuscadorClientes.cursor(pagina.get(tamanio - 1)).codificar())
+                .body(pagina);
+    }
+
+    // GET - Export completo en CSV o NDJSON; ?role=CLIENTE da lo mismo que /usuarios/clientes
+    @GetMapping("/export")
+    public void exportUsuarios(@RequestParam(required = false) Role role,
+                               @RequestParam(defaultValue = "csv") String formato,
+                               @AuthenticationPrincipal UsuarioPrincipal principal,
+                               HttpServletResponse response) throws IOException {
+        ExportService.Formato elegido = Descargas.preparar(principal, formato, "usuarios", response);
+        if (elegido != null) {
+            exportService.exportarUsuarios(role, elegido, response.getOutputStream());
+        }
     }
 
     // POST - Nuevo usuario
     @PostMapping
     public Usuario createUsuario(@RequestBody Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        return usuarioService.crear(usuario);
     }
 
-    // PATCH - Usuario
+    // PATCH - Usuario. If-Match opcional con la version, igual que en turnos (412 / 409)
     @PatchMapping("/{id}")
-    public ResponseEntity<Usuario> updateUsuario(@PathVariable Long id, @RequestBody Usuario cambios) {
-        return usuarioRepository.findById(id)
-                .map(usuario -> {
-                    if (cambios.getNombre() != null) usuario.setNombre(cambios.getNombre());
-                    if (cambios.getApellido() != null) usuario.setApellido(cambios.getApellido());
-                    if (cambios.getCelular() != null) usuario.setCelular(cambios.getCelular());
-                    if (cambios.getUsername() != null) usuario.setUsername(cambios.getUsername());
-                    if (cambios.getEmail() != null) usuario.setEmail(cambios.getEmail());
-
-                    usuarioRepository.save(usuario);
-                    return ResponseEntity.ok(usuario);
-                })
-                .orElse(ResponseEntity.notFound().build());
-    }
-
-    // DELETE - Usuario
+    public ResponseEntity<?> updateUsuario(@PathVariable Long id, @RequestBody Usuario cambios,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return usuarioService.actualizar(id, cambios, Condicional.versionIfMatch(ifMatch))
+                    .<ResponseEntity<?>>map(usuario -> ResponseEntity.ok().eTag(Condicional.etag(usuario.getVersion())).body(usuario))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (VersionDistintaException e) {
+            return error(HttpStatus.PRECONDITION_FAILED, e);
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, new VersionDistintaException());
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    // DELETE - Usuario. Sus turnos se borran en cascada en la base, en el mismo DELETE.
+    // Con ?async=true (usuarios con mucha historia) se borra por lotes en segundo plano y responde 202
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteUsuario(@PathVariable Long id) {
-        if (!usuarioRepository.existsById(id)) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> deleteUsuario(@PathVariable Long id,
+                                           @RequestParam(defaultValue = "false") boolean async,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Long version = Condicional.versionIfMatch(ifMatch);
+            if (async) {
+                return bajaUsuarios.programar(id, version)
+                        ? ResponseEntity.accepted().body(Map.of("message", "Baja del usuario en curso"))
+                        : ResponseEntity.notFound().build();
+            }
+            return usuarioService.eliminar(id, version)
+                    ? ResponseEntity.ok("Usuario eliminado")
+                    : ResponseEntity.notFound().build();
+        } catch (VersionDistintaException e) {
+            return error(HttpStatus.PRECONDITION_FAILED, e);
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, new VersionDistintaException());
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e);
         }
-        usuarioRepository.deleteById(id);
-        return ResponseEntity.ok("Usuario eliminado");
     }
-}
\ No newline at end of file
+
+    // El front lee errorData.message
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, RuntimeException e) {
+        return ResponseEntity.status(status).body(Map.of("message", e.getMessage()));
+    }
+}
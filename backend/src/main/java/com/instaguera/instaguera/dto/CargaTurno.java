@@ -0,0 +1,7 @@
+package com.instaguera.instaguera.dto;
+
+import java.time.OffsetDateTime;
+
+// Lo minimo de un turno para armar la carga por dia de un dueño
+public record CargaTurno(Long duenoId, OffsetDateTime fechaHora, Integer duracionMinutos) {
+}
@@ -0,0 +1,24 @@
+package com.instaguera.instaguera.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Posicion del ultimo cliente devuelto por el typeahead en su orden (apellido y nombre normalizados, id),
+// string opaco como UsuarioCursor
+public record ClienteCursor(String orden, Long id) {
+
+    public String codificar() {
+        String crudo = id + ":" + orden;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(crudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ClienteCursor decodificar(String valor) {
+        try {
+            String crudo = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            int separador = crudo.indexOf(':');
+            return new ClienteCursor(crudo.substring(separador + 1), Long.parseLong(crudo.substring(0, separador)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+
+// Fila del GROUP BY dueño, estado
+public record ConteoEstado(Long duenoId, EstadoTurno estado, long cantidad) {
+}
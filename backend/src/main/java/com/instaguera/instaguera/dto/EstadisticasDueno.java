@@ -0,0 +1,21 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Respuesta de /turnos/stats: totales por estado, carga de los proximos dias y semanas
+// (sin contar cancelados) y los proximos turnos de la agenda
+public record EstadisticasDueno(
+        Long duenoId,
+        Map<EstadoTurno, Long> porEstado,
+        List<Carga> dias,
+        List<Carga> semanas,
+        List<TurnoResponse> proximos
+) {
+
+    // desde es el dia, o el lunes de la semana
+    public record Carga(LocalDate desde, long turnos, long minutos) {}
+}
@@ -0,0 +1,7 @@
+package com.instaguera.instaguera.dto;
+
+import java.time.OffsetDateTime;
+
+// Hueco libre en la agenda de un dueño, [inicio, fin)
+public record FranjaLibre(OffsetDateTime inicio, OffsetDateTime fin) {
+}
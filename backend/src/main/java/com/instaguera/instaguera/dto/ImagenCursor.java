@@ -0,0 +1,21 @@
+package com.instaguera.instaguera.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Id de la ultima imagen devuelta (la galeria va de la mas nueva a la mas vieja), string opaco como UsuarioCursor
+public record ImagenCursor(Long id) {
+
+    public String codificar() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ImagenCursor decodificar(String valor) {
+        try {
+            String crudo = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            return new ImagenCursor(Long.parseLong(crudo));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
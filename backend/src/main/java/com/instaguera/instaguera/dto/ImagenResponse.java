@@ -0,0 +1,30 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.Imagen;
+import com.instaguera.instaguera.service.AlmacenMedia;
+
+// Una foto de la galeria con las URLs (relativas a la API) de cada tamaño.
+// Mientras no estan las variantes, miniatura y mediana apuntan al original
+public record ImagenResponse(
+        String hash,
+        int ancho,
+        int alto,
+        String original,
+        String mediana,
+        String miniatura
+) {
+
+    public static ImagenResponse de(Imagen imagen) {
+        String original = url(AlmacenMedia.nombre(imagen.getHash(), null, imagen.getExtension()));
+        if (!imagen.isVariantesListas()) {
+            return new ImagenResponse(imagen.getHash(), imagen.getAncho(), imagen.getAlto(), original, original, original);
+        }
+        return new ImagenResponse(imagen.getHash(), imagen.getAncho(), imagen.getAlto(), original,
+                url(AlmacenMedia.nombre(imagen.getHash(), AlmacenMedia.Variante.MEDIANA, "jpg")),
+                url(AlmacenMedia.nombre(imagen.getHash(), AlmacenMedia.Variante.MINIATURA, "jpg")));
+    }
+
+    private static String url(String nombre) {
+        return "/media/" + nombre;
+    }
+}
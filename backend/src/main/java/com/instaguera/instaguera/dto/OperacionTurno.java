@@ -0,0 +1,16 @@
+package com.instaguera.instaguera.dto;
+
+// Un item de POST /turnos/batch. CREAR usa turno; ACTUALIZAR usa id + turno (solo los campos que cambian); ELIMINAR usa id.
+// version es opcional en ACTUALIZAR/ELIMINAR y hace lo mismo que el If-Match de los endpoints individuales
+public record OperacionTurno(Tipo tipo, Long id, TurnoRequest turno, Long version) {
+
+    public OperacionTurno(Tipo tipo, Long id, TurnoRequest turno) {
+        this(tipo, id, turno, null);
+    }
+
+    public enum Tipo {
+        CREAR,
+        ACTUALIZAR,
+        ELIMINAR
+    }
+}
@@ -0,0 +1,17 @@
+package com.instaguera.instaguera.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Resultado de cada item de POST /turnos/batch, en el mismo orden en que vinieron.
+// status es el que hubiera devuelto el endpoint individual (201, 200, 204, 400, 404, 409, 412)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResultadoOperacion(int indice, int status, TurnoResponse turno, String message) {
+
+    public static ResultadoOperacion ok(int indice, int status, TurnoResponse turno) {
+        return new ResultadoOperacion(indice, status, turno, null);
+    }
+
+    public static ResultadoOperacion error(int indice, int status, String message) {
+        return new ResultadoOperacion(indice, status, null, message);
+    }
+}
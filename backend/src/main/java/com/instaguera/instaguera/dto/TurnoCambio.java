@@ -0,0 +1,7 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.service.TurnoEvent;
+
+// Delta que viaja por /turnos/stream. En ELIMINADO solo viene el id (turno es null)
+public record TurnoCambio(TurnoEvent.Tipo tipo, Long id, TurnoResponse turno) {
+}
@@ -0,0 +1,33 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.Turno;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+// Posicion de la ultima fila devuelta (fechaHora, id), viaja al front como string opaco
+public record TurnoCursor(OffsetDateTime fechaHora, Long id) {
+
+    public static TurnoCursor de(Turno turno) {
+        return new TurnoCursor(turno.getFechaHora(), turno.getId());
+    }
+
+    public String codificar() {
+        String crudo = fechaHora.toInstant() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(crudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TurnoCursor decodificar(String valor) {
+        try {
+            String crudo = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            int separador = crudo.indexOf('|');
+            OffsetDateTime fechaHora = Instant.parse(crudo.substring(0, separador)).atOffset(ZoneOffset.UTC);
+            return new TurnoCursor(fechaHora, Long.parseLong(crudo.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
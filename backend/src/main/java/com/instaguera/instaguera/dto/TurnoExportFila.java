@@ -0,0 +1,22 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+
+import java.time.OffsetDateTime;
+
+// Fila plana del export de turnos (proyeccion por constructor: no son entidades, no se acumulan en el contexto de JPA)
+public record TurnoExportFila(
+        Long id,
+        OffsetDateTime fechaHora,
+        Integer duracionMinutos,
+        EstadoTurno estado,
+        String descripcion,
+        Long clienteId,
+        String clienteNombre,
+        String clienteApellido,
+        String clienteEmail,
+        Long duenoId,
+        String duenoNombre,
+        String duenoApellido
+) {
+}
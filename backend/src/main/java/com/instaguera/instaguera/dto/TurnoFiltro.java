@@ -0,0 +1,15 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+
+import java.time.OffsetDateTime;
+
+// Filtros opcionales del listado de turnos, null = sin filtrar por ese campo
+public record TurnoFiltro(
+        Long clienteId,
+        Long duenoId,
+        EstadoTurno estado,
+        OffsetDateTime desde,
+        OffsetDateTime hasta
+) {
+}
@@ -0,0 +1,27 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+
+import java.time.OffsetDateTime;
+
+// Body de POST/PATCH de turnos. En el PATCH, lo que venga null no se toca.
+// cliente y dueno llegan como { "id": ... }, igual que los manda el front
+public record TurnoRequest(
+        OffsetDateTime fechaHora,
+        Integer duracionMinutos,
+        EstadoTurno estado,
+        String descripcion,
+        Ref cliente,
+        Ref dueno
+) {
+
+    public record Ref(Long id) {}
+
+    public Long clienteId() {
+        return cliente != null ? cliente.id() : null;
+    }
+
+    public Long duenoId() {
+        return dueno != null ? dueno.id() : null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.TurnoArchivado;
+
+import java.time.OffsetDateTime;
+
+// Lo que devuelve la API de un turno: campos propios + resumen de cliente y dueño
+public record TurnoResponse(
+        Long id,
+        OffsetDateTime fechaHora,
+        Integer duracionMinutos,
+        EstadoTurno estado,
+        String descripcion,
+        UsuarioResumen cliente,
+        UsuarioResumen dueno,
+        // Para mandar en If-Match al editar
+        Long version
+) {
+
+    public OffsetDateTime fin() {
+        return fechaHora.plusMinutes(duracionMinutos);
+    }
+
+    // Ojo: cliente y dueno tienen que venir inicializados (fetch join), si no dispara un SELECT por cada uno
+    public static TurnoResponse de(Turno turno) {
+        return new TurnoResponse(
+                turno.getId(),
+                turno.getFechaHora(),
+                turno.getDuracionMinutos(),
+                turno.getEstado(),
+                turno.getDescripcion(),
+                UsuarioResumen.de(turno.getCliente()),
+                UsuarioResumen.de(turno.getDueno()),
+                turno.getVersion()
+        );
+    }
+
+    public static TurnoResponse de(TurnoArchivado turno) {
+        return new TurnoResponse(
+                turno.getId(),
+                turno.getFechaHora(),
+                turno.getDuracionMinutos(),
+                turno.getEstado(),
+                turno.getDescripcion(),
+                UsuarioResumen.de(turno.getCliente()),
+                UsuarioResumen.de(turno.getDueno()),
+                turno.getVersion()
+        );
+    }
+}
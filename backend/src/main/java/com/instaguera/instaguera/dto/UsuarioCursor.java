@@ -0,0 +1,25 @@
+package com.instaguera.instaguera.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Id del ultimo usuario devuelto, viaja al front como string opaco (igual que TurnoCursor)
+public record UsuarioCursor(Long id) {
+
+    public static UsuarioCursor de(UsuarioResumen usuario) {
+        return new UsuarioCursor(usuario.id());
+    }
+
+    public String codificar() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UsuarioCursor decodificar(String valor) {
+        try {
+            String crudo = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            return new UsuarioCursor(Long.parseLong(crudo));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
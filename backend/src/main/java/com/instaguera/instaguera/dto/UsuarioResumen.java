@@ -0,0 +1,28 @@
+package com.instaguera.instaguera.dto;
+
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+
+// Vista plana de un usuario, sin password ni colecciones de turnos
+public record UsuarioResumen(
+        Long id,
+        String nombre,
+        String apellido,
+        String celular,
+        String username,
+        String email,
+        Role role
+) {
+
+    public static UsuarioResumen de(Usuario usuario) {
+        return new UsuarioResumen(
+                usuario.getId(),
+                usuario.getNombre(),
+                usuario.getApellido(),
+                usuario.getCelular(),
+                usuario.getUsername(),
+                usuario.getEmail(),
+                usuario.getRole()
+        );
+    }
+}
@@ -0,0 +1,63 @@
+package com.instaguera.instaguera.model;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+// Foto de la galeria. El archivo no esta aca: vive en disco con el hash como nombre (ver AlmacenMedia)
+@Entity
+@Table(name = "imagen")
+public class Imagen {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "imagen_seq")
+    @SequenceGenerator(name = "imagen_seq", sequenceName = "imagen_seq", allocationSize = 50)
+    private Long id;
+
+    // SHA-256 del archivo original, en hexa
+    @Column(nullable = false, unique = true, length = 64)
+    private String hash;
+
+    // jpg o png, la del original; las variantes son siempre jpg
+    @Column(nullable = false, length = 8)
+    private String extension;
+
+    @Column(nullable = false)
+    private int ancho;
+
+    @Column(nullable = false)
+    private int alto;
+
+    @Column(nullable = false)
+    private long bytes;
+
+    @Column(nullable = false)
+    private boolean variantesListas;
+
+    private Long subidaPor;
+
+    @Column(nullable = false)
+    private OffsetDateTime creadaEn;
+
+    public Imagen() {}
+
+    public Imagen(String hash, String extension, int ancho, int alto, long bytes, Long subidaPor, OffsetDateTime creadaEn) {
+        this.hash = hash;
+        this.extension = extension;
+        this.ancho = ancho;
+        this.alto = alto;
+        this.bytes = bytes;
+        this.subidaPor = subidaPor;
+        this.creadaEn = creadaEn;
+    }
+
+    public Long getId() { return id; }
+    public String getHash() { return hash; }
+    public String getExtension() { return extension; }
+    public int getAncho() { return ancho; }
+    public int getAlto() { return alto; }
+    public long getBytes() { return bytes; }
+    public boolean isVariantesListas() { return variantesListas; }
+    public Long getSubidaPor() { return subidaPor; }
+    public OffsetDateTime getCreadaEn() { return creadaEn; }
+}
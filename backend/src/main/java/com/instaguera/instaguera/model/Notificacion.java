@@ -0,0 +1,105 @@
+package com.instaguera.instaguera.model;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+// Fila del outbox de notificaciones (tabla notificacion). El mensaje y el celular se arman al escribirla,
+// asi el despacho no tiene que volver a leer turno ni usuario
+@Entity
+@Table(name = "notificacion")
+public class Notificacion {
+
+    public enum Tipo {
+        RECORDATORIO,
+        CAMBIO_ESTADO
+    }
+
+    public enum Estado {
+        PENDIENTE,
+        ENVIADA,
+        // Agoto los reintentos; queda para revisarla a mano
+        FALLIDA
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notificacion_seq")
+    @SequenceGenerator(name = "notificacion_seq", sequenceName = "notificacion_seq", allocationSize = 50)
+    private Long id;
+
+    // Ids sueltos y no relaciones: escribir y despachar no carga ni turnos ni usuarios
+    @Column(nullable = false)
+    private Long turnoId;
+
+    @Column(nullable = false)
+    private Long destinatarioId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Tipo tipo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Estado estado = Estado.PENDIENTE;
+
+    private String celular;
+
+    @Column(nullable = false, length = 1000)
+    private String mensaje;
+
+    @Column(nullable = false)
+    private OffsetDateTime enviarEn;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(length = 1000)
+    private String ultimoError;
+
+    private OffsetDateTime enviadaEn;
+
+    public Notificacion() {}
+
+    public Notificacion(Long turnoId, Long destinatarioId, Tipo tipo, String celular, String mensaje, OffsetDateTime enviarEn) {
+        this.turnoId = turnoId;
+        this.destinatarioId = destinatarioId;
+        this.tipo = tipo;
+        this.celular = celular;
+        this.mensaje = mensaje;
+        this.enviarEn = enviarEn;
+    }
+
+    // Tomada por un despachador: hasta 'hasta' no esta vencida y nadie mas la toma
+    public void reservarHasta(OffsetDateTime hasta) {
+        enviarEn = hasta;
+    }
+
+    public void marcarEnviada(OffsetDateTime ahora) {
+        estado = Estado.ENVIADA;
+        enviadaEn = ahora;
+        ultimoError = null;
+    }
+
+    // Sin proximoIntento (null) no se reintenta mas
+    public void marcarError(String error, OffsetDateTime proximoIntento) {
+        intentos++;
+        ultimoError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (proximoIntento == null) {
+            estado = Estado.FALLIDA;
+        } else {
+            enviarEn = proximoIntento;
+        }
+    }
+
+    public Long getId() { return id; }
+    public Long getTurnoId() { return turnoId; }
+    public Long getDestinatarioId() { return destinatarioId; }
+    public Tipo getTipo() { return tipo; }
+    public Estado getEstado() { return estado; }
+    public String getCelular() { return celular; }
+    public String getMensaje() { return mensaje; }
+    public OffsetDateTime getEnviarEn() { return enviarEn; }
+    public int getIntentos() { return intentos; }
+    public String getUltimoError() { return ultimoError; }
+    public OffsetDateTime getEnviadaEn() { return enviadaEn; }
+}
@@ -0,0 +1,69 @@
+package com.instaguera.instaguera.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+// Respuesta guardada para un Idempotency-Key de un usuario (tabla idempotencia).
+// La escribe y la lee Idempotencia con consultas puntuales; status null mientras el primer pedido esta en curso
+@Entity
+@Table(name = "idempotencia")
+@IdClass(RespuestaIdempotente.Clave.class)
+public class RespuestaIdempotente {
+
+    @Id
+    private String sujeto;
+
+    @Id
+    private String clave;
+
+    // SHA-256 de la operacion + el cuerpo del pedido: la misma clave con otro pedido es un error del cliente
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    private Integer status;
+
+    @Column(length = 1_000_000)
+    private String cuerpo;
+
+    @Column(nullable = false)
+    private OffsetDateTime creadoEn;
+
+    @Column(nullable = false)
+    private OffsetDateTime expiraEn;
+
+    public RespuestaIdempotente() {}
+
+    public String getSujeto() { return sujeto; }
+    public String getClave() { return clave; }
+    public String getHuella() { return huella; }
+    public Integer getStatus() { return status; }
+    public String getCuerpo() { return cuerpo; }
+    public OffsetDateTime getCreadoEn() { return creadoEn; }
+    public OffsetDateTime getExpiraEn() { return expiraEn; }
+
+    public static class Clave implements Serializable {
+
+        private String sujeto;
+        private String clave;
+
+        public Clave() {}
+
+        public Clave(String sujeto, String clave) {
+            this.sujeto = sujeto;
+            this.clave = clave;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave otra && Objects.equals(sujeto, otra.sujeto) && Objects.equals(clave, otra.clave);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sujeto, clave);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.instaguera.instaguera.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Contador de cambios de una coleccion entera (turnos, usuarios), partido en PARTES filas. Cada alta/cambio/baja
+// incrementa una parte en su misma transaccion y la suma de todas es lo que va en el ETag de los listados
+@Entity
+@Table(name = "sello_coleccion")
+@IdClass(SelloColeccion.Clave.class)
+public class SelloColeccion {
+
+    public static final String TURNOS = "turnos";
+    public static final String USUARIOS = "usuarios";
+    public static final int PARTES = 16;
+
+    @Id
+    @Column(length = 50)
+    private String coleccion;
+
+    @Id
+    private int parte;
+
+    @Column(nullable = false)
+    private long version;
+
+    public SelloColeccion() {}
+
+    public String getColeccion() { return coleccion; }
+    public int getParte() { return parte; }
+    public long getVersion() { return version; }
+
+    public static class Clave implements Serializable {
+
+        private String coleccion;
+        private int parte;
+
+        public Clave() {}
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave otra && parte == otra.parte && Objects.equals(coleccion, otra.coleccion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(coleccion, parte);
+        }
+    }
+}
@@ -1,31 +1,51 @@
 package com.instaguera.instaguera.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "turno")
 public class Turno {
 
+    public static final int DURACION_DEFAULT = 60;
+
+    // Secuencia con pool de 50: Hibernate reserva ids sin ir a la base y puede mandar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "turno_seq")
+    @SequenceGenerator(name = "turno_seq", sequenceName = "turno_seq", allocationSize = 50)
     private Long id;
 
+    // Lock optimista; tambien sirve de ETag del recurso
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
     private OffsetDateTime fechaHora;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private EstadoTurno estado = EstadoTurno.SOLICITADO;
 
+    // Cuanto bloquea la agenda del dueño; el default es para los turnos que ya estaban cargados
+    @Column(nullable = false)
+    @ColumnDefault("60")
+    private Integer duracionMinutos = DURACION_DEFAULT;
+
     @Column(length = 500)
     private String descripcion;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cliente_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private Usuario cliente;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "dueno_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private Usuario dueno;
 
     public Turno() {}
@@ -40,8 +60,11 @@ public class Turno {
 
     // Getters y setters
     public Long getId() { return id; }
+    public Long getVersion() { return version; }
     public OffsetDateTime getFechaHora() { return fechaHora; }
     public void setFechaHora(OffsetDateTime fechaHora) { this.fechaHora = fechaHora; }
+    public Integer getDuracionMinutos() { return duracionMinutos; }
+    public void setDuracionMinutos(Integer duracionMinutos) { this.duracionMinutos = duracionMinutos; }
     public EstadoTurno getEstado() { return estado; }
     public void setEstado(EstadoTurno estado) { this.estado = estado; }
     public String getDescripcion() { return descripcion; }
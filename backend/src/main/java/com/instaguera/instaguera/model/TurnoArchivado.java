@@ -0,0 +1,54 @@
+package com.instaguera.instaguera.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.time.OffsetDateTime;
+
+// Turno movido al archivo (tabla turno_archivo). Solo lectura: lo escribe ArchivoTurnos con un INSERT ... SELECT
+@Entity
+@Table(name = "turno_archivo")
+@Immutable
+public class TurnoArchivado {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private OffsetDateTime fechaHora;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoTurno estado;
+
+    @Column(nullable = false)
+    private Integer duracionMinutos;
+
+    @Column(length = 500)
+    private String descripcion;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cliente_id", nullable = false)
+    private Usuario cliente;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dueno_id", nullable = false)
+    private Usuario dueno;
+
+    @Column(nullable = false)
+    private OffsetDateTime archivadoEn;
+
+    protected TurnoArchivado() {}
+
+    public Long getId() { return id; }
+    public Long getVersion() { return version; }
+    public OffsetDateTime getFechaHora() { return fechaHora; }
+    public EstadoTurno getEstado() { return estado; }
+    public Integer getDuracionMinutos() { return duracionMinutos; }
+    public String getDescripcion() { return descripcion; }
+    public Usuario getCliente() { return cliente; }
+    public Usuario getDueno() { return dueno; }
+    public OffsetDateTime getArchivadoEn() { return archivadoEn; }
+}
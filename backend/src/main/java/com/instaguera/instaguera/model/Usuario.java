@@ -10,10 +10,17 @@ import java.util.List;
 @Table(name = "usuario")
 public class Usuario {
 
+    // Secuencia con pool de 50: Hibernate reserva ids sin ir a la base y puede mandar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_seq")
+    @SequenceGenerator(name = "usuario_seq", sequenceName = "usuario_seq", allocationSize = 50)
     private Long id;
 
+    // Lock optimista; tambien sirve de ETag del recurso
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     private String nombre;
     private String apellido;
     private String celular;
@@ -31,12 +38,13 @@ public class Usuario {
     @Column(unique = true, nullable = false)
     private String email;
 
-    // Relación con turnos donde actúa como cliente
-    @OneToMany(mappedBy = "cliente", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Relación con turnos donde actúa como cliente.
+    // Sin cascade de JPA: al borrar el usuario sus turnos se van por el ON DELETE CASCADE de la base (V7)
+    @OneToMany(mappedBy = "cliente")
     private List<Turno> turnosComoCliente = new ArrayList<>();
 
     // Relación con turnos donde actúa como dueño
-    @OneToMany(mappedBy = "dueno", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "dueno")
     private List<Turno> turnosComoDueno = new ArrayList<>();
 
     public Usuario() {}
@@ -53,6 +61,7 @@ public class Usuario {
 
     // Getters y setters
     public Long getId() { return id; }
+    public Long getVersion() { return version; }
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
     public String getApellido() { return apellido; }
@@ -0,0 +1,67 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.dto.TurnoExportFila;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+// Consultas de los exports: proyecciones planas leidas con un cursor de JDBC (fetch size), sin cargar todo en memoria.
+// Los Stream hay que consumirlos y cerrarlos dentro de una transaccion (en Postgres el cursor solo existe sin autocommit)
+@Repository
+public class ExportRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Mismos filtros que GET /turnos, en orden (fechaHora, id)
+    public Stream<TurnoExportFila> turnos(TurnoFiltro filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TurnoExportFila> query = cb.createQuery(TurnoExportFila.class);
+        Root<Turno> turno = query.from(Turno.class);
+        Join<Turno, Usuario> cliente = turno.join("cliente");
+        Join<Turno, Usuario> dueno = turno.join("dueno");
+
+        query.select(cb.construct(TurnoExportFila.class,
+                        turno.get("id"), turno.get("fechaHora"), turno.get("duracionMinutos"), turno.get("estado"),
+                        turno.get("descripcion"),
+                        cliente.get("id"), cliente.get("nombre"), cliente.get("apellido"), cliente.get("email"),
+                        dueno.get("id"), dueno.get("nombre"), dueno.get("apellido")))
+                .where(TurnoSpecifications.<Turno>filtro(filtro).toPredicate(turno, query, cb))
+                .orderBy(cb.asc(turno.get("fechaHora")), cb.asc(turno.get("id")));
+
+        return cursor(entityManager.createQuery(query));
+    }
+
+    // role null = todos, en orden de id
+    public Stream<UsuarioResumen> usuarios(Role role) {
+        String where = role != null ? " where u.role = :role" : "";
+        TypedQuery<UsuarioResumen> query = entityManager.createQuery("""
+                select new com.instaguera.instaguera.dto.UsuarioResumen(
+                    u.id, u.nombre, u.apellido, u.celular, u.username, u.email, u.role)
+                from Usuario u""" + where + " order by u.id", UsuarioResumen.class);
+        if (role != null) query.setParameter("role", role);
+        return cursor(query);
+    }
+
+    private static <T> Stream<T> cursor(TypedQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
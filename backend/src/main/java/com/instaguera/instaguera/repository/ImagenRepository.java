@@ -0,0 +1,26 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.model.Imagen;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ImagenRepository extends JpaRepository<Imagen, Long> {
+
+    Optional<Imagen> findByHash(String hash);
+
+    // Galeria de la mas nueva a la mas vieja, por keyset sobre id (la PK), sin OFFSET
+    @Query("select i from Imagen i where i.id < :antesDe order by i.id desc")
+    List<Imagen> findPagina(long antesDe, Limit limite);
+
+    // Las que quedaron sin variantes (p. ej. la app se reinicio mientras se generaban)
+    List<Imagen> findByVariantesListasFalse();
+
+    @Modifying
+    @Query("update Imagen i set i.variantesListas = true where i.hash = :hash")
+    int marcarVariantesListas(String hash);
+}
@@ -0,0 +1,41 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.model.Notificacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface NotificacionRepository extends JpaRepository<Notificacion, Long> {
+
+    // Proximo lote a entregar, bloqueado hasta el commit (que lo reserva, ver DespachoNotificaciones).
+    // SKIP LOCKED: cada despachador (hilo o instancia) se queda con filas distintas en vez de esperar al otro.
+    // Va por el indice (estado, enviar_en, id)
+    @Query(value = """
+            select * from notificacion
+            where estado = 'PENDIENTE' and enviar_en <= :ahora
+            order by enviar_en, id
+            limit :limite
+            for update skip locked
+            """, nativeQuery = true)
+    List<Notificacion> tomarVencidas(OffsetDateTime ahora, int limite);
+
+    // Al cambiar o cancelar un turno su recordatorio viejo ya no vale
+    @Modifying
+    @Query("""
+            delete from Notificacion n
+            where n.turnoId = :turnoId and n.tipo = :tipo and n.estado = com.instaguera.instaguera.model.Notificacion.Estado.PENDIENTE
+            """)
+    int anularPendientes(Long turnoId, Notificacion.Tipo tipo);
+
+    @Modifying
+    @Query("""
+            delete from Notificacion n
+            where n.estado <> com.instaguera.instaguera.model.Notificacion.Estado.PENDIENTE and n.enviarEn < :antesDe
+            """)
+    int borrarViejas(OffsetDateTime antesDe);
+
+    long countByEstado(Notificacion.Estado estado);
+}
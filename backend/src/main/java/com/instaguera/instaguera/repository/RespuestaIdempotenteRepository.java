@@ -0,0 +1,48 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.model.RespuestaIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.OffsetDateTime;
+
+public interface RespuestaIdempotenteRepository extends JpaRepository<RespuestaIdempotente, RespuestaIdempotente.Clave> {
+
+    // 1 si la clave quedo tomada por este pedido, 0 si ya existia. Sin excepcion ni rollback cuando choca
+    @Modifying
+    @Query(value = """
+            insert into idempotencia (sujeto, clave, huella, creado_en, expira_en)
+            values (:sujeto, :clave, :huella, :ahora, :expira)
+            on conflict do nothing
+            """, nativeQuery = true)
+    int reservar(String sujeto, String clave, String huella, OffsetDateTime ahora, OffsetDateTime expira);
+
+    // guardar y liberar solo tocan la reserva hecha en reservadaEn: si otro pedido ya tomo la clave, 0
+    @Modifying
+    @Query("""
+            update RespuestaIdempotente r set r.status = :status, r.cuerpo = :cuerpo
+            where r.sujeto = :sujeto and r.clave = :clave and r.creadoEn = :reservadaEn
+            """)
+    int guardar(String sujeto, String clave, OffsetDateTime reservadaEn, int status, String cuerpo);
+
+    @Modifying
+    @Query("delete from RespuestaIdempotente r where r.sujeto = :sujeto and r.clave = :clave and r.creadoEn = :reservadaEn")
+    int liberar(String sujeto, String clave, OffsetDateTime reservadaEn);
+
+    // Reserva sin respuesta desde antes de 'limite': el pedido que la tomo no va a terminar
+    @Modifying
+    @Query("""
+            delete from RespuestaIdempotente r
+            where r.sujeto = :sujeto and r.clave = :clave and r.status is null and r.creadoEn < :limite
+            """)
+    int borrarAbandonada(String sujeto, String clave, OffsetDateTime limite);
+
+    @Modifying
+    @Query("delete from RespuestaIdempotente r where r.sujeto = :sujeto and r.clave = :clave and r.expiraEn < :ahora")
+    int borrarVencida(String sujeto, String clave, OffsetDateTime ahora);
+
+    @Modifying
+    @Query("delete from RespuestaIdempotente r where r.expiraEn < :ahora")
+    int borrarVencidas(OffsetDateTime ahora);
+}
@@ -0,0 +1,20 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.model.SelloColeccion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface SelloColeccionRepository extends JpaRepository<SelloColeccion, SelloColeccion.Clave> {
+
+    // Suma de las partes en una sola lectura, asi no se mezclan partes de antes y de despues de un commit
+    @Query("select sum(s.version) from SelloColeccion s where s.coleccion = :coleccion")
+    Optional<Long> findVersion(String coleccion);
+
+    @Modifying
+    @Query("update SelloColeccion s set s.version = s.version + 1 where s.coleccion in :colecciones and s.parte = :parte")
+    int incrementar(Collection<String> colecciones, int parte);
+}
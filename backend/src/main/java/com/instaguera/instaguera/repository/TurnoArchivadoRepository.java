@@ -0,0 +1,50 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.dto.ConteoEstado;
+import com.instaguera.instaguera.dto.TurnoCursor;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.model.TurnoArchivado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TurnoArchivadoRepository extends JpaRepository<TurnoArchivado, Long>, JpaSpecificationExecutor<TurnoArchivado> {
+
+    // Mismos filtros y cursor que TurnoRepository.buscar, sobre el archivo
+    default List<TurnoArchivado> buscar(TurnoFiltro filtro, TurnoCursor despuesDe, int limite) {
+        return findBy(
+                TurnoSpecifications.<TurnoArchivado>filtro(filtro).and(TurnoSpecifications.despuesDe(despuesDe)),
+                q -> q.sortBy(TurnoRepository.ORDEN_AGENDA).limit(limite).project("cliente", "dueno").all()
+        );
+    }
+
+    // Copia en el archivo los turnos indicados, tal cual estan en turno. SQL nativo porque son dos tablas con
+    // las mismas columnas y asi no pasa nada por memoria
+    @Modifying
+    @Query(value = """
+            insert into turno_archivo
+                (id, version, fecha_hora, estado, duracion_minutos, descripcion, cliente_id, dueno_id, archivado_en)
+            select id, version, fecha_hora, estado, duracion_minutos, descripcion, cliente_id, dueno_id, :ahora
+            from turno where id in (:ids)
+            """, nativeQuery = true)
+    int copiarDesdeTurno(Collection<Long> ids, OffsetDateTime ahora);
+
+    @Query("""
+            select new com.instaguera.instaguera.dto.ConteoEstado(t.dueno.id, t.estado, count(t))
+            from TurnoArchivado t group by t.dueno.id, t.estado
+            """)
+    List<ConteoEstado> contarPorDuenoYEstado();
+
+    // Igual que TurnoRepository.borrarLoteDeUsuario, sobre el archivo
+    @Modifying
+    @Query(value = """
+            delete from turno_archivo where id in (
+                select id from turno_archivo where cliente_id = :usuarioId or dueno_id = :usuarioId limit :limite)
+            """, nativeQuery = true)
+    int borrarLoteDeUsuario(Long usuarioId, int limite);
+}
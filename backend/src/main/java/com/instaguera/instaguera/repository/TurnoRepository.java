@@ -1,7 +1,99 @@
 package com.instaguera.instaguera.repository;
 
+import com.instaguera.instaguera.dto.CargaTurno;
+import com.instaguera.instaguera.dto.ConteoEstado;
+import com.instaguera.instaguera.dto.TurnoCursor;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.model.EstadoTurno;
 import com.instaguera.instaguera.model.Turno;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
-public interface TurnoRepository extends JpaRepository<Turno, Long> {
-}
\ No newline at end of file
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TurnoRepository extends JpaRepository<Turno, Long>, JpaSpecificationExecutor<Turno> {
+
+    Sort ORDEN_AGENDA = Sort.by("fechaHora", "id");
+
+    // Pagina de turnos filtrada en la base, ordenada por (fechaHora, id) y sin COUNT.
+    // cliente y dueno vienen en el mismo SELECT (entity graph), asi serializar no dispara N+1
+    default List<Turno> buscar(TurnoFiltro filtro, TurnoCursor despuesDe, int limite) {
+        return findBy(
+                TurnoSpecifications.<Turno>filtro(filtro).and(TurnoSpecifications.despuesDe(despuesDe)),
+                q -> q.sortBy(ORDEN_AGENDA).limit(limite).project("cliente", "dueno").all()
+        );
+    }
+
+    @EntityGraph(attributePaths = {"cliente", "dueno"})
+    Optional<Turno> findConClienteYDuenoById(Long id);
+
+    @EntityGraph(attributePaths = {"cliente", "dueno"})
+    List<Turno> findConClienteYDuenoByIdIn(Collection<Long> ids);
+
+    // Turnos que ocupan la agenda del dueño (todo menos los cancelados) que empiezan en (desde, hasta)
+    @Query("""
+            select t from Turno t
+            where t.dueno.id = :duenoId and t.estado <> :cancelado
+              and t.fechaHora > :desde and t.fechaHora < :hasta
+            """)
+    List<Turno> findOcupados(Long duenoId, OffsetDateTime desde, OffsetDateTime hasta, EstadoTurno cancelado);
+
+    @Query("""
+            select t from Turno t
+            where t.dueno.id = :duenoId and t.estado <> :cancelado and t.fechaHora > :desde
+            """)
+    List<Turno> findOcupadosDesde(Long duenoId, OffsetDateTime desde, EstadoTurno cancelado);
+
+    // Proximos turnos del dueño por el indice (dueno_id, fecha_hora, id): no depende de cuanta historia haya
+    @EntityGraph(attributePaths = {"cliente", "dueno"})
+    @Query("""
+            select t from Turno t
+            where t.dueno.id = :duenoId and t.estado <> :cancelado and t.fechaHora >= :desde
+            order by t.fechaHora, t.id
+            """)
+    List<Turno> findProximos(Long duenoId, OffsetDateTime desde, EstadoTurno cancelado, Limit limite);
+
+    @Query("""
+            select new com.instaguera.instaguera.dto.ConteoEstado(t.dueno.id, t.estado, count(t))
+            from Turno t group by t.dueno.id, t.estado
+            """)
+    List<ConteoEstado> contarPorDuenoYEstado();
+
+    @Query("""
+            select new com.instaguera.instaguera.dto.CargaTurno(t.dueno.id, t.fechaHora, t.duracionMinutos)
+            from Turno t
+            where t.estado <> :cancelado and t.fechaHora >= :desde and t.fechaHora < :hasta
+            """)
+    List<CargaTurno> findCargaEntre(OffsetDateTime desde, OffsetDateTime hasta, EstadoTurno cancelado);
+
+    // Proximo lote a archivar, bloqueado hasta el commit para que nadie lo edite mientras se mueve
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select t from Turno t
+            where t.estado in :estados and t.fechaHora < :antesDe
+            order by t.fechaHora, t.id
+            """)
+    List<Turno> findParaArchivar(Collection<EstadoTurno> estados, OffsetDateTime antesDe, Limit limite);
+
+    @Modifying
+    @Query(value = "delete from turno where id in (:ids)", nativeQuery = true)
+    int borrarPorIds(Collection<Long> ids);
+
+    // Un lote de la baja por partes de un usuario (BajaUsuarios): a lo sumo 'limite' turnos por sentencia
+    @Modifying
+    @Query(value = """
+            delete from turno where id in (
+                select id from turno where cliente_id = :usuarioId or dueno_id = :usuarioId limit :limite)
+            """, nativeQuery = true)
+    int borrarLoteDeUsuario(Long usuarioId, int limite);
+}
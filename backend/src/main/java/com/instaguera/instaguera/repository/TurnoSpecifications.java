@@ -0,0 +1,43 @@
+package com.instaguera.instaguera.repository;
+
+import com.instaguera.instaguera.dto.TurnoCursor;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TurnoSpecifications {
+
+    private TurnoSpecifications() {}
+
+    // Genericos porque sirven igual para Turno y TurnoArchivado (mismos atributos)
+
+    // Solo agrega los predicados de los filtros que vinieron, asi el WHERE queda chico
+    public static <T> Specification<T> filtro(TurnoFiltro filtro) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (filtro.clienteId() != null) predicados.add(cb.equal(root.get("cliente").get("id"), filtro.clienteId()));
+            if (filtro.duenoId() != null) predicados.add(cb.equal(root.get("dueno").get("id"), filtro.duenoId()));
+            if (filtro.estado() != null) predicados.add(cb.equal(root.get("estado"), filtro.estado()));
+            if (filtro.desde() != null) predicados.add(cb.greaterThanOrEqualTo(root.get("fechaHora"), filtro.desde()));
+            if (filtro.hasta() != null) predicados.add(cb.lessThan(root.get("fechaHora"), filtro.hasta()));
+            return cb.and(predicados.toArray(Predicate[]::new));
+        };
+    }
+
+    // Keyset: (fechaHora, id) > (cursor.fechaHora, cursor.id), sin OFFSET
+    public static <T> Specification<T> despuesDe(TurnoCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) return null;
+            return cb.or(
+                    cb.greaterThan(root.get("fechaHora"), cursor.fechaHora()),
+                    cb.and(
+                            cb.equal(root.get("fechaHora"), cursor.fechaHora()),
+                            cb.greaterThan(root.get("id"), cursor.id())
+                    )
+            );
+        };
+    }
+}
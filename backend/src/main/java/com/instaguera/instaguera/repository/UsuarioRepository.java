@@ -1,8 +1,15 @@
 package com.instaguera.instaguera.repository;
 
+import com.instaguera.instaguera.dto.UsuarioCursor;
+import com.instaguera.instaguera.dto.UsuarioResumen;
 import com.instaguera.instaguera.model.Usuario;
 import com.instaguera.instaguera.model.Role;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,5 +17,42 @@ import java.util.Optional;
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Optional<Usuario> findByUsername(String username);
     Optional<Usuario> findByEmail(String email);
-    List<Usuario> findByRole(Role role);
+
+    // Solo las columnas del resumen, sin armar entidades (ni password ni colecciones)
+    @Query("""
+            select new com.instaguera.instaguera.dto.UsuarioResumen(u.id, u.nombre, u.apellido, u.celular, u.username, u.email, u.role)
+            from Usuario u where u.role = :role
+            """)
+    List<UsuarioResumen> findResumenesByRole(Role role);
+
+    // Paginas por keyset sobre id (con rol, por el indice (role, id)), sin OFFSET ni COUNT
+    default List<UsuarioResumen> buscarResumenes(Role role, UsuarioCursor despuesDe, int limite) {
+        long desdeId = despuesDe != null ? despuesDe.id() : Long.MIN_VALUE;
+        return role != null
+                ? findResumenesByRoleDespuesDe(role, desdeId, Limit.of(limite))
+                : findResumenesDespuesDe(desdeId, Limit.of(limite));
+    }
+
+    @Query("""
+            select new com.instaguera.instaguera.dto.UsuarioResumen(u.id, u.nombre, u.apellido, u.celular, u.username, u.email, u.role)
+            from Usuario u where u.id > :desdeId order by u.id
+            """)
+    List<UsuarioResumen> findResumenesDespuesDe(long desdeId, Limit limite);
+
+    @Query("""
+            select new com.instaguera.instaguera.dto.UsuarioResumen(u.id, u.nombre, u.apellido, u.celular, u.username, u.email, u.role)
+            from Usuario u where u.role = :role and u.id > :desdeId order by u.id
+            """)
+    List<UsuarioResumen> findResumenesByRoleDespuesDe(Role role, long desdeId, Limit limite);
+
+    // SELECT ... FOR UPDATE: serializa las reservas sobre la agenda de un mismo dueño
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from Usuario u where u.id = :id")
+    Optional<Usuario> findByIdParaActualizar(Long id);
+
+    // Un solo DELETE: sus turnos (activos y archivados) se van por el ON DELETE CASCADE de la base.
+    // Con la version en el WHERE, si alguien lo cambio en el medio no borra nada
+    @Modifying
+    @Query("delete from Usuario u where u.id = :id and u.version = :version")
+    int borrarPorId(Long id, Long version);
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.instaguera.instaguera.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Corre BCrypt en un pool propio y acotado. BCrypt es CPU pura: sin esto una rafaga de logins
+// (o un ataque de credential stuffing) ocupa todos los cores y frena a todos los demas endpoints.
+// Si la cola esta llena se corta enseguida con HashingSaturadoException en vez de seguir acumulando.
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Timer tiempoEncode;
+    private final Timer tiempoMatches;
+    private final Timer espera;
+    private final Counter rechazos;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int hilos, int cola, Duration timeout, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cola),
+                runnable -> {
+                    Thread hilo = new Thread(runnable, "bcrypt-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Por separado lo que cuesta el hash y lo que se espera en la cola: si sube la espera falta pool, no CPU
+        this.tiempoEncode = tiempo(registry, "encode");
+        this.tiempoMatches = tiempo(registry, "matches");
+        this.espera = Timer.builder("instaguera.bcrypt.espera")
+                .description("Tiempo en la cola del pool de BCrypt")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rechazos = Counter.builder("instaguera.bcrypt.rechazos")
+                .description("Hashes rechazados por pool saturado o timeout")
+                .register(registry);
+        Gauge.builder("instaguera.bcrypt.cola", this, BoundedPasswordEncoder::enCola).register(registry);
+        Gauge.builder("instaguera.bcrypt.activos", this, BoundedPasswordEncoder::activos).register(registry);
+    }
+
+    private static Timer tiempo(MeterRegistry registry, String operacion) {
+        return Timer.builder("instaguera.bcrypt")
+                .description("Tiempo de calcular o comparar un hash BCrypt")
+                .tag("operacion", operacion)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(tiempoEncode, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(tiempoMatches, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int enCola() {
+        return executor.getQueue().size();
+    }
+
+    public int activos() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T ejecutar(Timer tiempo, Supplier<T> tarea) {
+        long encolado = System.nanoTime();
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(() -> {
+                espera.record(System.nanoTime() - encolado, TimeUnit.NANOSECONDS);
+                return tiempo.record(tarea);
+            });
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw new HashingSaturadoException();
+        }
+        try {
+            return futuro.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            rechazos.increment();
+            throw new HashingSaturadoException();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando para calcular el hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // No hay lugar en el pool de hashing: el cliente tiene que reintentar mas tarde
+    public static class HashingSaturadoException extends RuntimeException {
+
+        public HashingSaturadoException() {
+            super("Demasiados logins en curso, probá de nuevo en unos segundos");
+        }
+    }
+}
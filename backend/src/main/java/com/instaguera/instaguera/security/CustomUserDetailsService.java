@@ -1,8 +1,6 @@
 package com.instaguera.instaguera.security;
 
-import com.instaguera.instaguera.model.Usuario;
 import com.instaguera.instaguera.repository.UsuarioRepository;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -12,20 +10,16 @@ import org.springframework.stereotype.Service;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UsuarioRepository usuarioRepository;
+    private final PrincipalCache principalCache;
 
-    public CustomUserDetailsService(UsuarioRepository usuarioRepository) {
+    public CustomUserDetailsService(UsuarioRepository usuarioRepository, PrincipalCache principalCache) {
         this.usuarioRepository = usuarioRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Usuario usuario = usuarioRepository.findByEmail(email)
+        return principalCache.get(email, key -> usuarioRepository.findByEmail(key).map(UsuarioPrincipal::de))
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
-
-        return User.builder()
-                .username(usuario.getEmail())     // el email es el identificador para login !!!
-                .password(usuario.getPassword())
-                .roles(usuario.getRole().name())
-                .build();
     }
-}
\ No newline at end of file
+}
@@ -5,47 +5,50 @@ import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
 import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
 
-    private final String SECRET_KEY = "claveSuperSecretaDeInstagueraQueDebeSerLarga123456";
+    static final String CLAIM_USER_ID = "uid";
+
+    private static final String SECRET_KEY = "claveSuperSecretaDeInstagueraQueDebeSerLarga123456";
     private final long EXPIRATION_TIME = 1000 * 60 * 60;  // 1 horita ponele
 
-    private final Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final Key key;
 
-    // Genera el token
-    public String generateToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+    // El parser es inmutable y thread-safe, se arma una sola vez
+    private final JwtParser parser;
+
+    public JwtUtil() {
+        this(Keys.hmacShaKeyFor(SECRET_KEY.getBytes()));
     }
 
-    // Extrae el username
-    public String extractUsername(String token) {
-        return Jwts.parserBuilder()
+    // Para tests y benchmarks, con una clave propia
+    JwtUtil(Key key) {
+        this.key = key;
+        this.parser = Jwts.parserBuilder()
                 .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+                .build();
     }
 
-    // Validamos token
-    public boolean validateToken(String token, String username) {
-        return username.equals(extractUsername(token)) && !isTokenExpired(token);
+    // Genera el token. El id va adentro para no aceptar el token de un usuario borrado si su email se vuelve a usar
+    public String generateToken(UsuarioPrincipal usuario) {
+        return Jwts.builder()
+                .setSubject(usuario.getUsername())
+                .claim(CLAIM_USER_ID, usuario.getId())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration()
-                .before(new Date());
+    // Valida firma y expiracion parseando una sola vez; vacio si el token no sirve
+    public Optional<Claims> parseToken(String token) {
+        try {
+            return Optional.of(parser.parseClaimsJws(token).getBody());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
-}
\ No newline at end of file
+}
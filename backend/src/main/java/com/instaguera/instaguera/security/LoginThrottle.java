@@ -0,0 +1,73 @@
+package com.instaguera.instaguera.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Token buckets por email y por IP delante del login: cada intento consume un token y se recargan de a poco.
+// Frena fuerza bruta y credential stuffing antes de gastar CPU en BCrypt
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, TokenBucket> buckets;
+    private final int capacidadEmail;
+    private final int capacidadIp;
+    private final Duration recargaEmail;
+    private final Duration recargaIp;
+
+    public LoginThrottle(@Value("${instaguera.login.throttle.email.capacidad:5}") int capacidadEmail,
+                         @Value("${instaguera.login.throttle.email.recarga:12s}") Duration recargaEmail,
+                         @Value("${instaguera.login.throttle.ip.capacidad:30}") int capacidadIp,
+                         @Value("${instaguera.login.throttle.ip.recarga:2s}") Duration recargaIp) {
+        this.capacidadEmail = capacidadEmail;
+        this.recargaEmail = recargaEmail;
+        this.capacidadIp = capacidadIp;
+        this.recargaIp = recargaIp;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    public boolean permitirLogin(String email, String ip) {
+        // Primero la IP: si la IP ya esta frenada no le gastamos tokens al email
+        return permitirIp(ip)
+                && bucket("email:" + (email == null ? "" : email.toLowerCase()), capacidadEmail, recargaEmail).consumir();
+    }
+
+    public boolean permitirIp(String ip) {
+        return bucket("ip:" + ip, capacidadIp, recargaIp).consumir();
+    }
+
+    private TokenBucket bucket(String clave, int capacidad, Duration recarga) {
+        return buckets.get(clave, k -> new TokenBucket(capacidad, recarga.toNanos()));
+    }
+
+    // Un token cada nanosPorToken, hasta capacidad
+    static final class TokenBucket {
+
+        private final int capacidad;
+        private final long nanosPorToken;
+        private double tokens;
+        private long ultimaRecarga;
+
+        TokenBucket(int capacidad, long nanosPorToken) {
+            this.capacidad = capacidad;
+            this.nanosPorToken = nanosPorToken;
+            this.tokens = capacidad;
+            this.ultimaRecarga = System.nanoTime();
+        }
+
+        synchronized boolean consumir() {
+            long ahora = System.nanoTime();
+            tokens = Math.min(capacidad, tokens + (double) (ahora - ultimaRecarga) / nanosPorToken);
+            ultimaRecarga = ahora;
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.instaguera.instaguera.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.instaguera.instaguera.service.UsuarioEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Cache acotado (tamaño + TTL) de usuarios autenticados por email,
+// para no ir a la base en cada request que pasa por el JwtFilter.
+// Aciertos, fallos y desalojos salen en /actuator/prometheus como cache_gets/cache_evictions{cache="principales"}
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, UsuarioPrincipal> cache;
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public PrincipalCache(@Value("${instaguera.auth.cache.max-size:10000}") long maxSize,
+                          @Value("${instaguera.auth.cache.ttl:10m}") Duration ttl,
+                          MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "principales");
+    }
+
+    // Si no esta cacheado lo carga; si el loader devuelve vacio no se guarda nada.
+    // No usamos cache.get(key, loader) porque corre el loader (un SELECT) dentro de un lock
+    // del ConcurrentHashMap, y con hilos virtuales eso clava el carrier thread mientras espera a la base
+    public Optional<UsuarioPrincipal> get(String email, Function<String, Optional<UsuarioPrincipal>> loader) {
+        UsuarioPrincipal cacheado = cache.getIfPresent(email);
+        if (cacheado != null) return Optional.of(cacheado);
+
+        // Si alguien invalido mientras leiamos de la base, lo leido puede estar viejo: se usa pero no se cachea
+        long generacionAntes = invalidaciones.get();
+        Optional<UsuarioPrincipal> cargado = loader.apply(email);
+        cargado.ifPresent(principal -> cache.asMap().compute(email,
+                (key, actual) -> invalidaciones.get() == generacionAntes ? principal : actual));
+        return cargado;
+    }
+
+    public void invalidate(String email) {
+        if (email != null) {
+            invalidaciones.incrementAndGet();
+            cache.invalidate(email);
+        }
+    }
+
+    // Despues del commit: si invalidaramos antes, otro request podria volver a cachear el usuario viejo.
+    // Se saca el email anterior y el nuevo por las dudas
+    @TransactionalEventListener
+    public void alCambiarUsuario(UsuarioEvent event) {
+        if (event.anterior() != null) invalidate(event.anterior().email());
+        if (event.actual() != null) invalidate(event.actual().email());
+    }
+}
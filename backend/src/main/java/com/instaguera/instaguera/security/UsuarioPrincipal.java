@@ -0,0 +1,45 @@
+package com.instaguera.instaguera.security;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Usuario autenticado. Inmutable a proposito (no es CredentialsContainer):
+// Spring no le borra el password despues del login, asi se puede cachear tal cual.
+// Lleva los datos del usuario para que el login arme la respuesta sin volver a buscarlo
+public final class UsuarioPrincipal implements UserDetails {
+
+    private final UsuarioResumen usuario;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+
+    public UsuarioPrincipal(UsuarioResumen usuario, String password) {
+        this.usuario = usuario;
+        this.password = password;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + usuario.role().name()));
+    }
+
+    public static UsuarioPrincipal de(Usuario usuario) {
+        return new UsuarioPrincipal(UsuarioResumen.de(usuario), usuario.getPassword());
+    }
+
+    public Long getId() { return usuario.id(); }
+    public Role getRole() { return usuario.role(); }
+    public UsuarioResumen getUsuario() { return usuario; }
+
+    // el email es el identificador para login !!!
+    @Override
+    public String getUsername() { return usuario.email(); }
+
+    @Override
+    public String getPassword() { return password; }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() { return authorities; }
+}
@@ -0,0 +1,122 @@
+package com.instaguera.instaguera.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Archivos de la galeria en disco, direccionados por contenido: el original se llama <sha256>.<jpg|png> y las
+// variantes <sha256>-<variante>.jpg. Van en subcarpetas por los dos primeros caracteres del hash para no juntar
+// miles de archivos en un directorio. Un nombre nunca cambia de contenido: se escribe a un temporal y se mueve,
+// y si ya existe se deja el que estaba. Por eso las descargas se pueden cachear para siempre
+@Service
+public class AlmacenMedia {
+
+    private static final Pattern NOMBRE = Pattern.compile("([0-9a-f]{64})(-(miniatura|mediana))?\\.(jpg|png)");
+
+    public enum Variante {
+        MINIATURA(400),
+        MEDIANA(1280);
+
+        // Lado mas largo, en pixeles
+        private final int lado;
+
+        Variante(int lado) {
+            this.lado = lado;
+        }
+
+        public int lado() {
+            return lado;
+        }
+
+        public String sufijo() {
+            return "-" + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Lo que quedo en el temporal despues de copiar lo subido
+    public record Temporal(Path ruta, String hash, long bytes) {}
+
+    private final Path directorio;
+    private final Path temporales;
+
+    public AlmacenMedia(@Value("${instaguera.media.directorio:media}") Path directorio) throws IOException {
+        this.directorio = directorio.toAbsolutePath();
+        this.temporales = Files.createDirectories(this.directorio.resolve("tmp"));
+    }
+
+    public static String nombre(String hash, Variante variante, String extension) {
+        return hash + (variante != null ? variante.sufijo() : "") + "." + extension;
+    }
+
+    // Copia el contenido a un temporal calculando el SHA-256 en la misma pasada
+    public Temporal recibir(InputStream contenido) throws IOException {
+        Path ruta = temporal();
+        MessageDigest sha256 = sha256();
+        long bytes;
+        try (OutputStream salida = new DigestOutputStream(Files.newOutputStream(ruta), sha256)) {
+            bytes = contenido.transferTo(salida);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(ruta);
+            throw e;
+        }
+        return new Temporal(ruta, HexFormat.of().formatHex(sha256.digest()), bytes);
+    }
+
+    // Deja el temporal con su nombre definitivo. Si ya habia uno (mismo contenido) se queda el de antes
+    public Path guardar(Path temporal, String nombre) throws IOException {
+        Path destino = ruta(nombre);
+        if (Files.exists(destino)) {
+            Files.deleteIfExists(temporal);
+            return destino;
+        }
+        Files.createDirectories(destino.getParent());
+        // Si dos subidas iguales llegan a la vez, rename pisa un archivo con otro de igual contenido: da lo mismo
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        return destino;
+    }
+
+    // Solo nombres con la forma de arriba: un nombre cualquiera (../, etc.) nunca llega al filesystem
+    public Optional<Path> buscar(String nombre) {
+        if (!NOMBRE.matcher(nombre).matches()) return Optional.empty();
+        Path ruta = ruta(nombre);
+        return Files.isRegularFile(ruta) ? Optional.of(ruta) : Optional.empty();
+    }
+
+    public boolean existe(String nombre) {
+        return buscar(nombre).isPresent();
+    }
+
+    public Path temporal() {
+        try {
+            return Files.createTempFile(temporales, "subida-", ".tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path ruta(String nombre) {
+        return directorio.resolve(nombre.substring(0, 2)).resolve(nombre);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.SelloColeccion;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.repository.TurnoArchivadoRepository;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Mueve los turnos terminados (COMPLETADO / CANCELADO) mas viejos que 'edad' de turno a turno_archivo.
+// Va por lotes, cada uno en su propia transaccion (INSERT ... SELECT + DELETE): si se corta a la mitad,
+// lo ya movido queda movido y la proxima corrida sigue con lo que falte
+@Service
+public class ArchivoTurnos {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoTurnos.class);
+    private static final Set<EstadoTurno> TERMINADOS = EnumSet.of(EstadoTurno.COMPLETADO, EstadoTurno.CANCELADO);
+    // Las estadisticas miran una semana para atras sobre turno; lo archivado tiene que quedar fuera de eso
+    private static final Duration EDAD_MINIMA = Duration.ofDays(8);
+
+    private final TurnoRepository turnoRepository;
+    private final TurnoArchivadoRepository turnoArchivadoRepository;
+    private final SellosColeccion sellos;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration edad;
+    private final int lote;
+    private final ReentrantLock corriendo = new ReentrantLock();
+
+    public ArchivoTurnos(TurnoRepository turnoRepository,
+                         TurnoArchivadoRepository turnoArchivadoRepository,
+                         SellosColeccion sellos,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${instaguera.archivo.edad:180d}") Duration edad,
+                         @Value("${instaguera.archivo.lote:500}") int lote) {
+        if (edad.compareTo(EDAD_MINIMA) < 0) {
+            throw new IllegalArgumentException("instaguera.archivo.edad tiene que ser de al menos " + EDAD_MINIMA.toDays() + " días");
+        }
+        this.turnoRepository = turnoRepository;
+        this.turnoArchivadoRepository = turnoArchivadoRepository;
+        this.sellos = sellos;
+        this.transactionTemplate = transactionTemplate;
+        this.edad = edad;
+        this.lote = lote;
+    }
+
+    @Scheduled(cron = "${instaguera.archivo.cron:0 30 3 * * *}")
+    public void archivarProgramado() {
+        archivar();
+    }
+
+    // Devuelve cuantos turnos movio. Si ya hay una corrida en curso no hace nada
+    public int archivar() {
+        if (!corriendo.tryLock()) return 0;
+        try {
+            OffsetDateTime antesDe = OffsetDateTime.now(ZoneOffset.UTC).minus(edad);
+            int total = 0;
+            int movidos;
+            do {
+                movidos = transactionTemplate.execute(status -> moverLote(antesDe));
+                total += movidos;
+            } while (movidos == lote && !Thread.currentThread().isInterrupted());
+
+            if (total > 0) log.info("Archivados {} turnos anteriores a {}", total, antesDe);
+            return total;
+        } finally {
+            corriendo.unlock();
+        }
+    }
+
+    private int moverLote(OffsetDateTime antesDe) {
+        List<Long> ids = turnoRepository.findParaArchivar(TERMINADOS, antesDe, Limit.of(lote))
+                .stream().map(Turno::getId).toList();
+        if (ids.isEmpty()) return 0;
+
+        OffsetDateTime ahora = OffsetDateTime.now(ZoneOffset.UTC);
+        turnoArchivadoRepository.copiarDesdeTurno(ids, ahora);
+        turnoRepository.borrarPorIds(ids);
+        // Los listados de turnos cambian (ya no los traen)
+        sellos.marcarCambio(SelloColeccion.TURNOS);
+        return ids.size();
+    }
+}
@@ -0,0 +1,98 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.SelloColeccion;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.TurnoArchivadoRepository;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+// Baja por partes de usuarios con mucha historia, para no tener una conexion tomada durante todo el borrado.
+// En un hilo aparte borra sus turnos (activos y archivados) por lotes, cada uno en su propia transaccion,
+// y al final el usuario con UsuarioService.eliminar (lo que se haya creado en el medio se va en cascada).
+// Si se corta a la mitad, lo borrado queda borrado y se puede volver a pedir
+@Service
+public class BajaUsuarios {
+
+    private static final Logger log = LoggerFactory.getLogger(BajaUsuarios.class);
+
+    private final UsuarioRepository usuarioRepository;
+    private final TurnoRepository turnoRepository;
+    private final TurnoArchivadoRepository turnoArchivadoRepository;
+    private final UsuarioService usuarioService;
+    private final SellosColeccion sellos;
+    private final TransactionTemplate transactionTemplate;
+    private final int lote;
+    private final Set<Long> enCurso = ConcurrentHashMap.newKeySet();
+
+    public BajaUsuarios(UsuarioRepository usuarioRepository,
+                        TurnoRepository turnoRepository,
+                        TurnoArchivadoRepository turnoArchivadoRepository,
+                        UsuarioService usuarioService,
+                        SellosColeccion sellos,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${instaguera.baja.lote:1000}") int lote) {
+        this.usuarioRepository = usuarioRepository;
+        this.turnoRepository = turnoRepository;
+        this.turnoArchivadoRepository = turnoArchivadoRepository;
+        this.usuarioService = usuarioService;
+        this.sellos = sellos;
+        this.transactionTemplate = transactionTemplate;
+        this.lote = lote;
+    }
+
+    // false si el usuario no existe. El If-Match se chequea aca, antes de arrancar: el borrado en si ya no mira la version.
+    // Si ya hay una baja en curso para ese usuario no arranca otra
+    public boolean programar(Long id, Long versionEsperada) {
+        Long version = usuarioRepository.findById(id).map(Usuario::getVersion).orElse(null);
+        if (version == null) return false;
+        VersionDistintaException.verificar(versionEsperada, version);
+
+        if (enCurso.add(id)) {
+            Thread.ofVirtual().name("baja-usuario-" + id).start(() -> borrar(id));
+        }
+        return true;
+    }
+
+    public boolean enCurso(Long id) {
+        return enCurso.contains(id);
+    }
+
+    private void borrar(Long id) {
+        try {
+            long turnos = borrarPorLotes(() -> turnoRepository.borrarLoteDeUsuario(id, lote));
+            long archivados = borrarPorLotes(() -> turnoArchivadoRepository.borrarLoteDeUsuario(id, lote));
+            // Publica el UsuarioEvent: invalida disponibilidad, estadisticas, buscador y principales
+            usuarioService.eliminar(id);
+            log.info("Baja del usuario {}: {} turnos y {} archivados", id, turnos, archivados);
+        } catch (RuntimeException e) {
+            log.error("Fallo la baja del usuario {}", id, e);
+        } finally {
+            enCurso.remove(id);
+        }
+    }
+
+    private long borrarPorLotes(IntSupplier borrarLote) {
+        long total = 0;
+        int borrados;
+        do {
+            borrados = transactionTemplate.execute(status -> {
+                int n = borrarLote.getAsInt();
+                // Los listados de turnos cambian; disponibilidad y estadisticas se invalidan al final
+                // (mientras tanto ven turnos que ya no estan, o sea nunca ofrecen algo ocupado)
+                if (n > 0) sellos.marcarCambio(SelloColeccion.TURNOS);
+                return n;
+            });
+            total += borrados;
+        } while (borrados == lote && !Thread.currentThread().isInterrupted());
+        return total;
+    }
+}
@@ -0,0 +1,234 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.ClienteCursor;
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Indice en memoria para el typeahead de clientes: cada palabra de nombre, apellido, username, email y
+// los digitos del celular, normalizadas (minusculas y sin acentos), apuntan a los clientes que la tienen.
+// Una busqueda es un rango del TreeMap por prefijo, sin ir a la base.
+// Se carga la primera vez que se busca, despues se mantiene con los UsuarioEvent ya commiteados y cada tanto se
+// relee entero de la base (lo que cambia por fuera: otras instancias, GeneradorDatos, SQL a mano)
+@Component
+public class BuscadorClientes {
+
+    // Con una letra el prefijo abarca casi todos los clientes: de dos para arriba el rango ya es chico
+    public static final int TERMINO_MINIMO = 2;
+
+    private final UsuarioRepository usuarioRepository;
+
+    // Muchas busquedas en paralelo contra pocos cambios: lectura compartida, escritura exclusiva.
+    // ReentrantLock y no synchronized porque la carga inicial va a la base (hilos virtuales)
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Set<Long>> porToken = new TreeMap<>();
+    private final Map<Long, Entrada> porId = new HashMap<>();
+    private final NavigableSet<Entrada> ordenados = new TreeSet<>();
+    private volatile boolean cargado;
+    // Eventos que llegan mientras se relee la base: se vuelven a aplicar sobre lo releido. null si no se esta releyendo
+    private List<UsuarioEvent> pendientes;
+
+    public BuscadorClientes(UsuarioRepository usuarioRepository) {
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    // Clientes donde cada palabra de q es prefijo de alguna de sus palabras, por apellido y nombre, a partir
+    // del cursor (null para la primera pagina). Sin palabras devuelve todos en el mismo orden; si la palabra mas
+    // larga no llega a TERMINO_MINIMO letras no devuelve nada
+    public List<UsuarioResumen> buscar(String q, ClienteCursor despuesDe, int cantidad) {
+        List<String> terminos = palabras(q).distinct().toList();
+        // El termino mas largo suele ser el mas selectivo: de ahi salen los candidatos, el resto filtra
+        String principal = terminos.stream().max(Comparator.comparingInt(String::length)).orElse(null);
+        if (principal != null && principal.length() < TERMINO_MINIMO) return List.of();
+        cargarSiHaceFalta();
+
+        lock.readLock().lock();
+        try {
+            if (principal == null) {
+                NavigableSet<Entrada> resto = despuesDe != null ? ordenados.tailSet(Entrada.de(despuesDe), false) : ordenados;
+                return resto.stream().limit(cantidad).map(Entrada::usuario).toList();
+            }
+            return mejores(principal, terminos, despuesDe, cantidad).stream().map(Entrada::usuario).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // La posicion de un cliente devuelto por buscar, para pedir la pagina siguiente
+    public static ClienteCursor cursor(UsuarioResumen usuario) {
+        return new ClienteCursor(orden(usuario), usuario.id());
+    }
+
+    // Se aplica aunque el indice no este cargado: si la carga esta en curso el evento espera al lock
+    // y se aplica despues (agregar/quitar son idempotentes); si no empezo, la carga ya ve el cambio commiteado
+    @TransactionalEventListener
+    public void alCambiarUsuario(UsuarioEvent event) {
+        lock.writeLock().lock();
+        try {
+            aplicar(event);
+            if (pendientes != null) pendientes.add(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Para cambios que no pasan por eventos: se vuelve a cargar en la proxima busqueda
+    public void invalidarTodo() {
+        lock.writeLock().lock();
+        try {
+            porToken.clear();
+            porId.clear();
+            ordenados.clear();
+            cargado = false;
+            pendientes = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Relee todos los clientes de la base. El SELECT va sin lock, las busquedas siguen contra lo anterior mientras
+    // tanto; los eventos que llegan en el medio se guardan y se aplican de nuevo sobre lo releido.
+    // Si el indice no se cargo nunca no hace nada: se carga en la primera busqueda
+    @Scheduled(fixedDelayString = "${instaguera.buscador.recargar:10m}",
+            initialDelayString = "${instaguera.buscador.recargar:10m}")
+    public void recargar() {
+        lock.writeLock().lock();
+        try {
+            if (!cargado) return;
+            pendientes = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<UsuarioResumen> clientes = usuarioRepository.findResumenesByRole(Role.CLIENTE);
+
+        lock.writeLock().lock();
+        try {
+            // Un invalidarTodo en el medio ya descarto todo: se carga en la proxima busqueda
+            if (pendientes == null) return;
+            porToken.clear();
+            porId.clear();
+            ordenados.clear();
+            clientes.forEach(this::agregar);
+            pendientes.forEach(this::aplicar);
+            pendientes = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void cargarSiHaceFalta() {
+        if (cargado) return;
+        lock.writeLock().lock();
+        try {
+            if (cargado) return;
+            usuarioRepository.findResumenesByRole(Role.CLIENTE).forEach(this::agregar);
+            cargado = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Los primeros 'cantidad' despues del cursor entre los que tienen una palabra que empieza con 'principal':
+    // un heap acotado en vez de ordenar todos los candidatos, O(candidatos * log cantidad)
+    private List<Entrada> mejores(String principal, List<String> terminos, ClienteCursor despuesDe, int cantidad) {
+        Entrada desde = despuesDe != null ? Entrada.de(despuesDe) : null;
+        PriorityQueue<Entrada> mejores = new PriorityQueue<>(cantidad + 1, Comparator.reverseOrder());
+        Set<Long> vistos = new HashSet<>();
+        for (Set<Long> ids : porToken.subMap(principal, true, principal + Character.MAX_VALUE, false).values()) {
+            for (Long id : ids) {
+                if (!vistos.add(id)) continue;
+                Entrada entrada = porId.get(id);
+                if (desde != null && entrada.compareTo(desde) <= 0) continue;
+                if (mejores.size() == cantidad && entrada.compareTo(mejores.peek()) >= 0) continue;
+                if (!terminos.stream().allMatch(entrada::tienePrefijo)) continue;
+                mejores.add(entrada);
+                if (mejores.size() > cantidad) mejores.poll();
+            }
+        }
+        List<Entrada> resultado = new ArrayList<>(mejores);
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    private void aplicar(UsuarioEvent event) {
+        if (event.anterior() != null) quitar(event.anterior().id());
+        if (event.actual() != null && event.actual().role() == Role.CLIENTE) agregar(event.actual());
+    }
+
+    private void agregar(UsuarioResumen usuario) {
+        quitar(usuario.id());
+        Entrada entrada = Entrada.de(usuario);
+        porId.put(usuario.id(), entrada);
+        ordenados.add(entrada);
+        entrada.tokens().forEach(token -> porToken.computeIfAbsent(token, t -> new HashSet<>()).add(usuario.id()));
+    }
+
+    private void quitar(Long id) {
+        Entrada anterior = porId.remove(id);
+        if (anterior == null) return;
+        ordenados.remove(anterior);
+        anterior.tokens().forEach(token -> {
+            Set<Long> ids = porToken.get(token);
+            ids.remove(id);
+            if (ids.isEmpty()) porToken.remove(token);
+        });
+    }
+
+    // "José Pérez" -> jose, perez; ana.perez@gmail.com -> ana, perez, gmail, com. A q se le aplica lo mismo
+    static Stream<String> palabras(String texto) {
+        if (texto == null || texto.isBlank()) return Stream.empty();
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(normalizado.split("[^\\p{L}\\p{N}]+")).filter(token -> !token.isEmpty());
+    }
+
+    private static String orden(UsuarioResumen usuario) {
+        return String.join(" ", palabras(usuario.apellido() + " " + usuario.nombre()).toList());
+    }
+
+    record Entrada(Long id, UsuarioResumen usuario, String orden, Set<String> tokens) implements Comparable<Entrada> {
+
+        private static final Comparator<Entrada> ORDEN =
+                Comparator.comparing(Entrada::orden).thenComparing(Entrada::id);
+
+        static Entrada de(UsuarioResumen usuario) {
+            Set<String> tokens = new HashSet<>();
+            Stream.of(usuario.nombre(), usuario.apellido(), usuario.username(), usuario.email())
+                    .flatMap(BuscadorClientes::palabras)
+                    .forEach(tokens::add);
+            // El celular solo por digitos: "11 5555-0000" se encuentra con 1155550000 o con 11 5555
+            if (usuario.celular() != null) {
+                String digitos = usuario.celular().replaceAll("\\D", "");
+                if (!digitos.isEmpty()) tokens.add(digitos);
+            }
+            return new Entrada(usuario.id(), usuario, BuscadorClientes.orden(usuario), Set.copyOf(tokens));
+        }
+
+        // Solo para comparar contra la posicion del cursor
+        static Entrada de(ClienteCursor cursor) {
+            return new Entrada(cursor.id(), null, cursor.orden(), Set.of());
+        }
+
+        boolean tienePrefijo(String termino) {
+            for (String token : tokens) {
+                if (token.startsWith(termino)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(Entrada otra) {
+            return ORDEN.compare(this, otra);
+        }
+    }
+}
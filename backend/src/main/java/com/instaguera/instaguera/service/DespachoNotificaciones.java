@@ -0,0 +1,161 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.Notificacion;
+import com.instaguera.instaguera.repository.NotificacionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Entrega el outbox de notificaciones. Cada lote son dos transacciones cortas con el envio en el medio:
+// toma las vencidas con FOR UPDATE SKIP LOCKED y las reserva corriendo enviar_en 'reserva' para adelante,
+// las manda sin transaccion (ni conexion) tomada, y despues marca como salio cada una. Varios 'hilos'
+// (y varias instancias de la app) pueden correr a la vez sin pisarse, y ninguno recorre la tabla de turnos.
+// Es al menos una vez: si el proceso se cae entre mandar y marcar, al vencer la reserva se manda de nuevo
+// (con el mismo id, ver EnviadorNotificaciones).
+// Si el enviador falla se reintenta con espera creciente hasta 'max-intentos', despues queda FALLIDA
+@Service
+public class DespachoNotificaciones {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachoNotificaciones.class);
+
+    private final NotificacionRepository repository;
+    private final EnviadorNotificaciones enviador;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final int lote;
+    private final int hilos;
+    private final int maxIntentos;
+    private final Duration reintento;
+    private final Duration retencion;
+    private final Duration reserva;
+
+    public DespachoNotificaciones(NotificacionRepository repository,
+                                  EnviadorNotificaciones enviador,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry registry,
+                                  @Value("${instaguera.notificaciones.lote:100}") int lote,
+                                  @Value("${instaguera.notificaciones.hilos:2}") int hilos,
+                                  @Value("${instaguera.notificaciones.max-intentos:5}") int maxIntentos,
+                                  @Value("${instaguera.notificaciones.reintento:5m}") Duration reintento,
+                                  @Value("${instaguera.notificaciones.retencion:30d}") Duration retencion,
+                                  @Value("${instaguera.notificaciones.reserva:5m}") Duration reserva) {
+        this.repository = repository;
+        this.enviador = enviador;
+        this.transactionTemplate = transactionTemplate;
+        this.registry = registry;
+        this.lote = lote;
+        this.hilos = hilos;
+        this.maxIntentos = maxIntentos;
+        this.reintento = reintento;
+        this.retencion = retencion;
+        this.reserva = reserva;
+    }
+
+    @Scheduled(cron = "${instaguera.notificaciones.cron:*/30 * * * * *}")
+    public void despacharProgramado() {
+        despachar();
+    }
+
+    // Devuelve cuantas entrego. Cada hilo va tomando lotes hasta que no quedan vencidas
+    public int despachar() {
+        if (hilos <= 1) return despacharHastaVaciar();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> trabajadores = new ArrayList<>(hilos);
+            for (int i = 0; i < hilos; i++) {
+                trabajadores.add(executor.submit(this::despacharHastaVaciar));
+            }
+            int total = 0;
+            for (Future<Integer> trabajador : trabajadores) {
+                total += trabajador.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Fallo el despacho de notificaciones", e.getCause());
+        }
+    }
+
+    @Scheduled(cron = "${instaguera.notificaciones.limpieza:0 0 4 * * *}")
+    public void limpiar() {
+        int borradas = transactionTemplate.execute(status ->
+                repository.borrarViejas(OffsetDateTime.now(ZoneOffset.UTC).minus(retencion)));
+        if (borradas > 0) log.info("Borradas {} notificaciones viejas", borradas);
+    }
+
+    private int despacharHastaVaciar() {
+        int total = 0;
+        Resultado resultado;
+        do {
+            resultado = despacharLote();
+            total += resultado.enviadas();
+        } while (resultado.tomadas() == lote && !Thread.currentThread().isInterrupted());
+        return total;
+    }
+
+    private Resultado despacharLote() {
+        // Con la precision de la columna: la reserva se reconoce despues comparando enviar_en
+        OffsetDateTime ahora = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        OffsetDateTime reservadaHasta = ahora.plus(reserva);
+        List<Notificacion> tomadas = transactionTemplate.execute(status -> {
+            List<Notificacion> vencidas = repository.tomarVencidas(ahora, lote);
+            vencidas.forEach(notificacion -> notificacion.reservarHasta(reservadaHasta));
+            return vencidas;
+        });
+        if (tomadas.isEmpty()) return new Resultado(0, 0);
+
+        // id -> null si salio, o el error
+        Map<Long, RuntimeException> errores = new HashMap<>();
+        for (Notificacion notificacion : tomadas) {
+            try {
+                enviador.enviar(notificacion);
+                errores.put(notificacion.getId(), null);
+            } catch (RuntimeException e) {
+                errores.put(notificacion.getId(), e);
+            }
+        }
+
+        Integer enviadas = transactionTemplate.execute(status -> {
+            int marcadas = 0;
+            for (Notificacion notificacion : repository.findAllById(errores.keySet())) {
+                // Anulada mientras se mandaba, o se vencio la reserva y ya la tomo otro
+                if (notificacion.getEstado() != Notificacion.Estado.PENDIENTE
+                        || !notificacion.getEnviarEn().isEqual(reservadaHasta)) continue;
+                RuntimeException e = errores.get(notificacion.getId());
+                if (e == null) {
+                    notificacion.marcarEnviada(ahora);
+                    marcadas++;
+                    registry.counter("instaguera.notificaciones", "resultado", "enviada").increment();
+                } else {
+                    boolean reintentar = notificacion.getIntentos() + 1 < maxIntentos;
+                    notificacion.marcarError(e.getMessage(),
+                            reintentar ? ahora.plus(reintento.multipliedBy(notificacion.getIntentos() + 1)) : null);
+                    registry.counter("instaguera.notificaciones", "resultado", reintentar ? "error" : "fallida").increment();
+                    log.warn("No se pudo enviar la notificacion {} (intento {})", notificacion.getId(), notificacion.getIntentos(), e);
+                }
+            }
+            return marcadas;
+        });
+        return new Resultado(tomadas.size(), enviadas);
+    }
+
+    private record Resultado(int tomadas, int enviadas) {}
+}
@@ -0,0 +1,225 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.FranjaLibre;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Indice en memoria de los horarios ocupados de cada dueño (intervalos ordenados por inicio).
+// Se carga la primera vez que se consulta un dueño y despues se mantiene con los TurnoEvent ya commiteados.
+// Los eventos son solo de esta instancia: cada tanto se recarga desde la base, lo que corrige lo escrito por
+// otra instancia o por fuera de la aplicacion y descarta lo que ya paso.
+// Sirve para contestar rapido la disponibilidad (orientativa): si reservar o no lo decide TurnoService en la base.
+@Component
+public class DisponibilidadIndex {
+
+    // Ningun turno dura mas que esto, acota cuanto hay que mirar para atras al buscar solapamientos
+    public static final Duration DURACION_MAXIMA = Duration.ofHours(12);
+
+    private final TurnoRepository turnoRepository;
+    private final Map<Long, Agenda> agendas = new ConcurrentHashMap<>();
+
+    public DisponibilidadIndex(TurnoRepository turnoRepository) {
+        this.turnoRepository = turnoRepository;
+    }
+
+    public List<FranjaLibre> franjasLibres(Long duenoId, OffsetDateTime desde, OffsetDateTime hasta) {
+        // Para atras del presente no hay nada que reservar (y el indice tampoco lo guarda)
+        Instant inicio = desde.toInstant().isBefore(Instant.now()) ? Instant.now() : desde.toInstant();
+        return agenda(duenoId).libres(inicio, hasta.toInstant()).stream()
+                .map(f -> new FranjaLibre(f.inicio().atOffset(desde.getOffset()), f.fin().atOffset(desde.getOffset())))
+                .toList();
+    }
+
+    @TransactionalEventListener
+    public void alCambiarTurno(TurnoEvent event) {
+        TurnoResponse anterior = event.anterior();
+        TurnoResponse actual = event.actual();
+        if (anterior != null) {
+            agendas.computeIfPresent(anterior.dueno().id(), (id, agenda) -> agenda.quitar(anterior.id()));
+        }
+        if (actual != null && actual.estado() != EstadoTurno.CANCELADO) {
+            agendas.computeIfPresent(actual.dueno().id(), (id, agenda) -> agenda.agregar(
+                    new Intervalo(actual.id(), actual.fechaHora().toInstant(), actual.fin().toInstant())));
+        }
+    }
+
+    // Al borrar un usuario se van en cascada sus turnos (como cliente o como dueño) sin TurnoEvent
+    @TransactionalEventListener
+    public void alCambiarUsuario(UsuarioEvent event) {
+        if (event.tipo() == UsuarioEvent.Tipo.ELIMINADO) invalidarTodo();
+    }
+
+    // Para cambios que no pasan por eventos (borrados masivos, etc.): se vuelve a cargar en la proxima consulta
+    public void invalidar(Long duenoId) {
+        agendas.remove(duenoId);
+    }
+
+    public void invalidarTodo() {
+        agendas.clear();
+    }
+
+    // Las agendas consultadas desde la pasada anterior se vuelven a leer de la base (un SELECT por dueño, de a
+    // uno); las que nadie consulto se sueltan y se cargan de nuevo si alguien las pide
+    @Scheduled(fixedDelayString = "${instaguera.disponibilidad.reconciliar:5m}",
+            initialDelayString = "${instaguera.disponibilidad.reconciliar:5m}")
+    public void reconciliar() {
+        agendas.entrySet().removeIf(entrada -> !entrada.getValue().consultada());
+        agendas.forEach((duenoId, agenda) -> agenda.recargar(() -> ocupados(duenoId)));
+    }
+
+    // Cuantos intervalos guarda la agenda de un dueño (0 si no esta cargada)
+    int intervalos(Long duenoId) {
+        Agenda agenda = agendas.get(duenoId);
+        return agenda != null ? agenda.tamanio() : 0;
+    }
+
+    // La agenda se crea vacia y se llena con su propio lock tomado, fuera del lock del ConcurrentHashMap:
+    // asi el SELECT no bloquea otros dueños ni clava el carrier thread con hilos virtuales.
+    // Un evento que llega mientras carga espera al lock y se aplica despues (agregar/quitar son idempotentes)
+    private Agenda agenda(Long duenoId) {
+        Agenda agenda = agendas.computeIfAbsent(duenoId, id -> new Agenda());
+        agenda.cargarSiHaceFalta(() -> ocupados(duenoId));
+        return agenda;
+    }
+
+    // Solo lo que todavia no termino: lo pasado no se puede reservar y no hace falta guardarlo
+    private List<Intervalo> ocupados(Long duenoId) {
+        Instant ahora = Instant.now();
+        OffsetDateTime desde = ahora.atOffset(ZoneOffset.UTC).minus(DURACION_MAXIMA);
+        return turnoRepository.findOcupadosDesde(duenoId, desde, EstadoTurno.CANCELADO).stream()
+                .map(turno -> new Intervalo(turno.getId(), turno.getFechaHora().toInstant(),
+                        turno.getFechaHora().plusMinutes(turno.getDuracionMinutos()).toInstant()))
+                .filter(intervalo -> intervalo.fin().isAfter(ahora))
+                .toList();
+    }
+
+    record Intervalo(Long turnoId, Instant inicio, Instant fin) implements Comparable<Intervalo> {
+
+        private static final Comparator<Intervalo> ORDEN =
+                Comparator.comparing(Intervalo::inicio).thenComparing(Intervalo::turnoId);
+
+        // Marca para usar de limite en subSet, queda antes que cualquier turno que empiece en ese instante
+        static Intervalo desde(Instant instante) {
+            return new Intervalo(Long.MIN_VALUE, instante, instante);
+        }
+
+        @Override
+        public int compareTo(Intervalo otro) {
+            return ORDEN.compare(this, otro);
+        }
+    }
+
+    // Agenda de un dueño. Usa un ReentrantLock y no synchronized para que la carga inicial
+    // (que va a la base) no clave el carrier thread; la contencion es solo entre requests del mismo dueño
+    static final class Agenda {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final NavigableSet<Intervalo> porInicio = new TreeSet<>();
+        private final Map<Long, Intervalo> porTurno = new HashMap<>();
+        private volatile boolean cargada;
+        // Si alguien la consulto desde la ultima reconciliacion
+        private volatile boolean consultada;
+
+        void cargarSiHaceFalta(Supplier<List<Intervalo>> cargar) {
+            consultada = true;
+            if (cargada) return;
+            lock.lock();
+            try {
+                if (!cargada) recargar(cargar);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Reemplaza todo por lo que hay en la base. El SELECT va con el lock tomado, como en la carga inicial:
+        // un evento commiteado mientras tanto espera y se aplica encima
+        void recargar(Supplier<List<Intervalo>> cargar) {
+            lock.lock();
+            try {
+                List<Intervalo> ocupados = cargar.get();
+                porInicio.clear();
+                porTurno.clear();
+                ocupados.forEach(this::agregar);
+                cargada = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Devuelve si fue consultada y la marca como no consultada para la proxima pasada
+        boolean consultada() {
+            boolean antes = consultada;
+            consultada = false;
+            return antes;
+        }
+
+        int tamanio() {
+            lock.lock();
+            try {
+                return porTurno.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Agenda agregar(Intervalo intervalo) {
+            lock.lock();
+            try {
+                quitar(intervalo.turnoId());
+                porInicio.add(intervalo);
+                porTurno.put(intervalo.turnoId(), intervalo);
+                return this;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Agenda quitar(Long turnoId) {
+            lock.lock();
+            try {
+                Intervalo anterior = porTurno.remove(turnoId);
+                if (anterior != null) porInicio.remove(anterior);
+                return this;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Intervalo> libres(Instant desde, Instant hasta) {
+            List<Intervalo> libres = new ArrayList<>();
+            if (!desde.isBefore(hasta)) return libres;
+            lock.lock();
+            try {
+                Instant cursor = desde;
+                for (Intervalo ocupado : candidatos(desde, hasta)) {
+                    if (!ocupado.fin().isAfter(cursor)) continue;
+                    if (ocupado.inicio().isAfter(cursor)) libres.add(new Intervalo(null, cursor, ocupado.inicio()));
+                    cursor = ocupado.fin();
+                    if (!cursor.isBefore(hasta)) return libres;
+                }
+                libres.add(new Intervalo(null, cursor, hasta));
+                return libres;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Los unicos que pueden cruzarse con [inicio, fin) empiezan a lo sumo DURACION_MAXIMA antes
+        private NavigableSet<Intervalo> candidatos(Instant inicio, Instant fin) {
+            return porInicio.subSet(Intervalo.desde(inicio.minus(DURACION_MAXIMA)), true, Intervalo.desde(fin), false);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.Notificacion;
+
+// Canal por el que salen las notificaciones del outbox (WhatsApp, mail, etc.).
+// Si no se pudo entregar tiene que tirar una excepcion: DespachoNotificaciones la reintenta mas tarde.
+// La entrega es al menos una vez: si el proceso se cae entre enviar() y marcarla, se vuelve a mandar cuando
+// vence la reserva. getId() no cambia entre reintentos: un canal real lo usa como clave de idempotencia
+public interface EnviadorNotificaciones {
+
+    void enviar(Notificacion notificacion);
+}
@@ -0,0 +1,20 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.Notificacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+// Hasta que haya un canal real los mensajes solo se loguean (y el estudio sigue mandando el WhatsApp a mano).
+// Un EnviadorNotificaciones real se registra como @Primary y este queda de respaldo
+@Service
+public class EnviadorPorLog implements EnviadorNotificaciones {
+
+    private static final Logger log = LoggerFactory.getLogger(EnviadorPorLog.class);
+
+    @Override
+    public void enviar(Notificacion notificacion) {
+        log.info("Notificacion {} ({}) a {}: {}", notificacion.getId(), notificacion.getTipo(),
+                notificacion.getCelular(), notificacion.getMensaje());
+    }
+}
@@ -0,0 +1,115 @@
+package com.instaguera.instaguera.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.instaguera.instaguera.dto.TurnoExportFila;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.repository.ExportRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Exports completos de turnos y usuarios en CSV o NDJSON. Cada fila se escribe apenas sale del cursor de la base,
+// asi la memoria no depende del tamaño de la tabla. La transaccion (solo lectura) dura lo que dura la descarga
+@Service
+public class ExportService {
+
+    private static final int BUFFER = 64 * 1024;
+
+    private static final List<String> COLUMNAS_TURNOS = List.of(
+            "id", "fecha_hora", "duracion_minutos", "estado", "descripcion",
+            "cliente_id", "cliente_nombre", "cliente_apellido", "cliente_email",
+            "dueno_id", "dueno_nombre", "dueno_apellido");
+
+    private static final List<String> COLUMNAS_USUARIOS = List.of(
+            "id", "nombre", "apellido", "celular", "username", "email", "role");
+
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Formato(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() { return contentType; }
+        public String extension() { return extension; }
+    }
+
+    private final ExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(ExportRepository exportRepository, ObjectMapper objectMapper) {
+        this.exportRepository = exportRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportarTurnos(TurnoFiltro filtro, Formato formato, OutputStream salida) throws IOException {
+        try (Stream<TurnoExportFila> filas = exportRepository.turnos(filtro)) {
+            escribir(filas, formato, COLUMNAS_TURNOS, t -> new Object[]{
+                    t.id(), t.fechaHora(), t.duracionMinutos(), t.estado(), t.descripcion(),
+                    t.clienteId(), t.clienteNombre(), t.clienteApellido(), t.clienteEmail(),
+                    t.duenoId(), t.duenoNombre(), t.duenoApellido()}, salida);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportarUsuarios(Role role, Formato formato, OutputStream salida) throws IOException {
+        try (Stream<UsuarioResumen> filas = exportRepository.usuarios(role)) {
+            escribir(filas, formato, COLUMNAS_USUARIOS, u -> new Object[]{
+                    u.id(), u.nombre(), u.apellido(), u.celular(), u.username(), u.email(), u.role()}, salida);
+        }
+    }
+
+    private <T> void escribir(Stream<T> filas, Formato formato, List<String> columnas,
+                              Function<T, Object[]> valores, OutputStream salida) throws IOException {
+        Iterator<T> it = filas.iterator();
+        if (formato == Formato.NDJSON) {
+            // Un objeto JSON por linea
+            try (SequenceWriter json = objectMapper.writer().withRootValueSeparator("\n")
+                    .writeValues(new BufferedOutputStream(salida, BUFFER))) {
+                while (it.hasNext()) json.write(it.next());
+            }
+            return;
+        }
+        Writer csv = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), BUFFER);
+        csv.write(String.join(",", columnas));
+        csv.write("\r\n");
+        while (it.hasNext()) {
+            Object[] fila = valores.apply(it.next());
+            for (int i = 0; i < fila.length; i++) {
+                if (i > 0) csv.write(',');
+                csv.write(campoCsv(fila[i]));
+            }
+            csv.write("\r\n");
+        }
+        csv.flush();
+    }
+
+    // RFC 4180: entre comillas si tiene coma, comillas o saltos de linea; las comillas se duplican.
+    // Los textos que Excel tomaria como formula (=, +, -, @) van con un ' adelante
+    private static String campoCsv(Object valor) {
+        if (valor == null) return "";
+        String texto = valor.toString();
+        if (valor instanceof String && !texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,234 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.model.Imagen;
+import com.instaguera.instaguera.repository.ImagenRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Galeria de trabajos: subida de fotos (solo JPEG / PNG) y sus variantes.
+// La subida solo copia el archivo y lee el encabezado (formato y tamaño); la miniatura y la mediana se generan
+// una sola vez, en un pool chico aparte, porque decodificar y escalar una foto grande es CPU y memoria.
+// Mientras no estan, la galeria muestra el original
+@Service
+public class GaleriaService {
+
+    private static final Logger log = LoggerFactory.getLogger(GaleriaService.class);
+    // Una imagen chica en bytes puede decir que mide 50000x50000 y reventar la memoria al decodificarla
+    private static final long PIXELES_MAXIMOS = 50_000_000L;
+
+    // El original tal como quedo guardado; creada es false si esa misma foto ya estaba
+    public record Subida(Imagen imagen, boolean creada) {}
+
+    private record Encabezado(String extension, int ancho, int alto) {}
+
+    private final ImagenRepository imagenRepository;
+    private final AlmacenMedia almacen;
+    private final TransactionTemplate transactionTemplate;
+    private final float calidad;
+    private final ExecutorService variantes;
+
+    public GaleriaService(ImagenRepository imagenRepository,
+                          AlmacenMedia almacen,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${instaguera.media.hilos:2}") int hilos,
+                          @Value("${instaguera.media.calidad:0.82}") float calidad) {
+        this.imagenRepository = imagenRepository;
+        this.almacen = almacen;
+        this.transactionTemplate = transactionTemplate;
+        this.calidad = calidad;
+        this.variantes = Executors.newFixedThreadPool(hilos, Thread.ofPlatform().name("media-", 0).daemon().factory());
+    }
+
+    public Subida subir(InputStream contenido, Long usuarioId) throws IOException {
+        AlmacenMedia.Temporal temporal = almacen.recibir(contenido);
+        try {
+            Encabezado encabezado = leerEncabezado(temporal.ruta());
+
+            Imagen existente = imagenRepository.findByHash(temporal.hash()).orElse(null);
+            if (existente != null) return new Subida(existente, false);
+
+            almacen.guardar(temporal.ruta(), AlmacenMedia.nombre(temporal.hash(), null, encabezado.extension()));
+            Imagen imagen;
+            try {
+                imagen = imagenRepository.save(new Imagen(temporal.hash(), encabezado.extension(), encabezado.ancho(),
+                        encabezado.alto(), temporal.bytes(), usuarioId, OffsetDateTime.now(ZoneOffset.UTC)));
+            } catch (DataIntegrityViolationException e) {
+                // La misma foto subida dos veces a la vez: gano la otra
+                return new Subida(imagenRepository.findByHash(temporal.hash()).orElseThrow(() -> e), false);
+            }
+            programarVariantes(imagen.getHash(), imagen.getExtension());
+            return new Subida(imagen, true);
+        } finally {
+            Files.deleteIfExists(temporal.ruta());
+        }
+    }
+
+    // Pagina de la galeria, de la mas nueva a la mas vieja
+    public List<Imagen> pagina(Long antesDe, int limite) {
+        return imagenRepository.findPagina(antesDe != null ? antesDe : Long.MAX_VALUE, Limit.of(limite));
+    }
+
+    // Las que se cortaron con un reinicio
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarPendientes() {
+        for (Imagen imagen : imagenRepository.findByVariantesListasFalse()) {
+            programarVariantes(imagen.getHash(), imagen.getExtension());
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        variantes.shutdownNow();
+    }
+
+    private void programarVariantes(String hash, String extension) {
+        variantes.execute(() -> {
+            try {
+                generarVariantes(hash, extension);
+                transactionTemplate.executeWithoutResult(status -> imagenRepository.marcarVariantesListas(hash));
+            } catch (IOException | RuntimeException e) {
+                log.error("No se pudieron generar las variantes de {}", hash, e);
+            }
+        });
+    }
+
+    // Decodifica el original una sola vez (salteando pixeles si es enorme), arma la mediana y de ahi la miniatura
+    private void generarVariantes(String hash, String extension) throws IOException {
+        Path original = almacen.buscar(AlmacenMedia.nombre(hash, null, extension))
+                .orElseThrow(() -> new IOException("No esta el original " + hash));
+
+        BufferedImage imagen;
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            ImageReader reader = lector(entrada);
+            try {
+                reader.setInput(entrada, true, true);
+                int lado = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Queda de al menos el doble de la mediana: se ahorra memoria sin perder calidad al achicar
+                int salto = Math.max(1, lado / (2 * AlmacenMedia.Variante.MEDIANA.lado()));
+                param.setSourceSubsampling(salto, salto, 0, 0);
+                imagen = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        for (AlmacenMedia.Variante variante : List.of(AlmacenMedia.Variante.MEDIANA, AlmacenMedia.Variante.MINIATURA)) {
+            imagen = escalar(imagen, variante.lado());
+            String nombre = AlmacenMedia.nombre(hash, variante, "jpg");
+            if (almacen.existe(nombre)) continue;
+            Path temporal = almacen.temporal();
+            try {
+                escribirJpeg(imagen, temporal);
+                almacen.guardar(temporal, nombre);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    private static Encabezado leerEncabezado(Path archivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(archivo.toFile())) {
+            ImageReader reader = lector(entrada);
+            try {
+                reader.setInput(entrada, true, true);
+                String formato = reader.getFormatName().toLowerCase(Locale.ROOT);
+                String extension = switch (formato) {
+                    case "jpeg", "jpg" -> "jpg";
+                    case "png" -> "png";
+                    default -> throw new IllegalArgumentException("Solo se aceptan imágenes JPEG o PNG");
+                };
+                int ancho = reader.getWidth(0);
+                int alto = reader.getHeight(0);
+                if ((long) ancho * alto > PIXELES_MAXIMOS) {
+                    throw new IllegalArgumentException("La imagen es demasiado grande");
+                }
+                return new Encabezado(extension, ancho, alto);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader lector(ImageInputStream entrada) {
+        Iterator<ImageReader> readers = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+        if (readers == null || !readers.hasNext()) {
+            throw new IllegalArgumentException("Solo se aceptan imágenes JPEG o PNG");
+        }
+        return readers.next();
+    }
+
+    // Achica a la mitad mientras sobre mas del doble y despues al tamaño final (bilineal de un solo paso
+    // sobre algo mucho mas grande se ve serruchado). Sin transparencia: el fondo queda blanco para el JPEG
+    private static BufferedImage escalar(BufferedImage origen, int lado) {
+        int ancho = origen.getWidth();
+        int alto = origen.getHeight();
+        double factor = Math.min(1.0, (double) lado / Math.max(ancho, alto));
+        int anchoFinal = Math.max(1, (int) Math.round(ancho * factor));
+        int altoFinal = Math.max(1, (int) Math.round(alto * factor));
+
+        BufferedImage actual = origen;
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            BufferedImage paso = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = paso.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(actual, 0, 0, ancho, alto, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            actual = paso;
+        } while (ancho != anchoFinal || alto != altoFinal);
+        return actual;
+    }
+
+    private void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(destino.toFile())) {
+            writer.setOutput(salida);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(calidad);
+            // Progresivo: en conexiones lentas se ve la foto entera borrosa en vez de la mitad de arriba
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(imagen, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.instaguera.instaguera.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.instaguera.instaguera.model.RespuestaIdempotente;
+import com.instaguera.instaguera.repository.RespuestaIdempotenteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Reintentos seguros de los POST que crean cosas: con el header Idempotency-Key la primera vez se ejecuta
+// y se guarda la respuesta; un reintento con la misma clave (del mismo usuario) recibe esa misma respuesta.
+// La clave se toma con un INSERT ... ON CONFLICT DO NOTHING antes de ejecutar, asi dos reintentos
+// simultaneos no pueden correr los dos: el segundo recibe 409 mientras el primero no termino.
+// Si el proceso se cae con la clave tomada (p. ej. despues del commit del turno y antes de guardar la
+// respuesta), pasado 'enCurso' el siguiente reintento la toma y vuelve a ejecutar; en POST /turnos ese
+// reintento choca con el turno ya creado y recibe 409 en vez de duplicarlo.
+// Las respuestas viven 'ttl' y despues las borra limpiar()
+@Service
+public class Idempotencia {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String HEADER_REPETIDA = "Idempotent-Replayed";
+    private static final int LARGO_MAXIMO_CLAVE = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(Idempotencia.class);
+
+    private final RespuestaIdempotenteRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration enCurso;
+
+    public Idempotencia(RespuestaIdempotenteRepository repository,
+                        ObjectMapper objectMapper,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${instaguera.idempotencia.ttl:24h}") Duration ttl,
+                        @Value("${instaguera.idempotencia.en-curso:2m}") Duration enCurso) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.enCurso = enCurso;
+    }
+
+    // Sin clave ejecuta directo. La accion corre con su propia transaccion; las respuestas 5xx y las
+    // excepciones no se guardan (liberan la clave) para que el reintento vuelva a probar
+    public ResponseEntity<?> ejecutar(String sujeto, String clave, String operacion, Object pedido,
+                                      Supplier<ResponseEntity<?>> accion) {
+        if (clave == null) {
+            return accion.get();
+        }
+        if (clave.isBlank() || clave.length() > LARGO_MAXIMO_CLAVE) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " tiene que tener entre 1 y " + LARGO_MAXIMO_CLAVE + " caracteres");
+        }
+        String huella = huella(operacion, pedido);
+        // creado_en identifica esta reserva (ver guardar/liberar): con la misma precision que la columna
+        OffsetDateTime ahora = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+
+        Boolean reservada = transactionTemplate.execute(status -> {
+            repository.borrarVencida(sujeto, clave, ahora);
+            repository.borrarAbandonada(sujeto, clave, ahora.minus(enCurso));
+            return repository.reservar(sujeto, clave, huella, ahora, ahora.plus(ttl)) == 1;
+        });
+        if (!Boolean.TRUE.equals(reservada)) {
+            return repetir(sujeto, clave, huella);
+        }
+
+        ResponseEntity<?> respuesta;
+        try {
+            respuesta = accion.get();
+        } catch (RuntimeException e) {
+            liberar(sujeto, clave, ahora);
+            throw e;
+        }
+        if (respuesta.getStatusCode().is5xxServerError()) {
+            liberar(sujeto, clave, ahora);
+            return respuesta;
+        }
+        String cuerpo = json(respuesta.getBody());
+        Integer guardada = transactionTemplate.execute(status ->
+                repository.guardar(sujeto, clave, ahora, respuesta.getStatusCode().value(), cuerpo));
+        if (guardada == null || guardada == 0) {
+            // Tardo mas que enCurso y un reintento ya tomo la clave: queda la respuesta de ese
+            log.warn("La clave {} de {} la tomo un reintento antes de que terminara el pedido original", clave, sujeto);
+        }
+        return respuesta;
+    }
+
+    @Scheduled(fixedDelayString = "${instaguera.idempotencia.limpieza:1h}")
+    public void limpiar() {
+        Integer borradas = transactionTemplate.execute(status ->
+                repository.borrarVencidas(OffsetDateTime.now(ZoneOffset.UTC)));
+        if (borradas != null && borradas > 0) log.info("Borradas {} respuestas idempotentes vencidas", borradas);
+    }
+
+    private ResponseEntity<?> repetir(String sujeto, String clave, String huella) {
+        Optional<RespuestaIdempotente> guardada = repository.findById(new RespuestaIdempotente.Clave(sujeto, clave));
+        if (guardada.isEmpty()) {
+            // Se libero entre el INSERT y esta lectura (el primero fallo): que reintente
+            return error(HttpStatus.CONFLICT, "El pedido original no terminó, reintentá");
+        }
+        RespuestaIdempotente respuesta = guardada.get();
+        if (!respuesta.getHuella().equals(huella)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " ya se usó con otro pedido");
+        }
+        if (respuesta.getStatus() == null) {
+            return error(HttpStatus.CONFLICT, "El pedido original todavía se está procesando");
+        }
+        ResponseEntity.BodyBuilder repetida = ResponseEntity.status(respuesta.getStatus()).header(HEADER_REPETIDA, "true");
+        return respuesta.getCuerpo() == null
+                ? repetida.build()
+                : repetida.contentType(MediaType.APPLICATION_JSON).body(respuesta.getCuerpo());
+    }
+
+    private void liberar(String sujeto, String clave, OffsetDateTime reservadaEn) {
+        transactionTemplate.executeWithoutResult(status -> repository.liberar(sujeto, clave, reservadaEn));
+    }
+
+    private String huella(String operacion, Object pedido) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(operacion.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            sha256.update(objectMapper.writeValueAsBytes(pedido));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String json(Object cuerpo) {
+        if (cuerpo == null) return null;
+        try {
+            return objectMapper.writeValueAsString(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String mensaje) {
+        return ResponseEntity.status(status).body(Map.of("message", mensaje));
+    }
+}
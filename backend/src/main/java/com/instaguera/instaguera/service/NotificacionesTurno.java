@@ -0,0 +1,88 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Notificacion;
+import com.instaguera.instaguera.repository.NotificacionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// Escribe el outbox de notificaciones a partir de los TurnoEvent. Corre en BEFORE_COMMIT, o sea en la misma
+// transaccion que el cambio del turno: si hace rollback no queda ninguna notificacion de algo que no paso.
+// - Cambio de estado: un aviso al cliente para ya.
+// - Recordatorio: 'anticipacion' antes del turno (o ya, si falta menos). Si el turno se mueve o se cancela
+//   el pendiente se anula y, si corresponde, se agenda otro
+@Service
+public class NotificacionesTurno {
+
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("dd/MM", Locale.ROOT);
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm", Locale.ROOT);
+
+    private final NotificacionRepository repository;
+    private final Duration anticipacion;
+    private final ZoneId zona;
+
+    public NotificacionesTurno(NotificacionRepository repository,
+                               @Value("${instaguera.notificaciones.anticipacion:24h}") Duration anticipacion,
+                               @Value("${instaguera.notificaciones.zona:America/Argentina/Buenos_Aires}") ZoneId zona) {
+        this.repository = repository;
+        this.anticipacion = anticipacion;
+        this.zona = zona;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void alCambiarTurno(TurnoEvent event) {
+        TurnoResponse anterior = event.anterior();
+        TurnoResponse actual = event.actual();
+        // Borrado: sus notificaciones se van en cascada con el turno
+        if (actual == null) return;
+        OffsetDateTime ahora = OffsetDateTime.now(zona);
+
+        if (anterior != null && anterior.estado() != actual.estado()) {
+            repository.save(nueva(actual, Notificacion.Tipo.CAMBIO_ESTADO, cambioDeEstado(actual), ahora));
+        }
+
+        if (anterior != null && !afectaRecordatorio(anterior, actual)) return;
+        if (anterior != null) repository.anularPendientes(actual.id(), Notificacion.Tipo.RECORDATORIO);
+        if (activo(actual.estado()) && actual.fechaHora().isAfter(ahora)) {
+            OffsetDateTime enviarEn = actual.fechaHora().minus(anticipacion);
+            repository.save(nueva(actual, Notificacion.Tipo.RECORDATORIO, recordatorio(actual),
+                    enviarEn.isAfter(ahora) ? enviarEn : ahora));
+        }
+    }
+
+    private static boolean afectaRecordatorio(TurnoResponse anterior, TurnoResponse actual) {
+        return !anterior.fechaHora().isEqual(actual.fechaHora())
+                || anterior.estado() != actual.estado()
+                || !anterior.cliente().id().equals(actual.cliente().id())
+                || !anterior.dueno().id().equals(actual.dueno().id());
+    }
+
+    private static boolean activo(EstadoTurno estado) {
+        return estado == EstadoTurno.SOLICITADO || estado == EstadoTurno.CONFIRMADO;
+    }
+
+    private static Notificacion nueva(TurnoResponse turno, Notificacion.Tipo tipo, String mensaje, OffsetDateTime enviarEn) {
+        return new Notificacion(turno.id(), turno.cliente().id(), tipo, turno.cliente().celular(), mensaje, enviarEn);
+    }
+
+    private String recordatorio(TurnoResponse turno) {
+        OffsetDateTime local = turno.fechaHora().atZoneSameInstant(zona).toOffsetDateTime();
+        return "Hola " + turno.cliente().nombre() + "! Te recordamos tu turno con " + turno.dueno().nombre()
+                + " el " + FECHA.format(local) + " a las " + HORA.format(local) + ".";
+    }
+
+    private String cambioDeEstado(TurnoResponse turno) {
+        OffsetDateTime local = turno.fechaHora().atZoneSameInstant(zona).toOffsetDateTime();
+        return "Hola " + turno.cliente().nombre() + ", tu turno del " + FECHA.format(local) + " a las "
+                + HORA.format(local) + " ahora está " + turno.estado().name().toLowerCase(Locale.ROOT) + ".";
+    }
+}
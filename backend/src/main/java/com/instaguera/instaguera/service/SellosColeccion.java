@@ -0,0 +1,108 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.SelloColeccion;
+import com.instaguera.instaguera.repository.SelloColeccionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Versiones de las colecciones (turnos, usuarios) para los ETag de los listados.
+// Se incrementan en BEFORE_COMMIT, o sea en la misma transaccion que el cambio: si hace rollback, el sello tampoco cambia.
+// El lock de la fila dura hasta el commit, por eso el sello esta partido (SelloColeccion.PARTES): los turnos
+// incrementan la parte de su dueño y el resto una al azar, asi dos agendas distintas casi nunca se esperan
+@Service
+public class SellosColeccion {
+
+    // Subirlo cuando cambie la forma del JSON de los listados, asi no se responde 304 con un formato viejo
+    private static final int FORMATO = 1;
+
+    private final SelloColeccionRepository repository;
+
+    public SellosColeccion(SelloColeccionRepository repository) {
+        this.repository = repository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void alCambiarTurno(TurnoEvent event) {
+        TurnoResponse turno = event.actual() != null ? event.actual() : event.anterior();
+        incrementar(Math.floorMod(turno.dueno().id(), SelloColeccion.PARTES), SelloColeccion.TURNOS);
+    }
+
+    // Los listados de turnos llevan los datos del cliente y del dueño, asi que tambien cambian
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void alCambiarUsuario(UsuarioEvent event) {
+        incrementar(cualquierParte(), SelloColeccion.USUARIOS, SelloColeccion.TURNOS);
+    }
+
+    // Para cambios que no pasan por eventos (p. ej. el archivado). Tiene que correr dentro de una transaccion
+    public void marcarCambio(String... colecciones) {
+        incrementar(cualquierParte(), colecciones);
+    }
+
+    public long version(String coleccion) {
+        return repository.findVersion(coleccion).orElse(0L);
+    }
+
+    // ETag fuerte: version de la coleccion + hash de los parametros (ordenados, asi ?a&b y ?b&a dan lo mismo).
+    // Una sola lectura por PK, sin cargar ninguna fila de la coleccion
+    public String etag(String coleccion, Map<String, String[]> parametros) {
+        StringBuilder consulta = new StringBuilder();
+        new TreeMap<>(parametros).forEach((nombre, valores) ->
+                consulta.append(nombre).append('=').append(String.join(",", valores)).append('&'));
+        return coleccion + "-" + FORMATO + "-" + version(coleccion) + "-" + hash(consulta.toString());
+    }
+
+    // Una sola vez por transaccion y coleccion: un lote de 100 turnos es un UPDATE de una parte del sello, no 100.
+    // Para el ETag alcanza con que cambie la suma, no importa que parte
+    private void incrementar(int parte, String... colecciones) {
+        Set<String> yaIncrementadas = incrementadasEnEstaTransaccion();
+        List<String> pendientes = Arrays.stream(colecciones).filter(yaIncrementadas::add).toList();
+        if (!pendientes.isEmpty()) {
+            repository.incrementar(pendientes, parte);
+        }
+    }
+
+    private static int cualquierParte() {
+        return ThreadLocalRandom.current().nextInt(SelloColeccion.PARTES);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> incrementadasEnEstaTransaccion() {
+        Set<String> incrementadas = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (incrementadas == null) {
+            incrementadas = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, incrementadas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SellosColeccion.this);
+                }
+            });
+        }
+        return incrementadas;
+    }
+
+    private static String hash(String valor) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(valor.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.CargaTurno;
+import com.instaguera.instaguera.dto.ConteoEstado;
+import com.instaguera.instaguera.dto.EstadisticasDueno;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.repository.TurnoArchivadoRepository;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Contadores por dueño para el panel: turnos por estado y carga por dia (turnos y minutos, sin cancelados)
+// en una ventana movil alrededor de hoy. Se mantienen sumando/restando con cada TurnoEvent commiteado y cada
+// tanto se recalculan desde la base, que corrige cualquier desvio (p. ej. un evento que llego mientras se recargaba).
+// Leerlos no depende de cuantos turnos haya en la historia
+@Component
+public class TurnoEstadisticas {
+
+    private static final int DIAS_ATRAS = 7;
+    private static final int DIAS_ADELANTE = 90;
+    private static final int DIAS_RESPUESTA = 14;
+    private static final int SEMANAS_RESPUESTA = 8;
+    private static final int PROXIMOS = 10;
+
+    private final TurnoRepository turnoRepository;
+    private final TurnoArchivadoRepository turnoArchivadoRepository;
+    private final ZoneId zona;
+    private final ReentrantLock carga = new ReentrantLock();
+
+    // null hasta la primera consulta (o despues de invalidar)
+    private volatile Map<Long, Contadores> porDueno;
+
+    public TurnoEstadisticas(TurnoRepository turnoRepository,
+                             TurnoArchivadoRepository turnoArchivadoRepository,
+                             @Value("${instaguera.stats.zona:America/Argentina/Buenos_Aires}") ZoneId zona) {
+        this.turnoRepository = turnoRepository;
+        this.turnoArchivadoRepository = turnoArchivadoRepository;
+        this.zona = zona;
+    }
+
+    public EstadisticasDueno estadisticas(Long duenoId) {
+        Contadores contadores = cargadas().get(duenoId);
+        LocalDate hoy = LocalDate.now(zona);
+
+        Map<EstadoTurno, Long> porEstado = new EnumMap<>(EstadoTurno.class);
+        for (EstadoTurno estado : EstadoTurno.values()) {
+            porEstado.put(estado, contadores != null ? contadores.porEstado.get(estado).sum() : 0L);
+        }
+
+        List<EstadisticasDueno.Carga> dias = new ArrayList<>(DIAS_RESPUESTA);
+        for (int i = 0; i < DIAS_RESPUESTA; i++) {
+            dias.add(carga(contadores, hoy.plusDays(i), 1));
+        }
+        LocalDate lunes = hoy.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        List<EstadisticasDueno.Carga> semanas = new ArrayList<>(SEMANAS_RESPUESTA);
+        for (int i = 0; i < SEMANAS_RESPUESTA; i++) {
+            semanas.add(carga(contadores, lunes.plusWeeks(i), 7));
+        }
+
+        List<TurnoResponse> proximos = turnoRepository
+                .findProximos(duenoId, OffsetDateTime.now(zona), EstadoTurno.CANCELADO, Limit.of(PROXIMOS))
+                .stream().map(TurnoResponse::de).toList();
+
+        return new EstadisticasDueno(duenoId, porEstado, dias, semanas, proximos);
+    }
+
+    @TransactionalEventListener
+    public void alCambiarTurno(TurnoEvent event) {
+        Map<Long, Contadores> actuales = porDueno;
+        if (actuales == null) return;
+        LocalDate hoy = LocalDate.now(zona);
+        if (event.anterior() != null) sumar(actuales, event.anterior(), -1, hoy);
+        if (event.actual() != null) sumar(actuales, event.actual(), 1, hoy);
+    }
+
+    // Al borrar un usuario se van en cascada sus turnos sin TurnoEvent
+    @TransactionalEventListener
+    public void alCambiarUsuario(UsuarioEvent event) {
+        if (event.tipo() == UsuarioEvent.Tipo.ELIMINADO) invalidar();
+    }
+
+    // Recalcula todo desde la base; tambien corre la ventana de dias
+    @Scheduled(fixedDelayString = "${instaguera.stats.reconciliar:10m}",
+            initialDelayString = "${instaguera.stats.reconciliar:10m}")
+    public void reconciliar() {
+        carga.lock();
+        try {
+            porDueno = cargar();
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    public void invalidar() {
+        porDueno = null;
+    }
+
+    private Map<Long, Contadores> cargadas() {
+        Map<Long, Contadores> actuales = porDueno;
+        if (actuales != null) return actuales;
+        carga.lock();
+        try {
+            if (porDueno == null) porDueno = cargar();
+            return porDueno;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private Map<Long, Contadores> cargar() {
+        Map<Long, Contadores> nuevos = new ConcurrentHashMap<>();
+        // Los totales por estado cuentan tambien lo archivado: archivar mueve turnos sin eventos y no cambia los totales
+        List<ConteoEstado> conteos = new ArrayList<>(turnoRepository.contarPorDuenoYEstado());
+        conteos.addAll(turnoArchivadoRepository.contarPorDuenoYEstado());
+        for (ConteoEstado conteo : conteos) {
+            nuevos.computeIfAbsent(conteo.duenoId(), id -> new Contadores())
+                    .porEstado.get(conteo.estado()).add(conteo.cantidad());
+        }
+
+        LocalDate hoy = LocalDate.now(zona);
+        OffsetDateTime desde = hoy.minusDays(DIAS_ATRAS).atStartOfDay(zona).toOffsetDateTime();
+        OffsetDateTime hasta = hoy.plusDays(DIAS_ADELANTE + 1).atStartOfDay(zona).toOffsetDateTime();
+        for (CargaTurno turno : turnoRepository.findCargaEntre(desde, hasta, EstadoTurno.CANCELADO)) {
+            nuevos.computeIfAbsent(turno.duenoId(), id -> new Contadores())
+                    .sumarDia(dia(turno.fechaHora()), 1, turno.duracionMinutos());
+        }
+        return nuevos;
+    }
+
+    private void sumar(Map<Long, Contadores> actuales, TurnoResponse turno, int signo, LocalDate hoy) {
+        Contadores contadores = actuales.computeIfAbsent(turno.dueno().id(), id -> new Contadores());
+        contadores.porEstado.get(turno.estado()).add(signo);
+
+        LocalDate dia = dia(turno.fechaHora());
+        // Fuera de la ventana no se guarda nada, la proxima reconciliacion la corre
+        if (turno.estado() != EstadoTurno.CANCELADO
+                && !dia.isBefore(hoy.minusDays(DIAS_ATRAS)) && !dia.isAfter(hoy.plusDays(DIAS_ADELANTE))) {
+            contadores.sumarDia(dia, signo, turno.duracionMinutos());
+        }
+    }
+
+    private LocalDate dia(OffsetDateTime fechaHora) {
+        return fechaHora.atZoneSameInstant(zona).toLocalDate();
+    }
+
+    private static EstadisticasDueno.Carga carga(Contadores contadores, LocalDate desde, int dias) {
+        long turnos = 0;
+        long minutos = 0;
+        if (contadores != null) {
+            for (int i = 0; i < dias; i++) {
+                CargaDia dia = contadores.porDia.get(desde.plusDays(i));
+                if (dia != null) {
+                    turnos += dia.turnos.sum();
+                    minutos += dia.minutos.sum();
+                }
+            }
+        }
+        return new EstadisticasDueno.Carga(desde, turnos, minutos);
+    }
+
+    // Sumas y restas conmutan, asi que alcanza con LongAdder sin ningun lock
+    private static final class Contadores {
+
+        private final Map<EstadoTurno, LongAdder> porEstado = new EnumMap<>(EstadoTurno.class);
+        private final Map<LocalDate, CargaDia> porDia = new ConcurrentHashMap<>();
+
+        private Contadores() {
+            for (EstadoTurno estado : EstadoTurno.values()) {
+                porEstado.put(estado, new LongAdder());
+            }
+        }
+
+        private void sumarDia(LocalDate dia, int signo, int duracionMinutos) {
+            CargaDia carga = porDia.computeIfAbsent(dia, d -> new CargaDia());
+            carga.turnos.add(signo);
+            carga.minutos.add((long) signo * duracionMinutos);
+        }
+    }
+
+    private static final class CargaDia {
+        private final LongAdder turnos = new LongAdder();
+        private final LongAdder minutos = new LongAdder();
+    }
+}
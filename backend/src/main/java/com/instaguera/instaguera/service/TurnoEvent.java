@@ -0,0 +1,26 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.TurnoResponse;
+
+// Cambio sobre un turno, se publica dentro de la transaccion del TurnoService.
+// anterior es null en CREADO y actual es null en ELIMINADO
+public record TurnoEvent(Tipo tipo, TurnoResponse anterior, TurnoResponse actual) {
+
+    public enum Tipo {
+        CREADO,
+        ACTUALIZADO,
+        ELIMINADO
+    }
+
+    public static TurnoEvent creado(TurnoResponse actual) {
+        return new TurnoEvent(Tipo.CREADO, null, actual);
+    }
+
+    public static TurnoEvent actualizado(TurnoResponse anterior, TurnoResponse actual) {
+        return new TurnoEvent(Tipo.ACTUALIZADO, anterior, actual);
+    }
+
+    public static TurnoEvent eliminado(TurnoResponse anterior) {
+        return new TurnoEvent(Tipo.ELIMINADO, anterior, null);
+    }
+}
@@ -0,0 +1,367 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.OperacionTurno;
+import com.instaguera.instaguera.dto.ResultadoOperacion;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Lotes de altas, cambios y bajas de turnos en una sola transaccion (POST /turnos/batch).
+// Lo que hay que leer (turnos, usuarios, agendas de los dueños) se lee al principio en pocas consultas y
+// despues cada item se valida en memoria antes de tocar nada. Sin consultas en el medio Hibernate no hace
+// flush hasta el commit, y ahi manda los INSERT/UPDATE/DELETE en batches de JDBC.
+// Un item que falla no cambia nada ni marca la transaccion para rollback: los demas se guardan igual.
+// Lo que solo salta en el flush (un UPDATE que encuentra otra version porque alguien cambio el turno despues
+// de leerlo, una restriccion de la base) vuelve atras el lote entero; en ese caso se repite item por item,
+// cada uno en su transaccion, y el que falla se informa en su lugar con 409
+@Service
+public class TurnoLoteService {
+
+    public static final int MAXIMO_OPERACIONES = 500;
+
+    private final TurnoRepository turnoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public TurnoLoteService(TurnoRepository turnoRepository,
+                            UsuarioRepository usuarioRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            TransactionTemplate transactionTemplate) {
+        this.turnoRepository = turnoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public List<ResultadoOperacion> aplicar(List<OperacionTurno> operaciones) {
+        if (operaciones == null || operaciones.isEmpty() || operaciones.size() > MAXIMO_OPERACIONES) {
+            throw new IllegalArgumentException("Un lote tiene que tener entre 1 y " + MAXIMO_OPERACIONES + " operaciones");
+        }
+        try {
+            return transactionTemplate.execute(status -> aplicar(operaciones, 0));
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            List<ResultadoOperacion> resultados = new ArrayList<>(operaciones.size());
+            for (int i = 0; i < operaciones.size(); i++) {
+                resultados.add(aplicarSola(i, operaciones.get(i)));
+            }
+            return resultados;
+        }
+    }
+
+    // Un item del lote en su propia transaccion, con el flush adentro: si falla ahi es de este item y de ningun otro
+    private ResultadoOperacion aplicarSola(int indice, OperacionTurno operacion) {
+        try {
+            return transactionTemplate.execute(status -> aplicar(Collections.singletonList(operacion), indice)).get(0);
+        } catch (OptimisticLockingFailureException e) {
+            return ResultadoOperacion.error(indice, HttpStatus.CONFLICT.value(), new VersionDistintaException().getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return ResultadoOperacion.error(indice, HttpStatus.CONFLICT.value(), "La base rechazó los datos del turno");
+        }
+    }
+
+    // primerIndice es el indice en el lote original de operaciones.get(0)
+    private List<ResultadoOperacion> aplicar(List<OperacionTurno> operaciones, int primerIndice) {
+        Lote lote = cargar(operaciones);
+
+        List<ResultadoOperacion> resultados = new ArrayList<>(operaciones.size());
+        for (int i = 0; i < operaciones.size(); i++) {
+            resultados.add(aplicar(primerIndice + i, operaciones.get(i), lote));
+        }
+
+        // Los cambios se devuelven (y se avisan) despues del flush, con la version que quedo en la base.
+        // Si el mismo lote despues lo borro, ya salio el ELIMINADO y no se avisa el cambio
+        if (!lote.actualizados.isEmpty()) {
+            turnoRepository.flush();
+            for (Actualizado actualizado : lote.actualizados) {
+                TurnoResponse actual = TurnoResponse.de(actualizado.turno());
+                resultados.set(actualizado.indice() - primerIndice, ResultadoOperacion.ok(actualizado.indice(), HttpStatus.OK.value(), actual));
+                if (lote.turnos.containsKey(actual.id())) {
+                    eventPublisher.publishEvent(TurnoEvent.actualizado(actualizado.anterior(), actual));
+                }
+            }
+        }
+        return resultados;
+    }
+
+    private ResultadoOperacion aplicar(int indice, OperacionTurno operacion, Lote lote) {
+        try {
+            if (operacion == null || operacion.tipo() == null) {
+                throw new IllegalArgumentException("Falta el tipo de operación");
+            }
+            return switch (operacion.tipo()) {
+                case CREAR -> crear(indice, requerido(operacion.turno()), lote);
+                case ACTUALIZAR -> actualizar(indice, operacion.id(), operacion.version(), requerido(operacion.turno()), lote);
+                case ELIMINAR -> eliminar(indice, operacion.id(), operacion.version(), lote);
+            };
+        } catch (TurnoSolapadoException e) {
+            return ResultadoOperacion.error(indice, HttpStatus.CONFLICT.value(), e.getMessage());
+        } catch (VersionDistintaException e) {
+            return ResultadoOperacion.error(indice, HttpStatus.PRECONDITION_FAILED.value(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResultadoOperacion.error(indice, HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        }
+    }
+
+    private ResultadoOperacion crear(int indice, TurnoRequest request, Lote lote) {
+        if (request.fechaHora() == null || request.clienteId() == null || request.duenoId() == null) {
+            throw new IllegalArgumentException("fechaHora, cliente y dueno son obligatorios");
+        }
+        int duracion = request.duracionMinutos() != null ? request.duracionMinutos() : Turno.DURACION_DEFAULT;
+        EstadoTurno estado = request.estado() != null ? request.estado() : EstadoTurno.SOLICITADO;
+
+        // Primero todo lo que puede fallar
+        Usuario cliente = lote.usuario(request.clienteId());
+        Usuario dueno = lote.reservar(request.duenoId(), null, request.fechaHora(), duracion, estado);
+
+        Turno turno = new Turno(request.fechaHora(), estado, request.descripcion(), cliente, dueno);
+        turno.setDuracionMinutos(duracion);
+        turnoRepository.save(turno);
+        lote.turnos.put(turno.getId(), turno);
+        lote.ocupar(turno);
+
+        TurnoResponse creado = TurnoResponse.de(turno);
+        eventPublisher.publishEvent(TurnoEvent.creado(creado));
+        return ResultadoOperacion.ok(indice, HttpStatus.CREATED.value(), creado);
+    }
+
+    private ResultadoOperacion actualizar(int indice, Long id, Long version, TurnoRequest cambios, Lote lote) {
+        Turno turno = id != null ? lote.turnos.get(id) : null;
+        if (turno == null) {
+            return noEncontrado(indice, id);
+        }
+        VersionDistintaException.verificar(version, turno.getVersion());
+        TurnoResponse anterior = TurnoResponse.de(turno);
+
+        OffsetDateTime fechaHora = cambios.fechaHora() != null ? cambios.fechaHora() : turno.getFechaHora();
+        Integer duracion = cambios.duracionMinutos() != null ? cambios.duracionMinutos() : turno.getDuracionMinutos();
+        EstadoTurno estado = cambios.estado() != null ? cambios.estado() : turno.getEstado();
+        Long duenoId = cambios.duenoId() != null ? cambios.duenoId() : anterior.dueno().id();
+        Usuario cliente = cambios.clienteId() != null ? lote.usuario(cambios.clienteId()) : turno.getCliente();
+
+        // Igual que en TurnoService: la agenda solo se vuelve a chequear si cambia el lugar que ocupa el turno
+        boolean mueveAgenda = !anterior.fechaHora().isEqual(fechaHora)
+                || !anterior.duracionMinutos().equals(duracion)
+                || !anterior.dueno().id().equals(duenoId)
+                || (anterior.estado() == EstadoTurno.CANCELADO && estado != EstadoTurno.CANCELADO);
+        Usuario dueno = mueveAgenda
+                ? lote.reservar(duenoId, turno.getId(), fechaHora, duracion, estado)
+                : turno.getDueno();
+
+        lote.liberar(turno);
+        turno.setFechaHora(fechaHora);
+        turno.setDuracionMinutos(duracion);
+        turno.setEstado(estado);
+        if (cambios.descripcion() != null) turno.setDescripcion(cambios.descripcion());
+        turno.setCliente(cliente);
+        turno.setDueno(dueno);
+        lote.ocupar(turno);
+
+        // El resultado y el evento se arman al final, ver aplicar(List)
+        lote.actualizados.add(new Actualizado(indice, anterior, turno));
+        return ResultadoOperacion.ok(indice, HttpStatus.OK.value(), anterior);
+    }
+
+    private ResultadoOperacion eliminar(int indice, Long id, Long version, Lote lote) {
+        Turno turno = id != null ? lote.turnos.get(id) : null;
+        if (turno == null) {
+            return noEncontrado(indice, id);
+        }
+        VersionDistintaException.verificar(version, turno.getVersion());
+        lote.turnos.remove(id);
+        TurnoResponse anterior = TurnoResponse.de(turno);
+        lote.liberar(turno);
+        turnoRepository.delete(turno);
+
+        eventPublisher.publishEvent(TurnoEvent.eliminado(anterior));
+        return ResultadoOperacion.ok(indice, HttpStatus.NO_CONTENT.value(), null);
+    }
+
+    // Las lecturas del lote, todas antes de aplicar el primer item
+    private Lote cargar(List<OperacionTurno> operaciones) {
+        Lote lote = new Lote();
+
+        Set<Long> turnoIds = operaciones.stream()
+                .filter(o -> o != null && o.tipo() != OperacionTurno.Tipo.CREAR && o.id() != null)
+                .map(OperacionTurno::id)
+                .collect(Collectors.toSet());
+        if (!turnoIds.isEmpty()) {
+            turnoRepository.findConClienteYDuenoByIdIn(turnoIds).forEach(t -> lote.turnos.put(t.getId(), t));
+        }
+
+        Set<Long> usuarioIds = new HashSet<>();
+        for (OperacionTurno o : operaciones) {
+            if (o == null || o.turno() == null) continue;
+            if (o.turno().clienteId() != null) usuarioIds.add(o.turno().clienteId());
+            if (o.turno().duenoId() != null) usuarioIds.add(o.turno().duenoId());
+        }
+        usuarioIds.removeIf(id -> lote.usuarios.containsKey(id));
+        if (!usuarioIds.isEmpty()) {
+            usuarioRepository.findAllById(usuarioIds).forEach(u -> lote.usuarios.put(u.getId(), u));
+        }
+
+        // Todos los dueños que el lote puede llegar a tocar se bloquean aca, en orden de id y antes del primer item,
+        // asi dos lotes que tocan los mismos dueños no se pueden trabar entre si. Va tambien el dueño de cada turno
+        // que se actualiza aunque el cambio no lo mueva: un item anterior del mismo lote puede haberlo cancelado
+        // y este volver a activarlo. Despues reservar() no bloquea a nadie mas
+        SortedSet<Long> duenoIds = new TreeSet<>();
+        for (OperacionTurno o : operaciones) {
+            if (o == null || o.tipo() == OperacionTurno.Tipo.ELIMINAR) continue;
+            if (o.turno() != null && o.turno().duenoId() != null) duenoIds.add(o.turno().duenoId());
+            Turno existente = o.tipo() == OperacionTurno.Tipo.ACTUALIZAR ? lote.turnos.get(o.id()) : null;
+            if (existente != null) duenoIds.add(existente.getDueno().getId());
+        }
+        duenoIds.forEach(lote::bloquear);
+
+        // Ventana de agenda que va a hacer falta por dueño, para leerla de una vez
+        Map<Long, OffsetDateTime[]> ventanas = new HashMap<>();
+        for (OperacionTurno o : operaciones) {
+            if (o == null || o.turno() == null || o.tipo() == OperacionTurno.Tipo.ELIMINAR) continue;
+            Turno existente = o.tipo() == OperacionTurno.Tipo.ACTUALIZAR ? lote.turnos.get(o.id()) : null;
+            if (o.tipo() == OperacionTurno.Tipo.ACTUALIZAR && existente == null) continue;
+
+            TurnoRequest r = o.turno();
+            // Cambios que no mueven el turno en la agenda (p. ej. marcar COMPLETADO) no necesitan bloquear al dueño
+            if (existente != null && r.fechaHora() == null && r.duracionMinutos() == null && r.duenoId() == null
+                    && !(existente.getEstado() == EstadoTurno.CANCELADO && r.estado() != null && r.estado() != EstadoTurno.CANCELADO)) {
+                continue;
+            }
+            Long duenoId = r.duenoId() != null ? r.duenoId() : existente != null ? existente.getDueno().getId() : null;
+            OffsetDateTime inicio = r.fechaHora() != null ? r.fechaHora() : existente != null ? existente.getFechaHora() : null;
+            Integer duracion = r.duracionMinutos() != null ? r.duracionMinutos()
+                    : existente != null ? existente.getDuracionMinutos() : Integer.valueOf(Turno.DURACION_DEFAULT);
+            if (duenoId == null || inicio == null) continue;
+
+            OffsetDateTime fin = inicio.plusMinutes(duracion);
+            ventanas.merge(duenoId, new OffsetDateTime[]{inicio, fin}, (a, b) -> new OffsetDateTime[]{
+                    a[0].isBefore(b[0]) ? a[0] : b[0], a[1].isAfter(b[1]) ? a[1] : b[1]});
+        }
+        ventanas.forEach((duenoId, ventana) -> {
+            Agenda agenda = lote.agendas.get(duenoId);
+            if (agenda != null) agenda.asegurar(ventana[0], ventana[1]);
+        });
+        return lote;
+    }
+
+    private static TurnoRequest requerido(TurnoRequest turno) {
+        if (turno == null) throw new IllegalArgumentException("Falta el turno");
+        return turno;
+    }
+
+    private static ResultadoOperacion noEncontrado(int indice, Long id) {
+        return ResultadoOperacion.error(indice, HttpStatus.NOT_FOUND.value(), "Turno " + id + " no encontrado");
+    }
+
+    private record Actualizado(int indice, TurnoResponse anterior, Turno turno) {}
+
+    private record Franja(OffsetDateTime inicio, OffsetDateTime fin) {
+
+        static Franja de(Turno turno) {
+            return new Franja(turno.getFechaHora(), turno.getFechaHora().plusMinutes(turno.getDuracionMinutos()));
+        }
+
+        boolean pisa(OffsetDateTime otroInicio, OffsetDateTime otroFin) {
+            return inicio.isBefore(otroFin) && fin.isAfter(otroInicio);
+        }
+    }
+
+    // Estado del lote: entidades ya cargadas y la agenda de cada dueño bloqueado, que se mantiene en memoria item a item
+    private final class Lote {
+
+        private final Map<Long, Turno> turnos = new HashMap<>();
+        private final Map<Long, Usuario> usuarios = new HashMap<>();
+        private final Map<Long, Agenda> agendas = new HashMap<>();
+        private final List<Actualizado> actualizados = new ArrayList<>();
+
+        private Usuario usuario(Long id) {
+            Usuario usuario = usuarios.get(id);
+            if (usuario == null) {
+                usuario = usuarioRepository.findById(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Usuario " + id + " no encontrado"));
+                usuarios.put(id, usuario);
+            }
+            return usuario;
+        }
+
+        // SELECT ... FOR UPDATE del dueño, como en TurnoService: las reservas concurrentes de su agenda esperan al commit.
+        // Solo desde cargar(), que los pide en orden
+        private void bloquear(Long duenoId) {
+            usuarioRepository.findByIdParaActualizar(duenoId).ifPresent(u -> {
+                usuarios.put(duenoId, u);
+                agendas.put(duenoId, new Agenda(duenoId));
+            });
+        }
+
+        private Usuario reservar(Long duenoId, Long turnoId, OffsetDateTime inicio, int duracion, EstadoTurno estado) {
+            TurnoService.validarDuracion(duracion);
+            // Todo dueño que exista ya quedo bloqueado en cargar(): si no hay agenda es que no existe
+            Agenda agenda = agendas.get(duenoId);
+            if (agenda == null) {
+                throw new IllegalArgumentException("Dueño no encontrado");
+            }
+            if (estado != EstadoTurno.CANCELADO) {
+                OffsetDateTime fin = inicio.plusMinutes(duracion);
+                agenda.asegurar(inicio, fin);
+                if (!agenda.libre(turnoId, inicio, fin)) {
+                    throw new TurnoSolapadoException();
+                }
+            }
+            return usuarios.get(duenoId);
+        }
+
+        private void ocupar(Turno turno) {
+            Agenda agenda = agendas.get(turno.getDueno().getId());
+            if (agenda != null && turno.getEstado() != EstadoTurno.CANCELADO) {
+                agenda.ocupados.put(turno.getId(), Franja.de(turno));
+            }
+        }
+
+        private void liberar(Turno turno) {
+            Agenda agenda = agendas.get(turno.getDueno().getId());
+            if (agenda != null) agenda.ocupados.remove(turno.getId());
+        }
+    }
+
+    private final class Agenda {
+
+        private final Long duenoId;
+        private final Map<Long, Franja> ocupados = new HashMap<>();
+        private OffsetDateTime desde;
+        private OffsetDateTime hasta;
+
+        private Agenda(Long duenoId) {
+            this.duenoId = duenoId;
+        }
+
+        // Carga los turnos que pueden pisar [inicio, fin) si todavia no estan. Normalmente ya se cargo todo en
+        // cargar(); si hace falta otra consulta Hibernate hace flush antes, asi que la base coincide con la memoria
+        private void asegurar(OffsetDateTime inicio, OffsetDateTime fin) {
+            OffsetDateTime necesitaDesde = inicio.minus(DisponibilidadIndex.DURACION_MAXIMA);
+            if (desde != null && !necesitaDesde.isBefore(desde) && !fin.isAfter(hasta)) return;
+
+            desde = desde == null || necesitaDesde.isBefore(desde) ? necesitaDesde : desde;
+            hasta = hasta == null || fin.isAfter(hasta) ? fin : hasta;
+            turnoRepository.findOcupados(duenoId, desde, hasta, EstadoTurno.CANCELADO)
+                    .forEach(t -> ocupados.put(t.getId(), Franja.de(t)));
+        }
+
+        private boolean libre(Long turnoId, OffsetDateTime inicio, OffsetDateTime fin) {
+            return ocupados.entrySet().stream()
+                    .noneMatch(e -> !e.getKey().equals(turnoId) && e.getValue().pisa(inicio, fin));
+        }
+    }
+}
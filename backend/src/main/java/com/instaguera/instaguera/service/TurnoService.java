@@ -0,0 +1,157 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.FranjaLibre;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// Altas, cambios y bajas de turnos. Cada cambio publica un TurnoEvent en la misma transaccion
+@Service
+public class TurnoService {
+
+    private static final int DURACION_MINIMA = 15;
+    private static final Duration VENTANA_MAXIMA_DISPONIBILIDAD = Duration.ofDays(62);
+
+    private final TurnoRepository turnoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final DisponibilidadIndex disponibilidad;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TurnoService(TurnoRepository turnoRepository,
+                        UsuarioRepository usuarioRepository,
+                        DisponibilidadIndex disponibilidad,
+                        ApplicationEventPublisher eventPublisher) {
+        this.turnoRepository = turnoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.disponibilidad = disponibilidad;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public TurnoResponse crear(TurnoRequest request) {
+        if (request.fechaHora() == null || request.clienteId() == null || request.duenoId() == null) {
+            throw new IllegalArgumentException("fechaHora, cliente y dueno son obligatorios");
+        }
+        Turno turno = new Turno();
+        turno.setFechaHora(request.fechaHora());
+        if (request.duracionMinutos() != null) turno.setDuracionMinutos(request.duracionMinutos());
+        if (request.estado() != null) turno.setEstado(request.estado());
+        turno.setDescripcion(request.descripcion());
+        turno.setCliente(buscarUsuario(request.clienteId()));
+        turno.setDueno(reservarAgenda(request.duenoId(), turno));
+
+        TurnoResponse creado = TurnoResponse.de(turnoRepository.save(turno));
+        eventPublisher.publishEvent(TurnoEvent.creado(creado));
+        return creado;
+    }
+
+    @Transactional
+    public Optional<TurnoResponse> actualizar(Long id, TurnoRequest cambios) {
+        return actualizar(id, cambios, null);
+    }
+
+    // versionEsperada (del If-Match) null = sin chequeo. Si otro lo cambia entre la lectura y el UPDATE,
+    // el @Version hace fallar el flush con OptimisticLockingFailureException
+    @Transactional
+    public Optional<TurnoResponse> actualizar(Long id, TurnoRequest cambios, Long versionEsperada) {
+        return turnoRepository.findConClienteYDuenoById(id).map(turno -> {
+            VersionDistintaException.verificar(versionEsperada, turno.getVersion());
+            TurnoResponse anterior = TurnoResponse.de(turno);
+
+            if (cambios.fechaHora() != null) turno.setFechaHora(cambios.fechaHora());
+            if (cambios.duracionMinutos() != null) turno.setDuracionMinutos(cambios.duracionMinutos());
+            if (cambios.estado() != null) turno.setEstado(cambios.estado());
+            if (cambios.descripcion() != null) turno.setDescripcion(cambios.descripcion());
+            if (cambios.clienteId() != null) turno.setCliente(buscarUsuario(cambios.clienteId()));
+            Long duenoId = cambios.duenoId() != null ? cambios.duenoId() : turno.getDueno().getId();
+
+            // Solo se vuelve a chequear la agenda si cambia el lugar que ocupa el turno en ella
+            boolean mueveAgenda = anterior.fechaHora() == null || !anterior.fechaHora().isEqual(turno.getFechaHora())
+                    || !anterior.duracionMinutos().equals(turno.getDuracionMinutos())
+                    || !anterior.dueno().id().equals(duenoId)
+                    || (anterior.estado() == EstadoTurno.CANCELADO && turno.getEstado() != EstadoTurno.CANCELADO);
+            if (mueveAgenda) turno.setDueno(reservarAgenda(duenoId, turno));
+
+            // saveAndFlush para que la version nueva ya este en la respuesta (y en el ETag)
+            TurnoResponse actual = TurnoResponse.de(turnoRepository.saveAndFlush(turno));
+            eventPublisher.publishEvent(TurnoEvent.actualizado(anterior, actual));
+            return actual;
+        });
+    }
+
+    @Transactional
+    public boolean eliminar(Long id) {
+        return eliminar(id, null);
+    }
+
+    @Transactional
+    public boolean eliminar(Long id, Long versionEsperada) {
+        return turnoRepository.findConClienteYDuenoById(id)
+                .map(turno -> {
+                    VersionDistintaException.verificar(versionEsperada, turno.getVersion());
+                    TurnoResponse anterior = TurnoResponse.de(turno);
+                    turnoRepository.delete(turno);
+                    eventPublisher.publishEvent(TurnoEvent.eliminado(anterior));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public List<FranjaLibre> franjasLibres(Long duenoId, OffsetDateTime desde, OffsetDateTime hasta) {
+        if (!desde.isBefore(hasta) || Duration.between(desde, hasta).compareTo(VENTANA_MAXIMA_DISPONIBILIDAD) > 0) {
+            throw new IllegalArgumentException("El rango tiene que ser de hasta " + VENTANA_MAXIMA_DISPONIBILIDAD.toDays() + " días");
+        }
+        return disponibilidad.franjasLibres(duenoId, desde, hasta);
+    }
+
+    // Decide la base: con la fila del dueño bloqueada (FOR UPDATE) otra reserva concurrente del mismo dueño espera
+    // a que commiteemos. El indice en memoria no se consulta aca: es por instancia y se actualiza despues del commit,
+    // asi que puede no haber visto una cancelacion hecha en otra instancia y rechazaria un horario libre
+    private Usuario reservarAgenda(Long duenoId, Turno turno) {
+        validarDuracion(turno.getDuracionMinutos());
+        if (turno.getEstado() == EstadoTurno.CANCELADO) {
+            return buscarUsuario(duenoId);
+        }
+
+        OffsetDateTime inicio = turno.getFechaHora();
+        OffsetDateTime fin = inicio.plusMinutes(turno.getDuracionMinutos());
+
+        Usuario dueno = usuarioRepository.findByIdParaActualizar(duenoId)
+                .orElseThrow(() -> new IllegalArgumentException("Dueño no encontrado"));
+        boolean solapado = turnoRepository
+                .findOcupados(duenoId, inicio.minus(DisponibilidadIndex.DURACION_MAXIMA), fin, EstadoTurno.CANCELADO)
+                .stream()
+                .anyMatch(otro -> !Objects.equals(otro.getId(), turno.getId())
+                        && otro.getFechaHora().plusMinutes(otro.getDuracionMinutos()).isAfter(inicio));
+        if (solapado) {
+            throw new TurnoSolapadoException();
+        }
+        return dueno;
+    }
+
+    static void validarDuracion(Integer duracionMinutos) {
+        if (duracionMinutos == null || duracionMinutos < DURACION_MINIMA
+                || duracionMinutos > DisponibilidadIndex.DURACION_MAXIMA.toMinutes()) {
+            throw new IllegalArgumentException("La duración tiene que estar entre " + DURACION_MINIMA + " y "
+                    + DisponibilidadIndex.DURACION_MAXIMA.toMinutes() + " minutos");
+        }
+    }
+
+    private Usuario buscarUsuario(Long id) {
+        return usuarioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario " + id + " no encontrado"));
+    }
+}
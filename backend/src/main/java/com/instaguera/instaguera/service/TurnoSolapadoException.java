@@ -0,0 +1,9 @@
+package com.instaguera.instaguera.service;
+
+// El turno pisa otro turno del mismo dueño
+public class TurnoSolapadoException extends RuntimeException {
+
+    public TurnoSolapadoException() {
+        super("El dueño ya tiene un turno en ese horario");
+    }
+}
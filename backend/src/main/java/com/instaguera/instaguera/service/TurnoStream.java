@@ -0,0 +1,161 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.TurnoCambio;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Suscripciones a /turnos/stream (SSE). Cada TurnoEvent ya commiteado se filtra por suscriptor y se encola
+// en su buffer acotado; un hilo virtual por conexion lo vacia hacia el socket.
+// Quien publica nunca escribe en un socket: si el buffer de alguien se llena (cliente lento) se lo desconecta
+@Component
+public class TurnoStream {
+
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final int maxConexiones;
+    private final int buffer;
+    private final Duration heartbeat;
+    private final Duration timeout;
+
+    public TurnoStream(@Value("${instaguera.stream.max-conexiones:10000}") int maxConexiones,
+                       @Value("${instaguera.stream.buffer:64}") int buffer,
+                       @Value("${instaguera.stream.heartbeat:25s}") Duration heartbeat,
+                       @Value("${instaguera.stream.timeout:30m}") Duration timeout) {
+        this.maxConexiones = maxConexiones;
+        this.buffer = buffer;
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+    }
+
+    // veTodo: dueño y admin reciben todos los turnos, un cliente solo los suyos
+    public SseEmitter suscribir(Long usuarioId, boolean veTodo) {
+        if (suscripciones.size() >= maxConexiones) {
+            throw new StreamLlenoException();
+        }
+        // Al vencer el timeout el navegador (EventSource) reconecta solo
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Suscripcion suscripcion = new Suscripcion(usuarioId, veTodo, emitter, new ArrayBlockingQueue<>(buffer));
+        suscripciones.add(suscripcion);
+
+        emitter.onCompletion(suscripcion::cerrar);
+        emitter.onTimeout(suscripcion::cerrar);
+        emitter.onError(e -> suscripcion.cerrar());
+        suscripcion.hilo = Thread.ofVirtual().name("sse-" + usuarioId).start(suscripcion::enviar);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void alCambiarTurno(TurnoEvent event) {
+        long id = secuencia.incrementAndGet();
+        for (Suscripcion suscripcion : suscripciones) {
+            TurnoCambio cambio = suscripcion.vista(event);
+            if (cambio != null) suscripcion.entregar(id, cambio);
+        }
+    }
+
+    public int conexiones() {
+        return suscripciones.size();
+    }
+
+    @PreDestroy
+    public void cerrarTodo() {
+        suscripciones.forEach(Suscripcion::cerrar);
+    }
+
+    private record Pendiente(long id, TurnoCambio cambio) {}
+
+    private final class Suscripcion {
+
+        private final Long usuarioId;
+        private final boolean veTodo;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Pendiente> cola;
+        private final AtomicBoolean cerrada = new AtomicBoolean();
+        private volatile Thread hilo;
+
+        private Suscripcion(Long usuarioId, boolean veTodo, SseEmitter emitter, BlockingQueue<Pendiente> cola) {
+            this.usuarioId = usuarioId;
+            this.veTodo = veTodo;
+            this.emitter = emitter;
+            this.cola = cola;
+        }
+
+        // El evento tal como lo ve este suscriptor: si un turno deja de ser suyo le llega como ELIMINADO,
+        // si pasa a ser suyo como CREADO
+        private TurnoCambio vista(TurnoEvent event) {
+            boolean veAnterior = ve(event.anterior());
+            boolean veActual = ve(event.actual());
+            if (veAnterior && veActual) return new TurnoCambio(TurnoEvent.Tipo.ACTUALIZADO, event.actual().id(), event.actual());
+            if (veActual) return new TurnoCambio(TurnoEvent.Tipo.CREADO, event.actual().id(), event.actual());
+            if (veAnterior) return new TurnoCambio(TurnoEvent.Tipo.ELIMINADO, event.anterior().id(), null);
+            return null;
+        }
+
+        private boolean ve(TurnoResponse turno) {
+            return turno != null && (veTodo || (turno.cliente() != null && Objects.equals(turno.cliente().id(), usuarioId)));
+        }
+
+        private void entregar(long id, TurnoCambio cambio) {
+            if (!cola.offer(new Pendiente(id, cambio))) {
+                cerrar();
+            }
+        }
+
+        private void enviar() {
+            try {
+                emitter.send(SseEmitter.event().comment("conectado"));
+                while (!cerrada.get()) {
+                    Pendiente pendiente = cola.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (pendiente == null) {
+                        // Mantiene viva la conexion a traves de proxies que cortan las que estan quietas
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(pendiente.id()))
+                                .name(pendiente.cambio().tipo().name())
+                                .data(pendiente.cambio(), MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // El cliente se fue o el emitter ya estaba completo
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                cerrar();
+                emitter.complete();
+            }
+        }
+
+        // Puede llamarse desde quien publica, desde los callbacks del emitter o desde el propio hilo:
+        // solo marca, saca de la lista y despierta al hilo, que es el unico que toca el emitter
+        private void cerrar() {
+            if (cerrada.compareAndSet(false, true)) {
+                suscripciones.remove(this);
+                Thread actual = hilo;
+                if (actual != null && actual != Thread.currentThread()) actual.interrupt();
+            }
+        }
+    }
+
+    public static class StreamLlenoException extends RuntimeException {
+        public StreamLlenoException() {
+            super("Hay demasiadas conexiones abiertas, probá en un momento");
+        }
+    }
+}
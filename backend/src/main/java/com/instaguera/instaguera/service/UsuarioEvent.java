@@ -0,0 +1,26 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+
+// Cambio sobre un usuario, se publica dentro de la transaccion del UsuarioService.
+// anterior es null en CREADO y actual es null en ELIMINADO
+public record UsuarioEvent(Tipo tipo, UsuarioResumen anterior, UsuarioResumen actual) {
+
+    public enum Tipo {
+        CREADO,
+        ACTUALIZADO,
+        ELIMINADO
+    }
+
+    public static UsuarioEvent creado(UsuarioResumen actual) {
+        return new UsuarioEvent(Tipo.CREADO, null, actual);
+    }
+
+    public static UsuarioEvent actualizado(UsuarioResumen anterior, UsuarioResumen actual) {
+        return new UsuarioEvent(Tipo.ACTUALIZADO, anterior, actual);
+    }
+
+    public static UsuarioEvent eliminado(UsuarioResumen anterior) {
+        return new UsuarioEvent(Tipo.ELIMINADO, anterior, null);
+    }
+}
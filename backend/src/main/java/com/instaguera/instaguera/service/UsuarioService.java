@@ -0,0 +1,77 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Altas, cambios y bajas de usuarios. Cada cambio publica un UsuarioEvent en la misma transaccion
+@Service
+public class UsuarioService {
+
+    private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UsuarioService(UsuarioRepository usuarioRepository, ApplicationEventPublisher eventPublisher) {
+        this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public Usuario crear(Usuario usuario) {
+        Usuario creado = usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(UsuarioEvent.creado(UsuarioResumen.de(creado)));
+        return creado;
+    }
+
+    @Transactional
+    public Optional<Usuario> actualizar(Long id, Usuario cambios) {
+        return actualizar(id, cambios, null);
+    }
+
+    // versionEsperada viene del If-Match (null = sin chequeo), igual que en TurnoService
+    @Transactional
+    public Optional<Usuario> actualizar(Long id, Usuario cambios, Long versionEsperada) {
+        return usuarioRepository.findById(id).map(usuario -> {
+            VersionDistintaException.verificar(versionEsperada, usuario.getVersion());
+            UsuarioResumen anterior = UsuarioResumen.de(usuario);
+
+            if (cambios.getNombre() != null) usuario.setNombre(cambios.getNombre());
+            if (cambios.getApellido() != null) usuario.setApellido(cambios.getApellido());
+            if (cambios.getCelular() != null) usuario.setCelular(cambios.getCelular());
+            if (cambios.getUsername() != null) usuario.setUsername(cambios.getUsername());
+            if (cambios.getEmail() != null) usuario.setEmail(cambios.getEmail());
+
+            // saveAndFlush para que la version nueva ya este en la entidad que devolvemos
+            Usuario actualizado = usuarioRepository.saveAndFlush(usuario);
+            eventPublisher.publishEvent(UsuarioEvent.actualizado(anterior, UsuarioResumen.de(actualizado)));
+            return actualizado;
+        });
+    }
+
+    @Transactional
+    public boolean eliminar(Long id) {
+        return eliminar(id, null);
+    }
+
+    @Transactional
+    public boolean eliminar(Long id, Long versionEsperada) {
+        return usuarioRepository.findById(id)
+                .map(usuario -> {
+                    VersionDistintaException.verificar(versionEsperada, usuario.getVersion());
+                    UsuarioResumen anterior = UsuarioResumen.de(usuario);
+                    // Sin cargar sus turnos: los borra la base en cascada
+                    if (usuarioRepository.borrarPorId(id, usuario.getVersion()) == 0) {
+                        throw new OptimisticLockingFailureException("El usuario cambió mientras se borraba");
+                    }
+                    eventPublisher.publishEvent(UsuarioEvent.eliminado(anterior));
+                    return true;
+                })
+                .orElse(false);
+    }
+}
@@ -0,0 +1,16 @@
+package com.instaguera.instaguera.service;
+
+// El If-Match del pedido no coincide con la version actual: alguien lo cambio desde que el cliente lo leyo
+public class VersionDistintaException extends RuntimeException {
+
+    public VersionDistintaException() {
+        super("Cambió desde que lo cargaste, volvé a cargarlo antes de editar");
+    }
+
+    // esperada null = el pedido no mando If-Match, no se chequea
+    public static void verificar(Long esperada, Long actual) {
+        if (esperada != null && !esperada.equals(actual)) {
+            throw new VersionDistintaException();
+        }
+    }
+}
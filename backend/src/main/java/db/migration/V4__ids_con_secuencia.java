@@ -0,0 +1,36 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Pasa los ids de usuario y turno de IDENTITY a secuencias con incremento 50 (pooled de Hibernate).
+// Es Java y no SQL porque la secuencia tiene que arrancar despues del id mas alto que ya exista,
+// y eso no se puede escribir igual para Postgres y H2
+public class V4__ids_con_secuencia extends BaseJavaMigration {
+
+    private static final int INCREMENTO = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            pasarASecuencia(statement, "usuario");
+            pasarASecuencia(statement, "turno");
+        }
+    }
+
+    private static void pasarASecuencia(Statement statement, String tabla) throws SQLException {
+        long maximo;
+        try (ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) from " + tabla)) {
+            rs.next();
+            maximo = rs.getLong(1);
+        }
+        statement.execute("alter table " + tabla + " alter column id drop identity");
+        // Con pooled el valor de la secuencia es el tope del bloque: el primero reservado va de maximo+1 a maximo+50
+        statement.execute("create sequence " + tabla + "_seq start with " + (maximo + INCREMENTO)
+                + " increment by " + INCREMENTO);
+    }
+}
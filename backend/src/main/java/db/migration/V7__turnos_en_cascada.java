@@ -0,0 +1,49 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Las FK de turno a usuario pasan a ON DELETE CASCADE (como ya estaban las de turno_archivo): borrar un usuario
+// es un solo DELETE y la base se lleva sus turnos, en vez de que Hibernate los cargue y borre de a uno.
+// Es Java y no SQL porque V1 las creo sin nombre, y el nombre que les puso Postgres no es el mismo que en H2
+public class V7__turnos_en_cascada extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        List<String> constraints = fksAUsuario(connection.getMetaData(), "turno");
+        if (constraints.isEmpty()) constraints = fksAUsuario(connection.getMetaData(), "TURNO");
+
+        try (Statement statement = connection.createStatement()) {
+            for (String constraint : constraints) {
+                // Entre comillas: el nombre va tal cual lo da el metadata (H2 los genera en mayusculas)
+                statement.execute("alter table turno drop constraint \"" + constraint + "\"");
+            }
+            statement.execute("alter table turno add constraint fk_turno_cliente"
+                    + " foreign key (cliente_id) references usuario (id) on delete cascade");
+            statement.execute("alter table turno add constraint fk_turno_dueno"
+                    + " foreign key (dueno_id) references usuario (id) on delete cascade");
+        }
+    }
+
+    private static List<String> fksAUsuario(DatabaseMetaData metaData, String tabla) throws SQLException {
+        List<String> nombres = new ArrayList<>();
+        try (ResultSet rs = metaData.getImportedKeys(null, null, tabla)) {
+            while (rs.next()) {
+                String nombre = rs.getString("FK_NAME");
+                if ("usuario".equalsIgnoreCase(rs.getString("PKTABLE_NAME")) && !nombres.contains(nombre)) {
+                    nombres.add(nombre);
+                }
+            }
+        }
+        return nombres;
+    }
+}
@@ -0,0 +1,19 @@
+-- El sello de cada coleccion pasa de una fila a 16 partes y la version es la suma de todas.
+-- Cada transaccion incrementa una sola parte (la del dueño del turno): escrituras de agendas distintas
+-- ya no esperan todas el lock de la misma fila hasta el commit
+
+create table sello_coleccion_parte (
+    coleccion varchar(50) not null,
+    parte integer not null,
+    version bigint not null,
+    primary key (coleccion, parte)
+);
+
+-- La version que ya tenia queda en la parte 0, asi la suma sigue creciendo y ningun ETag viejo vuelve a valer
+insert into sello_coleccion_parte (coleccion, parte, version)
+select s.coleccion, p.parte, case when p.parte = 0 then s.version else 0 end
+from sello_coleccion s
+cross join (values (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15)) as p (parte);
+
+drop table sello_coleccion;
+alter table sello_coleccion_parte rename to sello_coleccion;
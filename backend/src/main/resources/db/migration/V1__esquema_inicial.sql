@@ -0,0 +1,22 @@
+-- Esquema tal cual lo venia generando Hibernate con ddl-auto=update.
+-- En bases que ya existian no se corre (baseline-on-migrate con baseline-version=1).
+
+create table usuario (
+    id bigint generated by default as identity primary key,
+    nombre varchar(255),
+    apellido varchar(255),
+    celular varchar(255),
+    username varchar(255) not null unique,
+    password varchar(255) not null,
+    role varchar(255) not null check (role in ('CLIENTE', 'DUENO', 'ADMIN')),
+    email varchar(255) not null unique
+);
+
+create table turno (
+    id bigint generated by default as identity primary key,
+    fecha_hora timestamp(6) with time zone,
+    estado varchar(255) not null check (estado in ('SOLICITADO', 'CONFIRMADO', 'CANCELADO', 'COMPLETADO')),
+    descripcion varchar(500),
+    cliente_id bigint not null references usuario (id),
+    dueno_id bigint not null references usuario (id)
+);
@@ -0,0 +1,29 @@
+-- Indices para las consultas de TurnoRepository / UsuarioRepository.
+-- Todos terminan en id porque el listado pagina por cursor sobre (fecha_hora, id).
+
+-- Duracion de los turnos: no estaba en el esquema de base. Una base que corrio con ddl-auto=update
+-- despues de agregarla a la entidad ya la tiene (nullable y sin default), por eso el if not exists
+alter table turno add column if not exists duracion_minutos integer;
+update turno set duracion_minutos = 60 where duracion_minutos is null;
+alter table turno alter column duracion_minutos set default 60;
+alter table turno alter column duracion_minutos set not null;
+
+-- El keyset del listado no funciona con fechas nulas. Los turnos viejos sin fecha quedan al principio
+-- de la historia en vez de perderse
+update turno set fecha_hora = timestamp with time zone '1970-01-01 00:00:00+00' where fecha_hora is null;
+alter table turno alter column fecha_hora set not null;
+
+-- GET /turnos?duenoId=..., agenda del dueño y chequeo de solapamientos
+create index idx_turno_dueno_fecha on turno (dueno_id, fecha_hora, id);
+
+-- GET /turnos?clienteId=... (panel del cliente)
+create index idx_turno_cliente_fecha on turno (cliente_id, fecha_hora, id);
+
+-- GET /turnos sin filtros o solo por rango de fechas
+create index idx_turno_fecha on turno (fecha_hora, id);
+
+-- GET /turnos?estado=...
+create index idx_turno_estado_fecha on turno (estado, fecha_hora, id);
+
+-- findByRole (GET /usuarios/clientes)
+create index idx_usuario_role on usuario (role, id);
@@ -0,0 +1,11 @@
+-- Version por fila (@Version) y un contador de cambios por coleccion para los ETag de los listados
+
+alter table usuario add column version bigint default 0 not null;
+alter table turno add column version bigint default 0 not null;
+
+create table sello_coleccion (
+    coleccion varchar(50) primary key,
+    version bigint not null
+);
+
+insert into sello_coleccion (coleccion, version) values ('turnos', 0), ('usuarios', 0);
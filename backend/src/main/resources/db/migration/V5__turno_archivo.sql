@@ -0,0 +1,20 @@
+-- Turnos terminados (COMPLETADO / CANCELADO) mas viejos que instaguera.archivo.edad.
+-- Los mueve ArchivoTurnos por lotes; las consultas de todos los dias quedan sobre turno, que solo tiene lo activo.
+-- Mismo id que tenian en turno. Si se borra el usuario se va tambien su historia, igual que sus turnos activos
+
+create table turno_archivo (
+    id bigint primary key,
+    version bigint default 0 not null,
+    fecha_hora timestamp(6) with time zone not null,
+    estado varchar(255) not null check (estado in ('SOLICITADO', 'CONFIRMADO', 'CANCELADO', 'COMPLETADO')),
+    duracion_minutos integer default 60 not null,
+    descripcion varchar(500),
+    cliente_id bigint not null references usuario (id) on delete cascade,
+    dueno_id bigint not null references usuario (id) on delete cascade,
+    archivado_en timestamp(6) with time zone not null
+);
+
+-- Mismo keyset (fecha_hora, id) que el listado de turnos
+create index idx_turno_archivo_dueno_fecha on turno_archivo (dueno_id, fecha_hora, id);
+create index idx_turno_archivo_cliente_fecha on turno_archivo (cliente_id, fecha_hora, id);
+create index idx_turno_archivo_fecha on turno_archivo (fecha_hora, id);
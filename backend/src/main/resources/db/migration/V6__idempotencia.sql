@@ -0,0 +1,17 @@
+-- Respuestas guardadas por Idempotency-Key (POST /turnos y /turnos/batch), para que un reintento
+-- del mismo pedido devuelva lo mismo en vez de crear otro turno. La clave es por usuario.
+-- status null = el primer pedido todavia se esta procesando. Se borran al vencer expira_en
+
+create table idempotencia (
+    sujeto varchar(255) not null,
+    clave varchar(255) not null,
+    huella varchar(64) not null,
+    status integer,
+    cuerpo varchar(1000000),
+    creado_en timestamp(6) with time zone not null,
+    expira_en timestamp(6) with time zone not null,
+    primary key (sujeto, clave)
+);
+
+-- Limpieza de las vencidas
+create index idx_idempotencia_expira on idempotencia (expira_en);
@@ -0,0 +1,25 @@
+-- Outbox de notificaciones a clientes (recordatorios y cambios de estado de turnos).
+-- Las filas se escriben en la misma transaccion que el cambio del turno (NotificacionesTurno) y
+-- las entrega DespachoNotificaciones, que toma las vencidas con FOR UPDATE SKIP LOCKED.
+-- Si se borra el turno (o el usuario) se van tambien sus notificaciones
+
+create sequence notificacion_seq start with 1 increment by 50;
+
+create table notificacion (
+    id bigint primary key,
+    turno_id bigint not null references turno (id) on delete cascade,
+    destinatario_id bigint not null references usuario (id) on delete cascade,
+    tipo varchar(255) not null check (tipo in ('RECORDATORIO', 'CAMBIO_ESTADO')),
+    estado varchar(255) not null check (estado in ('PENDIENTE', 'ENVIADA', 'FALLIDA')),
+    celular varchar(255),
+    mensaje varchar(1000) not null,
+    enviar_en timestamp(6) with time zone not null,
+    intentos integer default 0 not null,
+    ultimo_error varchar(1000),
+    enviada_en timestamp(6) with time zone
+);
+
+-- El despacho solo mira las pendientes ya vencidas, en orden: nunca recorre turno ni lo ya enviado
+create index idx_notificacion_estado_enviar on notificacion (estado, enviar_en, id);
+-- Para anular los recordatorios pendientes de un turno cuando cambia
+create index idx_notificacion_turno on notificacion (turno_id);
@@ -0,0 +1,17 @@
+-- Imagenes de la galeria. Los archivos estan en disco (instaguera.media.directorio) con el SHA-256
+-- del contenido como nombre, asi que una misma foto subida dos veces es una sola fila y un solo archivo.
+-- variantes_listas = ya se generaron la miniatura y la mediana (las arma GaleriaService en segundo plano)
+
+create sequence imagen_seq start with 1 increment by 50;
+
+create table imagen (
+    id bigint primary key,
+    hash varchar(64) not null unique,
+    extension varchar(8) not null,
+    ancho integer not null,
+    alto integer not null,
+    bytes bigint not null,
+    variantes_listas boolean default false not null,
+    subida_por bigint references usuario (id) on delete set null,
+    creada_en timestamp(6) with time zone not null
+);
@@ -0,0 +1,73 @@
+package com.instaguera.instaguera;
+
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.TurnoRepository;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import com.instaguera.instaguera.service.BuscadorClientes;
+import com.instaguera.instaguera.service.DisponibilidadIndex;
+import com.instaguera.instaguera.service.TurnoEstadisticas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+// Lo que comparten los tests que arrancan con un dueño (Thiago) y una clienta (Ana).
+// Los indices en memoria viven en el contexto de Spring, que se reusa entre clases de test: se vacian aca,
+// antes y despues de cada test, para que ninguno vea agendas, contadores o clientes de otro.
+public abstract class EscenarioBase {
+
+	protected static final OffsetDateTime MANIANA_10 = OffsetDateTime.now(ZoneOffset.UTC)
+			.plusDays(1).truncatedTo(ChronoUnit.DAYS).plusHours(10);
+	protected static final OffsetDateTime MANIANA_15 = MANIANA_10.plusHours(5);
+
+	@Autowired
+	protected TurnoRepository turnoRepository;
+
+	@Autowired
+	protected UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private DisponibilidadIndex disponibilidad;
+
+	@Autowired
+	private TurnoEstadisticas estadisticas;
+
+	@Autowired
+	private BuscadorClientes buscador;
+
+	protected Usuario dueno;
+	protected Usuario cliente;
+
+	@BeforeEach
+	protected void crearDuenoYCliente() {
+		reiniciarIndices();
+		dueno = usuarioRepository.save(new Usuario("Thiago", "Tatuador", "111", "thiago", "x", Role.DUENO, "thiago@test.com"));
+		cliente = usuarioRepository.save(new Usuario("Ana", "Perez", "222", "ana", "x", Role.CLIENTE, "ana@test.com"));
+	}
+
+	// Corre despues del @AfterEach de la subclase: ahi se borran primero las tablas que apuntan a turnos o usuarios
+	@AfterEach
+	protected void limpiarEscenario() {
+		turnoRepository.deleteAllInBatch();
+		usuarioRepository.deleteAllInBatch();
+		reiniciarIndices();
+	}
+
+	// Los borrados de arriba no pasan por eventos: los indices se vuelven a cargar en la proxima consulta
+	protected void reiniciarIndices() {
+		disponibilidad.invalidarTodo();
+		estadisticas.invalidar();
+		buscador.invalidarTodo();
+	}
+
+	protected TurnoRequest pedido(OffsetDateTime fechaHora, int duracionMinutos) {
+		return new TurnoRequest(fechaHora, duracionMinutos, EstadoTurno.SOLICITADO, "tatuaje",
+				new TurnoRequest.Ref(cliente.getId()), new TurnoRequest.Ref(dueno.getId()));
+	}
+}
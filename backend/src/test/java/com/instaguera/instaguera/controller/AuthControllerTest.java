@@ -0,0 +1,110 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+		"instaguera.login.throttle.email.capacidad=3", "instaguera.login.throttle.email.recarga=1h",
+		"instaguera.login.throttle.ip.capacidad=5", "instaguera.login.throttle.ip.recarga=1h"})
+class AuthControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	void limpiar() {
+		usuarioRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void loginDevuelveTokenYResumenSinVolverABuscarAlUsuario() throws Exception {
+		Usuario ana = usuarioRepository.save(new Usuario("Ana", "Perez", "222", "ana",
+				passwordEncoder.encode("secreta"), Role.CLIENTE, "login@test.com"));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mockMvc.perform(post("/auth/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"login@test.com\",\"password\":\"secreta\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.token").isNotEmpty())
+				.andExpect(jsonPath("$.user.id").value(ana.getId()))
+				.andExpect(jsonPath("$.user.email").value("login@test.com"))
+				.andExpect(jsonPath("$.user.username").value("ana"))
+				.andExpect(jsonPath("$.user.role").value("CLIENTE"))
+				.andExpect(jsonPath("$.user.password").doesNotExist())
+				.andExpect(jsonPath("$.user.turnos").doesNotExist());
+
+		// Solo el SELECT del UserDetailsService: despues de authenticate no se vuelve a buscar por email
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void demasiadosIntentosConUnEmailDan429ConRetryAfter() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			int status = login("ana@test.com", "10.0.0.1").andReturn().getResponse().getStatus();
+			assertThat(status).isNotEqualTo(429);
+		}
+
+		login("ana@test.com", "10.0.0.1")
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string("Retry-After", "10"));
+		// Otro email desde la misma IP sigue pudiendo
+		assertThat(login("otra@test.com", "10.0.0.1").andReturn().getResponse().getStatus()).isNotEqualTo(429);
+	}
+
+	@Test
+	void elLimitePorIpEsDeCadaIpYNoDeTodos() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			int status = login("ip" + i + "@test.com", "10.0.0.2").andReturn().getResponse().getStatus();
+			assertThat(status).isNotEqualTo(429);
+		}
+
+		login("ip5@test.com", "10.0.0.2")
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string("Retry-After", "10"));
+		// Desde otra IP el mismo email no esta frenado
+		assertThat(login("ip5@test.com", "10.0.0.3").andReturn().getResponse().getStatus()).isNotEqualTo(429);
+	}
+
+	private ResultActions login(String email, String ip) throws Exception {
+		return mockMvc.perform(post("/auth/login")
+				.with(request -> {
+					request.setRemoteAddr(ip);
+					return request;
+				})
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"incorrecta\"}"));
+	}
+}
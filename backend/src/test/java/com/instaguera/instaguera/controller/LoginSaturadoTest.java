@@ -0,0 +1,117 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// El pool de BCrypt con un hilo y un lugar en la cola, y un "hash" que no termina hasta que el test lo suelta:
+// con dos logins adentro el tercero tiene que cortar enseguida con 503 en vez de quedarse esperando
+@SpringBootTest(properties = "spring.main.allow-bean-definition-overriding=true")
+@AutoConfigureMockMvc
+class LoginSaturadoTest {
+
+	private static final CountDownLatch SOLTAR = new CountDownLatch(1);
+	private static final String TRABA = "traba";
+
+	@TestConfiguration
+	static class PoolChico {
+
+		@Bean
+		public BoundedPasswordEncoder passwordEncoder(MeterRegistry registry) {
+			PasswordEncoder trabado = new PasswordEncoder() {
+				@Override
+				public String encode(CharSequence rawPassword) {
+					return rawPassword.toString();
+				}
+
+				@Override
+				public boolean matches(CharSequence rawPassword, String encodedPassword) {
+					if (!TRABA.contentEquals(rawPassword)) return false;
+					try {
+						SOLTAR.await(30, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return false;
+				}
+			};
+			return new BoundedPasswordEncoder(trabado, 1, 1, Duration.ofSeconds(30), registry);
+		}
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BoundedPasswordEncoder passwordEncoder;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final ExecutorService enCurso = Executors.newFixedThreadPool(2);
+
+	@AfterEach
+	void soltar() throws InterruptedException {
+		SOLTAR.countDown();
+		enCurso.shutdown();
+		enCurso.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void conLaColaDelPoolLlenaElLoginDa503() throws Exception {
+		// El primer login hace ademas el encode de la proteccion contra timing (tambien por el pool): que pase
+		// antes, si no ese encode puede ocupar el lugar de la cola que el test quiere para el segundo login
+		login("calentar@test.com", "10.1.0.9", "libre").andExpect(status().isForbidden());
+
+		// Uno calculando y otro esperando en la cola
+		enCurso.submit(() -> login("uno@test.com", "10.1.0.1", TRABA));
+		esperar(() -> passwordEncoder.activos() == 1, "el primer login llega al pool");
+		enCurso.submit(() -> login("dos@test.com", "10.1.0.2", TRABA));
+		esperar(() -> passwordEncoder.enCola() == 1, "el segundo login queda en la cola");
+
+		login("tres@test.com", "10.1.0.3", TRABA)
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "2"));
+		assertThat(registry.get("instaguera.bcrypt.rechazos").counter().count()).isEqualTo(1);
+	}
+
+	private void esperar(BooleanSupplier condicion, String que) throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condicion.getAsBoolean()) {
+			assertThat(System.nanoTime()).as(que).isLessThan(limite);
+			Thread.sleep(5);
+		}
+	}
+
+	private ResultActions login(String email, String ip, String password) throws Exception {
+		return mockMvc.perform(post("/auth/login")
+				.with(request -> {
+					request.setRemoteAddr(ip);
+					return request;
+				})
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"));
+	}
+}
@@ -0,0 +1,128 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.repository.ImagenRepository;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.anonymous;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MediaControllerTest extends EscenarioBase {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ImagenRepository imagenRepository;
+
+	@AfterEach
+	void limpiar() {
+		imagenRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void elDuenoSubeYLaGaleriaSirveMiniaturasCacheables() throws Exception {
+		MockMultipartFile foto = new MockMultipartFile("archivo", "brazo.png", "image/png", png(1600, 1000));
+
+		mockMvc.perform(multipart("/media").file(foto).with(user(UsuarioPrincipal.de(cliente))))
+				.andExpect(status().isForbidden());
+		String original = JsonPath.read(mockMvc.perform(multipart("/media").file(foto).with(user(UsuarioPrincipal.de(dueno))))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.ancho").value(1600))
+				.andReturn().getResponse().getContentAsString(), "$.original");
+		// Misma foto otra vez: mismo hash, no se duplica
+		mockMvc.perform(multipart("/media").file(foto).with(user(UsuarioPrincipal.de(dueno))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.original").value(original));
+
+		String miniatura = esperarMiniatura(original);
+		MockHttpServletResponse respuesta = mockMvc.perform(get(miniatura).with(anonymous()))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, EnvioArchivo.CACHE_INMUTABLE))
+				.andReturn().getResponse();
+		BufferedImage chica = ImageIO.read(new ByteArrayInputStream(respuesta.getContentAsByteArray()));
+		assertThat(chica.getWidth()).isEqualTo(400);
+		assertThat(chica.getHeight()).isEqualTo(250);
+		assertThat(respuesta.getContentAsByteArray().length).isLessThan(foto.getBytes().length);
+
+		mockMvc.perform(get(miniatura).with(anonymous()).header(HttpHeaders.IF_NONE_MATCH, respuesta.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void rangosYNombresInvalidos() throws Exception {
+		byte[] contenido = png(300, 200);
+		String original = JsonPath.read(mockMvc.perform(multipart("/media")
+						.file(new MockMultipartFile("archivo", "a.png", "image/png", contenido))
+						.with(user(UsuarioPrincipal.de(dueno))))
+				.andReturn().getResponse().getContentAsString(), "$.original");
+
+		MockHttpServletResponse parcial = mockMvc.perform(get(original).with(anonymous()).header(HttpHeaders.RANGE, "bytes=0-9"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + contenido.length))
+				.andReturn().getResponse();
+		assertThat(parcial.getContentAsByteArray()).isEqualTo(Arrays.copyOf(contenido, 10));
+
+		mockMvc.perform(get(original).with(anonymous()).header(HttpHeaders.RANGE, "bytes=" + contenido.length + "-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+		mockMvc.perform(get("/media/no-es-un-hash.jpg").with(anonymous()))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(multipart("/media")
+						.file(new MockMultipartFile("archivo", "a.txt", "text/plain", "hola".getBytes()))
+						.with(user(UsuarioPrincipal.de(dueno))))
+				.andExpect(status().isBadRequest());
+	}
+
+	private String esperarMiniatura(String original) throws Exception {
+		long limite = System.nanoTime() + 10_000_000_000L;
+		while (System.nanoTime() < limite) {
+			String miniatura = JsonPath.read(mockMvc.perform(get("/media").with(anonymous()))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString(), "$[0].miniatura");
+			if (!miniatura.equals(original)) return miniatura;
+			Thread.sleep(50);
+		}
+		throw new AssertionError("No se generaron las variantes de " + original);
+	}
+
+	// Un degrade, asi cada tamaño da otro contenido (y otro hash)
+	private static byte[] png(int ancho, int alto) throws Exception {
+		BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = imagen.createGraphics();
+		for (int x = 0; x < ancho; x += 10) {
+			g.setColor(new Color(x * 255 / ancho, 80, 255 - x * 255 / ancho));
+			g.fillRect(x, 0, 10, alto);
+		}
+		g.dispose();
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		ImageIO.write(imagen, "png", salida);
+		return salida.toByteArray();
+	}
+}
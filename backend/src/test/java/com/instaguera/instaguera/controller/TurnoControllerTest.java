@@ -0,0 +1,196 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.UsuarioService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class TurnoControllerTest extends EscenarioBase {
+
+	private static final int CLIENTES = 5;
+	private static final int TURNOS_POR_CLIENTE = 4;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UsuarioService usuarioService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void cargarTurnos() {
+		OffsetDateTime inicio = OffsetDateTime.of(2030, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+
+		for (int c = 0; c < CLIENTES; c++) {
+			Usuario otro = usuarioRepository.save(
+					new Usuario("Cliente" + c, "Apellido", "222", "cliente" + c, "x", Role.CLIENTE, "cliente" + c + "@test.com"));
+			for (int t = 0; t < TURNOS_POR_CLIENTE; t++) {
+				turnoRepository.save(new Turno(inicio.plusDays(c * TURNOS_POR_CLIENTE + t), EstadoTurno.SOLICITADO,
+						"turno " + t, otro, dueno));
+			}
+		}
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void listarTurnosEsUnSoloSelect() throws Exception {
+		mockMvc.perform(get("/turnos"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(CLIENTES * TURNOS_POR_CLIENTE))
+				.andExpect(jsonPath("$[0].cliente.nombre").value("Cliente0"))
+				.andExpect(jsonPath("$[0].dueno.nombre").value("Thiago"))
+				.andExpect(jsonPath("$[0].cliente.password").doesNotExist());
+
+		// El sello de la coleccion (para el ETag) + la pagina
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void lasMetricasCuentanLasSentenciasDelRequest() throws Exception {
+		double antes = sentenciasDe("/turnos");
+		mockMvc.perform(get("/turnos")).andExpect(status().isOk());
+
+		// Lo mismo que ve Hibernate: el sello y la pagina, y nada fuera del request
+		assertThat(sentenciasDe("/turnos") - antes).isEqualTo(statistics.getPrepareStatementCount());
+		assertThat(meterRegistry.get("instaguera.sql.tiempo").tag("uri", "/turnos").timer().count()).isPositive();
+	}
+
+	private double sentenciasDe(String uri) {
+		DistributionSummary resumen = meterRegistry.find("instaguera.sql.sentencias").tag("uri", uri).summary();
+		return resumen == null ? 0 : resumen.totalAmount();
+	}
+
+	@Test
+	void paginaConCursorTambienEsUnSoloSelect() throws Exception {
+		String cursor = mockMvc.perform(get("/turnos").param("limite", "3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andReturn().getResponse().getHeader(TurnoController.HEADER_CURSOR);
+		statistics.clear();
+
+		mockMvc.perform(get("/turnos").param("limite", "3").param("cursor", cursor))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].descripcion").value("turno 3"));
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void sinCambiosRespondeNotModifiedSinLeerTurnos() throws Exception {
+		String etag = mockMvc.perform(get("/turnos").param("limite", "3"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		statistics.clear();
+
+		mockMvc.perform(get("/turnos").param("limite", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		// Solo el sello
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		// Otros parametros, otro ETag
+		mockMvc.perform(get("/turnos").param("limite", "4").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+
+		// Cambiar un cliente cambia los listados de turnos (llevan sus datos)
+		Usuario cliente0 = usuarioRepository.findByEmail("cliente0@test.com").orElseThrow();
+		Usuario cambios = new Usuario();
+		cambios.setNombre("Renombrado");
+		usuarioService.actualizar(cliente0.getId(), cambios);
+
+		mockMvc.perform(get("/turnos").param("limite", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].cliente.nombre").value("Renombrado"));
+	}
+
+	@Test
+	void exportSaleFilaPorFilaSinCargarEntidades() throws Exception {
+		String csv = mockMvc.perform(get("/turnos/export").param("estado", "SOLICITADO")
+						.with(user(UsuarioPrincipal.de(dueno))))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("text/csv"))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lineas = csv.split("\r\n");
+		assertThat(lineas).hasSize(1 + CLIENTES * TURNOS_POR_CLIENTE);
+		assertThat(lineas[0]).startsWith("id,fecha_hora,");
+		assertThat(lineas[1]).contains("Cliente0", "Thiago");
+		// Proyecciones, no entidades: nada queda en el contexto de persistencia
+		assertThat(statistics.getEntityLoadCount()).isZero();
+
+		String ndjson = mockMvc.perform(get("/turnos/export").param("formato", "ndjson")
+						.param("clienteId", lineas[1].split(",")[5])
+						.with(user(UsuarioPrincipal.de(dueno))))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		assertThat(ndjson.split("\n")).hasSize(TURNOS_POR_CLIENTE);
+	}
+
+	@Test
+	void statsDeOtroDuenoSoloLasVeElAdmin() throws Exception {
+		Usuario otroDueno = usuarioRepository.save(
+				new Usuario("Otro", "Tatuador", "333", "otro", "x", Role.DUENO, "otro@test.com"));
+		Usuario admin = usuarioRepository.save(
+				new Usuario("Admin", "Estudio", "444", "admin", "x", Role.ADMIN, "admin@test.com"));
+
+		// Un dueño que pide las de otro recibe las suyas
+		mockMvc.perform(get("/turnos/stats").param("duenoId", dueno.getId().toString())
+						.with(user(UsuarioPrincipal.de(otroDueno))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.duenoId").value(otroDueno.getId()))
+				.andExpect(jsonPath("$.porEstado.SOLICITADO").value(0));
+
+		mockMvc.perform(get("/turnos/stats").param("duenoId", dueno.getId().toString())
+						.with(user(UsuarioPrincipal.de(admin))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.duenoId").value(dueno.getId()))
+				.andExpect(jsonPath("$.porEstado.SOLICITADO").value(CLIENTES * TURNOS_POR_CLIENTE));
+		mockMvc.perform(get("/turnos/stats").with(user(UsuarioPrincipal.de(admin))))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/turnos/stats").with(user(UsuarioPrincipal.de(cliente))))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void exportNoEsParaClientes() throws Exception {
+		mockMvc.perform(get("/usuarios/export").with(user(UsuarioPrincipal.de(cliente))))
+				.andExpect(status().isForbidden());
+	}
+}
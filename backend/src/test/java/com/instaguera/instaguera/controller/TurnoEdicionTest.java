@@ -0,0 +1,126 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.repository.RespuestaIdempotenteRepository;
+import com.instaguera.instaguera.service.Idempotencia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class TurnoEdicionTest extends EscenarioBase {
+
+	private static final OffsetDateTime INICIO = OffsetDateTime.of(2030, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RespuestaIdempotenteRepository respuestaIdempotenteRepository;
+
+	private Turno turno;
+
+	@BeforeEach
+	void setUp() {
+		turno = turnoRepository.save(new Turno(INICIO, EstadoTurno.SOLICITADO, "brazo", cliente, dueno));
+	}
+
+	@AfterEach
+	void limpiar() {
+		respuestaIdempotenteRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void ifMatchRechazaEdicionesSobreUnaVersionVieja() throws Exception {
+		String etag = mockMvc.perform(get("/turnos/{id}", turno.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.version").value(0))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).isEqualTo("\"0\"");
+
+		mockMvc.perform(get("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(patch("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"estado\":\"CONFIRMADO\"}"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.version").value(1));
+
+		// Otro cliente que leyo antes del cambio no lo pisa
+		mockMvc.perform(patch("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"estado\":\"CANCELADO\"}"))
+				.andExpect(status().isPreconditionFailed());
+		mockMvc.perform(delete("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_MATCH, etag))
+				.andExpect(status().isPreconditionFailed());
+		assertThat(turnoRepository.findById(turno.getId()).orElseThrow().getEstado()).isEqualTo(EstadoTurno.CONFIRMADO);
+
+		mockMvc.perform(patch("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_MATCH, "no-es-un-etag")
+						.contentType(MediaType.APPLICATION_JSON).content("{}"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(delete("/turnos/{id}", turno.getId()).header(HttpHeaders.IF_MATCH, "\"1\""))
+				.andExpect(status().isNoContent());
+	}
+
+	@Test
+	void reintentoConLaMismaClaveNoDuplica() throws Exception {
+		String pedido = """
+				{"fechaHora":"2030-01-02T10:00:00Z","duracionMinutos":60,"descripcion":"espalda",
+				 "cliente":{"id":%d},"dueno":{"id":%d}}""".formatted(cliente.getId(), dueno.getId());
+
+		String primera = mockMvc.perform(post("/turnos").header(Idempotencia.HEADER, "clave-1")
+						.contentType(MediaType.APPLICATION_JSON).content(pedido))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(Idempotencia.HEADER_REPETIDA))
+				.andReturn().getResponse().getContentAsString();
+
+		String segunda = mockMvc.perform(post("/turnos").header(Idempotencia.HEADER, "clave-1")
+						.contentType(MediaType.APPLICATION_JSON).content(pedido))
+				.andExpect(status().isOk())
+				.andExpect(header().string(Idempotencia.HEADER_REPETIDA, "true"))
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(segunda).isEqualTo(primera);
+		assertThat(turnoRepository.count()).isEqualTo(2);
+
+		// La misma clave con otro pedido es un error del cliente
+		mockMvc.perform(post("/turnos").header(Idempotencia.HEADER, "clave-1")
+						.contentType(MediaType.APPLICATION_JSON).content(pedido.replace("espalda", "pierna")))
+				.andExpect(status().isUnprocessableEntity());
+
+		// Los errores del pedido tambien se repiten, no se reintenta el alta
+		String solapado = pedido.replace("2030-01-02", "2030-01-01");
+		mockMvc.perform(post("/turnos").header(Idempotencia.HEADER, "clave-2")
+						.contentType(MediaType.APPLICATION_JSON).content(solapado))
+				.andExpect(status().isConflict());
+		mockMvc.perform(post("/turnos").header(Idempotencia.HEADER, "clave-2")
+						.contentType(MediaType.APPLICATION_JSON).content(solapado))
+				.andExpect(status().isConflict())
+				.andExpect(header().string(Idempotencia.HEADER_REPETIDA, "true"))
+				.andExpect(content().json("{\"message\":\"El dueño ya tiene un turno en ese horario\"}"));
+	}
+}
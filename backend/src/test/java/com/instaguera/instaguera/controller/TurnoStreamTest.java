@@ -0,0 +1,82 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.security.UsuarioPrincipal;
+import com.instaguera.instaguera.service.TurnoService;
+import com.instaguera.instaguera.service.TurnoStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TurnoStreamTest extends EscenarioBase {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TurnoService turnoService;
+
+	@Autowired
+	private TurnoStream turnoStream;
+
+	private Usuario otroCliente;
+
+	@BeforeEach
+	void setUp() {
+		otroCliente = usuarioRepository.save(new Usuario("Juan", "Gomez", "333", "juan", "x", Role.CLIENTE, "juan@test.com"));
+	}
+
+	@AfterEach
+	void limpiar() {
+		turnoStream.cerrarTodo();
+	}
+
+	@Test
+	void cadaSuscriptorRecibeSoloLosTurnosQuePuedeVer() throws Exception {
+		MockHttpServletResponse delDueno = suscribir(dueno);
+		MockHttpServletResponse delCliente = suscribir(cliente);
+		MockHttpServletResponse delOtroCliente = suscribir(otroCliente);
+
+		turnoService.crear(new TurnoRequest(MANIANA_10, 60, null, "brazo",
+				new TurnoRequest.Ref(cliente.getId()), new TurnoRequest.Ref(dueno.getId())));
+
+		// El nombre del evento y el data se escriben por separado: se espera al data
+		assertThat(esperarEvento(delDueno, "\"descripcion\":\"brazo\"")).contains("event:CREADO");
+		assertThat(esperarEvento(delCliente, "\"descripcion\":\"brazo\"")).contains("event:CREADO");
+		assertThat(delOtroCliente.getContentAsString()).doesNotContain("CREADO");
+	}
+
+	private MockHttpServletResponse suscribir(Usuario usuario) throws Exception {
+		MockHttpServletResponse response = mockMvc.perform(get("/turnos/stream").with(user(UsuarioPrincipal.de(usuario))))
+				.andExpect(request().asyncStarted())
+				.andReturn().getResponse();
+		esperarEvento(response, ":conectado");
+		return response;
+	}
+
+	private static String esperarEvento(MockHttpServletResponse response, String buscado) throws Exception {
+		long limite = System.nanoTime() + 5_000_000_000L;
+		while (System.nanoTime() < limite) {
+			String contenido = response.getContentAsString();
+			if (contenido.contains(buscado)) return contenido;
+			Thread.sleep(20);
+		}
+		throw new AssertionError("No llego " + buscado + " al stream: " + response.getContentAsString());
+	}
+}
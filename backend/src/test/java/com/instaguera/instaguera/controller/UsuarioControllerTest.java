@@ -0,0 +1,137 @@
+package com.instaguera.instaguera.controller;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.model.Usuario;
+import com.instaguera.instaguera.service.BajaUsuarios;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class UsuarioControllerTest extends EscenarioBase {
+
+	private static final int CLIENTES = 5;
+	private static final int TURNOS = 40;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BajaUsuarios bajaUsuarios;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void cargarUsuarios() {
+		// Ana (la del escenario) y cuatro mas
+		for (int c = 0; c < CLIENTES - 1; c++) {
+			usuarioRepository.save(
+					new Usuario("Cliente" + c, "Apellido", "222", "cliente" + c, "x", Role.CLIENTE, "cliente" + c + "@test.com"));
+		}
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void clientesPaginadosSinPasswordNiEntidades() throws Exception {
+		MvcResult primera = mockMvc.perform(get("/usuarios/clientes").param("limite", "3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].nombre").value("Ana"))
+				.andExpect(jsonPath("$[0].password").doesNotExist())
+				.andExpect(jsonPath("$[0].turnosComoCliente").doesNotExist())
+				.andExpect(header().exists(TurnoController.HEADER_CURSOR))
+				.andReturn();
+
+		mockMvc.perform(get("/usuarios/clientes").param("limite", "3")
+						.param("cursor", primera.getResponse().getHeader(TurnoController.HEADER_CURSOR)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(CLIENTES - 3))
+				.andExpect(jsonPath("$[0].nombre").value("Cliente2"))
+				.andExpect(header().doesNotExist(TurnoController.HEADER_CURSOR));
+
+		// Proyecciones: ninguna entidad Usuario se armo para contestar
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void filtraPorRolYRechazaCursorInvalido() throws Exception {
+		mockMvc.perform(get("/usuarios"))
+				.andExpect(jsonPath("$.length()").value(CLIENTES + 1));
+		mockMvc.perform(get("/usuarios").param("role", "DUENO"))
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].username").value("thiago"));
+		mockMvc.perform(get("/usuarios").param("cursor", "no-es-un-cursor"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void borrarUnDuenoSeLlevaSusTurnosSinCargarlos() throws Exception {
+		cargarTurnos();
+		statistics.clear();
+
+		mockMvc.perform(delete("/usuarios/{id}", dueno.getId()))
+				.andExpect(status().isOk());
+
+		assertThat(turnoRepository.count()).isZero();
+		// Solo el usuario: los turnos los borra la base en cascada, no Hibernate de a uno
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(5);
+	}
+
+	@Test
+	void bajaAsyncBorraPorLotesEnSegundoPlano() throws Exception {
+		cargarTurnos();
+
+		mockMvc.perform(delete("/usuarios/{id}", dueno.getId()).param("async", "true").header("If-Match", "\"99\""))
+				.andExpect(status().isPreconditionFailed());
+		mockMvc.perform(delete("/usuarios/{id}", dueno.getId()).param("async", "true"))
+				.andExpect(status().isAccepted());
+
+		long limite = System.nanoTime() + 5_000_000_000L;
+		while (bajaUsuarios.enCurso(dueno.getId()) && System.nanoTime() < limite) {
+			Thread.sleep(20);
+		}
+		assertThat(usuarioRepository.existsById(dueno.getId())).isFalse();
+		assertThat(turnoRepository.count()).isZero();
+		assertThat(usuarioRepository.count()).isEqualTo(CLIENTES);
+	}
+
+	private void cargarTurnos() {
+		List<Usuario> clientes = usuarioRepository.findAll().stream().filter(u -> u.getRole() == Role.CLIENTE).toList();
+		OffsetDateTime inicio = OffsetDateTime.of(2030, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+		List<Turno> turnos = new ArrayList<>();
+		for (int t = 0; t < TURNOS; t++) {
+			turnos.add(new Turno(inicio.plusDays(t), EstadoTurno.SOLICITADO, "turno " + t, clientes.get(t % CLIENTES), dueno));
+		}
+		turnoRepository.saveAll(turnos);
+	}
+}
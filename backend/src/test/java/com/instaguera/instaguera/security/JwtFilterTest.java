@@ -0,0 +1,117 @@
+package com.instaguera.instaguera.security;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtFilterTest {
+
+	private static final FilterChain NO_OP = (request, response) -> {};
+
+	private final Key key = Keys.hmacShaKeyFor("claveDeTestQueTambienTieneQueSerBastanteLarga123456".getBytes());
+	private final JwtUtil jwtUtil = new JwtUtil(key);
+	private final Map<String, UsuarioPrincipal> usuarios = new HashMap<>();
+	private JwtFilter filtro;
+
+	@BeforeEach
+	void setUp() {
+		filtro = new JwtFilter(jwtUtil, email -> {
+			UsuarioPrincipal principal = usuarios.get(email);
+			if (principal == null) throw new UsernameNotFoundException("Usuario no encontrado");
+			return principal;
+		}, new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void limpiarContexto() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void tokenConClaimsAutenticaAlUsuario() throws Exception {
+		UsuarioPrincipal ana = guardar(1L, "ana@test.com", Role.CLIENTE);
+
+		Authentication auth = autenticar(jwtUtil.generateToken(ana));
+
+		assertThat(auth).isNotNull();
+		assertThat(auth.getPrincipal()).isSameAs(ana);
+		assertThat(auth.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_CLIENTE");
+	}
+
+	@Test
+	void tokenViejoSinClaimsSeValidaPorEmail() throws Exception {
+		UsuarioPrincipal ana = guardar(1L, "ana@test.com", Role.CLIENTE);
+		String legado = Jwts.builder()
+				.setSubject("ana@test.com")
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(key, SignatureAlgorithm.HS256)
+				.compact();
+
+		assertThat(autenticar(legado).getPrincipal()).isSameAs(ana);
+	}
+
+	@Test
+	void firmaInvalidaOVencidoNoAutentican() throws Exception {
+		UsuarioPrincipal ana = guardar(1L, "ana@test.com", Role.CLIENTE);
+		String deOtraClave = new JwtUtil(Keys.hmacShaKeyFor("otraClaveCualquieraQueTambienEsLargaLarga123456".getBytes()))
+				.generateToken(ana);
+		String vencido = Jwts.builder()
+				.setSubject("ana@test.com")
+				.setExpiration(new Date(System.currentTimeMillis() - 1000))
+				.signWith(key, SignatureAlgorithm.HS256)
+				.compact();
+
+		assertThat(autenticar(deOtraClave)).isNull();
+		assertThat(autenticar(vencido)).isNull();
+		assertThat(autenticar("esto.no.es-un-jwt")).isNull();
+	}
+
+	@Test
+	void usuarioBorradoOConOtroRolSeVeEnElProximoRequest() throws Exception {
+		String token = jwtUtil.generateToken(guardar(1L, "ana@test.com", Role.DUENO));
+
+		// Le sacan el rol de dueño: el token sigue siendo valido pero vale el rol actual
+		guardar(1L, "ana@test.com", Role.CLIENTE);
+		assertThat(autenticar(token).getAuthorities()).extracting(Object::toString).containsExactly("ROLE_CLIENTE");
+
+		// Se borra y el email lo toma otro usuario: el uid del token ya no coincide
+		usuarios.remove("ana@test.com");
+		assertThat(autenticar(token)).isNull();
+		guardar(2L, "ana@test.com", Role.DUENO);
+		assertThat(autenticar(token)).isNull();
+	}
+
+	private UsuarioPrincipal guardar(Long id, String email, Role role) {
+		UsuarioPrincipal principal = new UsuarioPrincipal(new UsuarioResumen(id, "Ana", "Perez", "222", "ana", email, role), "x");
+		usuarios.put(email, principal);
+		return principal;
+	}
+
+	private Authentication autenticar(String token) throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/turnos");
+		request.addHeader("Authorization", "Bearer " + token);
+		filtro.doFilter(request, new MockHttpServletResponse(), NO_OP);
+		return SecurityContextHolder.getContext().getAuthentication();
+	}
+}
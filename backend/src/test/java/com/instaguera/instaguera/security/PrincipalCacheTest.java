@@ -0,0 +1,95 @@
+package com.instaguera.instaguera.security;
+
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.service.UsuarioEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PrincipalCacheTest {
+
+	@Autowired
+	private PrincipalCache cache;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void unCambioCommiteadoMientrasSeCargaNoDejaElPrincipalViejoCacheado() {
+		String email = "carrera@test.com";
+
+		// Mientras el loader "lee de la base", otro request commitea un cambio de rol de ese usuario
+		Optional<UsuarioPrincipal> leido = cache.get(email, key -> {
+			UsuarioPrincipal viejo = principal(key, Role.CLIENTE);
+			commitearCambio(viejo.getUsuario(), principal(key, Role.DUENO).getUsuario());
+			return Optional.of(viejo);
+		});
+		assertThat(leido).map(UsuarioPrincipal::getRole).contains(Role.CLIENTE);
+
+		// Lo leido antes del cambio no quedo en el cache: la proxima vez se vuelve a cargar
+		AtomicInteger cargas = new AtomicInteger();
+		Optional<UsuarioPrincipal> despues = cache.get(email, key -> {
+			cargas.incrementAndGet();
+			return Optional.of(principal(key, Role.DUENO));
+		});
+		assertThat(cargas).hasValue(1);
+		assertThat(despues).map(UsuarioPrincipal::getRole).contains(Role.DUENO);
+	}
+
+	@Test
+	void soloSeInvalidaCuandoLaTransaccionCommitea() {
+		String email = "rollback@test.com";
+		UsuarioPrincipal cacheado = principal(email, Role.CLIENTE);
+		cache.get(email, key -> Optional.of(cacheado));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			publisher.publishEvent(UsuarioEvent.actualizado(cacheado.getUsuario(), principal(email, Role.DUENO).getUsuario()));
+			status.setRollbackOnly();
+		});
+		assertThat(cache.get(email, key -> Optional.empty())).containsSame(cacheado);
+
+		commitearCambio(cacheado.getUsuario(), principal(email, Role.DUENO).getUsuario());
+		assertThat(cache.get(email, key -> Optional.empty())).isEmpty();
+	}
+
+	@Test
+	void aciertosYFallosSePublicanEnElRegistry() {
+		String email = "metricas@test.com";
+		double aciertos = gets("hit");
+		double fallos = gets("miss");
+
+		cache.get(email, key -> Optional.of(principal(key, Role.CLIENTE)));
+		cache.get(email, key -> Optional.empty());
+
+		assertThat(gets("miss")).isEqualTo(fallos + 1);
+		assertThat(gets("hit")).isEqualTo(aciertos + 1);
+	}
+
+	private double gets(String resultado) {
+		return registry.get("cache.gets").tag("cache", "principales").tag("result", resultado).functionCounter().count();
+	}
+
+	private void commitearCambio(UsuarioResumen anterior, UsuarioResumen actual) {
+		transactionTemplate.executeWithoutResult(status -> publisher.publishEvent(UsuarioEvent.actualizado(anterior, actual)));
+	}
+
+	private static UsuarioPrincipal principal(String email, Role role) {
+		return new UsuarioPrincipal(new UsuarioResumen(1L, "Ana", "Perez", "222", "ana", email, role), "x");
+	}
+}
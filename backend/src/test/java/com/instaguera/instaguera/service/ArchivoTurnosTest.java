@@ -0,0 +1,67 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.TurnoFiltro;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import com.instaguera.instaguera.repository.TurnoArchivadoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"instaguera.archivo.edad=30d", "instaguera.archivo.lote=2"})
+class ArchivoTurnosTest extends EscenarioBase {
+
+	private static final OffsetDateTime HACE_UN_ANIO = OffsetDateTime.now(ZoneOffset.UTC).minusYears(1);
+
+	@Autowired
+	private ArchivoTurnos archivoTurnos;
+
+	@Autowired
+	private TurnoArchivadoRepository turnoArchivadoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@AfterEach
+	void limpiar() {
+		turnoArchivadoRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void mueveSoloLosTerminadosViejosEnVariosLotes() {
+		guardar(HACE_UN_ANIO, EstadoTurno.COMPLETADO);
+		guardar(HACE_UN_ANIO.plusDays(1), EstadoTurno.CANCELADO);
+		guardar(HACE_UN_ANIO.plusDays(2), EstadoTurno.COMPLETADO);
+		// Viejo pero nunca se cerro: queda activo
+		guardar(HACE_UN_ANIO.plusDays(3), EstadoTurno.CONFIRMADO);
+		// Terminado pero reciente
+		guardar(OffsetDateTime.now(ZoneOffset.UTC).minusDays(5), EstadoTurno.COMPLETADO);
+
+		assertThat(archivoTurnos.archivar()).isEqualTo(3);
+
+		assertThat(turnoRepository.count()).isEqualTo(2);
+		assertThat(turnoArchivadoRepository.count()).isEqualTo(3);
+		// Se puede consultar como el listado normal, con los datos del cliente
+		transactionTemplate.executeWithoutResult(status -> assertThat(
+				turnoArchivadoRepository.buscar(new TurnoFiltro(cliente.getId(), null, null, null, null), null, 10))
+				.extracting(t -> t.getCliente().getNombre())
+				.containsExactly("Ana", "Ana", "Ana"));
+
+		// La segunda corrida no encuentra nada
+		assertThat(archivoTurnos.archivar()).isZero();
+	}
+
+	private void guardar(OffsetDateTime fechaHora, EstadoTurno estado) {
+		turnoRepository.save(new Turno(fechaHora, estado, "tatuaje", cliente, dueno));
+	}
+}
@@ -0,0 +1,122 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.ClienteCursor;
+import com.instaguera.instaguera.dto.UsuarioResumen;
+import com.instaguera.instaguera.model.Role;
+import com.instaguera.instaguera.model.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BuscadorClientesTest extends EscenarioBase {
+
+	@Autowired
+	private BuscadorClientes buscador;
+
+	@Autowired
+	private UsuarioService usuarioService;
+
+	@BeforeEach
+	void setUp() {
+		// Ana con tildes, otro username y mail para probar cada campo
+		cliente.setApellido("Pérez");
+		cliente.setCelular("11 5555-0000");
+		cliente.setUsername("anita");
+		cliente.setEmail("ana.perez@gmail.com");
+		cliente = usuarioRepository.save(cliente);
+		usuarioRepository.save(new Usuario("José María", "Gómez", "11 4444-1234", "jmgomez", "x", Role.CLIENTE, "jose@test.com"));
+		usuarioRepository.save(new Usuario("Juan", "Perales", "351 222", "juanp", "x", Role.CLIENTE, "juan@test.com"));
+	}
+
+	@Test
+	void buscaPorPrefijoEnCualquierCampoSinAcentos() {
+		assertThat(nombres("pe")).containsExactly("Perales", "Pérez");
+		assertThat(nombres("PÉREZ")).containsExactly("Pérez");
+		assertThat(nombres("jose gom")).containsExactly("Gómez");
+		assertThat(nombres("maria")).containsExactly("Gómez");
+		assertThat(nombres("gmail")).containsExactly("Pérez");
+		assertThat(nombres("juanp")).containsExactly("Perales");
+		assertThat(nombres("115555")).containsExactly("Pérez");
+		assertThat(nombres("11")).containsExactly("Gómez", "Pérez");
+		// Los dueños no son clientes
+		assertThat(nombres("thiago")).isEmpty();
+		assertThat(nombres("ez pe")).isEmpty();
+		// Una letra sola no busca (abarcaria a casi todos); como termino secundario si filtra
+		assertThat(nombres("p")).isEmpty();
+		assertThat(nombres("jose g")).containsExactly("Gómez");
+
+		// Sin termino: todos los clientes por apellido
+		assertThat(nombres("")).containsExactly("Gómez", "Perales", "Pérez");
+	}
+
+	@Test
+	void paginaConElCursorDelUltimoDevuelto() {
+		assertThat(paginas("", 2)).containsExactly(List.of("Gómez", "Perales"), List.of("Pérez"));
+		assertThat(paginas("pe", 1)).containsExactly(List.of("Perales"), List.of("Pérez"), List.of());
+
+		// El cursor es una posicion en el orden: si el ultimo devuelto cambia de apellido, se sigue desde ahi igual
+		List<UsuarioResumen> primera = buscador.buscar("pe", null, 1);
+		ClienteCursor cursor = BuscadorClientes.cursor(primera.get(0));
+		Usuario cambios = new Usuario();
+		cambios.setApellido("Zapata");
+		usuarioService.actualizar(primera.get(0).id(), cambios);
+		assertThat(buscador.buscar("pe", cursor, 20)).extracting(UsuarioResumen::apellido).containsExactly("Pérez");
+	}
+
+	@Test
+	void recargarVeLoQueCambioPorFueraDeLosEventos() {
+		assertThat(nombres("ana")).containsExactly("Pérez");
+
+		// Directo al repositorio, sin UsuarioService: no hay evento
+		usuarioRepository.save(new Usuario("Anahí", "Sosa", "333", "anahi", "x", Role.CLIENTE, "anahi@test.com"));
+		usuarioRepository.deleteById(cliente.getId());
+		assertThat(nombres("ana")).containsExactly("Pérez");
+
+		buscador.recargar();
+		assertThat(nombres("ana")).containsExactly("Sosa");
+		assertThat(nombres("")).containsExactly("Gómez", "Perales", "Sosa");
+	}
+
+	@Test
+	void seMantieneConLosCambiosDeUsuarios() {
+		assertThat(nombres("ana")).containsExactly("Pérez");
+
+		Usuario cambios = new Usuario();
+		cambios.setNombre("Anabella");
+		cambios.setApellido("Rossi");
+		usuarioService.actualizar(cliente.getId(), cambios);
+		assertThat(nombres("anab ros")).containsExactly("Rossi");
+		assertThat(nombres("")).containsExactly("Gómez", "Perales", "Rossi");
+
+		usuarioService.crear(new Usuario("Ana", "Nueva", "999", "ananueva", "x", Role.CLIENTE, "nueva@test.com"));
+		assertThat(nombres("ana")).containsExactly("Nueva", "Rossi");
+
+		usuarioService.eliminar(cliente.getId());
+		assertThat(nombres("ana")).containsExactly("Nueva");
+	}
+
+	private List<String> nombres(String q) {
+		return buscador.buscar(q, null, 20).stream().map(UsuarioResumen::apellido).toList();
+	}
+
+	// Apellidos de cada pagina, siguiendo el cursor hasta que una venga incompleta
+	private List<List<String>> paginas(String q, int tamanio) {
+		List<List<String>> paginas = new ArrayList<>();
+		ClienteCursor cursor = null;
+		List<UsuarioResumen> pagina;
+		do {
+			pagina = buscador.buscar(q, cursor, tamanio);
+			paginas.add(pagina.stream().map(UsuarioResumen::apellido).toList());
+			if (!pagina.isEmpty()) cursor = BuscadorClientes.cursor(pagina.get(pagina.size() - 1));
+		} while (pagina.size() == tamanio);
+		return paginas;
+	}
+}
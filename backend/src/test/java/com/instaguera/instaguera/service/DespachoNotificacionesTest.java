@@ -0,0 +1,124 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Notificacion;
+import com.instaguera.instaguera.repository.NotificacionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@TestPropertySource(properties = {"instaguera.notificaciones.lote=2", "instaguera.notificaciones.hilos=3"})
+class DespachoNotificacionesTest extends EscenarioBase {
+
+	private static final OffsetDateTime EN_UN_RATO = OffsetDateTime.now(ZoneOffset.UTC).plusHours(3).truncatedTo(ChronoUnit.HOURS);
+	private static final OffsetDateTime LA_SEMANA_QUE_VIENE = EN_UN_RATO.plusDays(7);
+
+	@Autowired
+	private DespachoNotificaciones despacho;
+
+	@Autowired
+	private TurnoService turnoService;
+
+	@Autowired
+	private NotificacionRepository notificacionRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void recordatoriosYCambiosSeEntreganUnaSolaVez() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			crear(EN_UN_RATO.plusHours(i));
+		}
+		// Falta una semana: el recordatorio queda para despues
+		TurnoResponse lejano = crear(LA_SEMANA_QUE_VIENE);
+		turnoService.actualizar(lejano.id(), cambioDeEstado(EstadoTurno.CONFIRMADO));
+
+		// Varias corridas a la vez (cada una con 3 hilos): SKIP LOCKED reparte las filas sin repetir
+		CompletableFuture<Integer> otra = CompletableFuture.supplyAsync(despacho::despachar);
+		int enviadas = despacho.despachar() + otra.get();
+
+		assertThat(enviadas).isEqualTo(6);
+		assertThat(notificacionRepository.countByEstado(Notificacion.Estado.ENVIADA)).isEqualTo(6);
+		assertThat(notificacionRepository.countByEstado(Notificacion.Estado.PENDIENTE)).isEqualTo(1);
+		assertThat(despacho.despachar()).isZero();
+	}
+
+	@Test
+	void cancelarAnulaElRecordatorioPendiente() {
+		TurnoResponse turno = crear(LA_SEMANA_QUE_VIENE);
+		assertThat(notificacionRepository.countByEstado(Notificacion.Estado.PENDIENTE)).isEqualTo(1);
+
+		turnoService.actualizar(turno.id(), cambioDeEstado(EstadoTurno.CANCELADO));
+
+		// Queda solo el aviso de la cancelacion, que sale ya
+		assertThat(notificacionRepository.findAll())
+				.singleElement()
+				.satisfies(n -> {
+					assertThat(n.getTipo()).isEqualTo(Notificacion.Tipo.CAMBIO_ESTADO);
+					assertThat(n.getCelular()).isEqualTo("222");
+					assertThat(n.getMensaje()).contains("cancelado");
+				});
+		assertThat(despacho.despachar()).isEqualTo(1);
+	}
+
+	@Test
+	void seMandaSinTransaccionYSiSeCaeAntesDeMarcarlaVuelveASalirConElMismoId() {
+		crear(EN_UN_RATO);
+		List<Long> mandadas = new ArrayList<>();
+		AtomicBoolean caerse = new AtomicBoolean(true);
+		DespachoNotificaciones conCaida = new DespachoNotificaciones(notificacionRepository, notificacion -> {
+			assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+			// Reservada: otro despachador que corre mientras tanto no la toma
+			assertThat(despacho.despachar()).isZero();
+			mandadas.add(notificacion.getId());
+			if (caerse.getAndSet(false)) throw new Caida();
+		}, transactionTemplate, new SimpleMeterRegistry(), 10, 1, 5, Duration.ofMinutes(5), Duration.ofDays(30), Duration.ofMinutes(5));
+
+		// Salio, pero el proceso "se cayo" antes de marcarla: hasta que vence la reserva no se vuelve a mandar
+		assertThatThrownBy(conCaida::despachar).isInstanceOf(Caida.class);
+		assertThat(conCaida.despachar()).isZero();
+
+		jdbcTemplate.update("update notificacion set enviar_en = ?", OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+		assertThat(conCaida.despachar()).isEqualTo(1);
+		assertThat(mandadas).hasSize(2).containsOnly(mandadas.get(0));
+		assertThat(notificacionRepository.countByEstado(Notificacion.Estado.ENVIADA)).isEqualTo(1);
+	}
+
+	private TurnoResponse crear(OffsetDateTime fechaHora) {
+		return turnoService.crear(new TurnoRequest(fechaHora, 60, null, "brazo",
+				new TurnoRequest.Ref(cliente.getId()), new TurnoRequest.Ref(dueno.getId())));
+	}
+
+	private static TurnoRequest cambioDeEstado(EstadoTurno estado) {
+		return new TurnoRequest(null, null, estado, null, null, null);
+	}
+
+	// Como si se cortara el proceso en medio del despacho
+	private static class Caida extends Error {
+	}
+}
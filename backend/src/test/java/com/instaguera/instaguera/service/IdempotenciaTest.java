@@ -0,0 +1,84 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.repository.RespuestaIdempotenteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class IdempotenciaTest {
+
+	private static final String SUJETO = "ana@test.com";
+	private static final String OPERACION = "POST /turnos";
+	private static final Map<String, String> PEDIDO = Map.of("descripcion", "tatuaje");
+
+	@Autowired
+	private Idempotencia idempotencia;
+
+	@Autowired
+	private RespuestaIdempotenteRepository repository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final AtomicInteger ejecuciones = new AtomicInteger();
+
+	@AfterEach
+	void limpiar() {
+		repository.deleteAllInBatch();
+	}
+
+	@Test
+	void unaClaveQueQuedoTomadaSeRecuperaCuandoVenceElPlazo() {
+		assertThat(ejecutar("clave-1").getStatusCode().value()).isEqualTo(201);
+
+		// Como si el proceso se hubiera caido antes de guardar la respuesta
+		jdbcTemplate.update("update idempotencia set status = null, cuerpo = null, creado_en = ? where clave = ?",
+				OffsetDateTime.now(ZoneOffset.UTC), "clave-1");
+		assertThat(ejecutar("clave-1").getStatusCode().value()).isEqualTo(409);
+		assertThat(ejecuciones).hasValue(1);
+
+		// Pasado el plazo el reintento la toma, ejecuta y deja la respuesta para los siguientes
+		envejecer("clave-1");
+		assertThat(ejecutar("clave-1").getStatusCode().value()).isEqualTo(201);
+		assertThat(ejecuciones).hasValue(2);
+		ResponseEntity<?> repetida = ejecutar("clave-1");
+		assertThat(repetida.getHeaders().getFirst(Idempotencia.HEADER_REPETIDA)).isEqualTo("true");
+		assertThat(ejecuciones).hasValue(2);
+	}
+
+	@Test
+	void elPedidoOriginalQueTerminaTardeNoPisaAlReintento() {
+		ResponseEntity<?> original = idempotencia.ejecutar(SUJETO, "clave-2", OPERACION, PEDIDO, () -> {
+			// Mientras el original sigue corriendo se le vence el plazo y un reintento toma la clave
+			envejecer("clave-2");
+			assertThat(ejecutar("clave-2").getStatusCode().value()).isEqualTo(201);
+			return ResponseEntity.status(201).body(Map.of("de", "original"));
+		});
+		assertThat(original.getStatusCode().value()).isEqualTo(201);
+
+		ResponseEntity<?> repetida = ejecutar("clave-2");
+		assertThat(repetida.getHeaders().getFirst(Idempotencia.HEADER_REPETIDA)).isEqualTo("true");
+		assertThat(repetida.getBody()).isEqualTo("{\"de\":\"reintento 1\"}");
+	}
+
+	private ResponseEntity<?> ejecutar(String clave) {
+		return idempotencia.ejecutar(SUJETO, clave, OPERACION, PEDIDO,
+				() -> ResponseEntity.status(201).body(Map.of("de", "reintento " + ejecuciones.incrementAndGet())));
+	}
+
+	private void envejecer(String clave) {
+		jdbcTemplate.update("update idempotencia set creado_en = ? where clave = ?",
+				OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(10), clave);
+	}
+}
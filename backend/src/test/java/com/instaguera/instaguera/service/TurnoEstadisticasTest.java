@@ -0,0 +1,44 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.EstadisticasDueno;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.model.EstadoTurno;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TurnoEstadisticasTest extends EscenarioBase {
+
+	@Autowired
+	private TurnoEstadisticas estadisticas;
+
+	@Autowired
+	private TurnoService turnoService;
+
+	@Test
+	void losContadoresSeMantienenConCadaCambioYCoincidenConLaBase() {
+		assertThat(estadisticas.estadisticas(dueno.getId()).porEstado()).containsEntry(EstadoTurno.SOLICITADO, 0L);
+
+		turnoService.crear(pedido(MANIANA_15, 60));
+		Long cancelado = turnoService.crear(pedido(MANIANA_15.plusHours(2), 90)).id();
+		turnoService.actualizar(cancelado, new TurnoRequest(null, null, EstadoTurno.CANCELADO, null, null, null));
+
+		EstadisticasDueno incremental = estadisticas.estadisticas(dueno.getId());
+		assertThat(incremental.porEstado())
+				.containsEntry(EstadoTurno.SOLICITADO, 1L)
+				.containsEntry(EstadoTurno.CANCELADO, 1L);
+		LocalDate dia = MANIANA_15.atZoneSameInstant(ZoneId.of("America/Argentina/Buenos_Aires")).toLocalDate();
+		assertThat(incremental.dias()).contains(new EstadisticasDueno.Carga(dia, 1, 60));
+		assertThat(incremental.proximos()).hasSize(1);
+
+		estadisticas.reconciliar();
+		assertThat(estadisticas.estadisticas(dueno.getId())).isEqualTo(incremental);
+	}
+}
@@ -0,0 +1,114 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.OperacionTurno;
+import com.instaguera.instaguera.dto.ResultadoOperacion;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.model.EstadoTurno;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TurnoLoteServiceTest extends EscenarioBase {
+
+	private static final int CANTIDAD = 60;
+
+	@Autowired
+	private TurnoLoteService turnoLoteService;
+
+	@Autowired
+	private TurnoService turnoService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void creaTodoElLoteConPocasSentencias() {
+		List<OperacionTurno> operaciones = new ArrayList<>();
+		for (int i = 0; i < CANTIDAD; i++) {
+			operaciones.add(new OperacionTurno(OperacionTurno.Tipo.CREAR, null, pedido(MANIANA_10.plusHours(i), 60)));
+		}
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<ResultadoOperacion> resultados = turnoLoteService.aplicar(operaciones);
+
+		assertThat(resultados).extracting(ResultadoOperacion::status).containsOnly(201);
+		assertThat(turnoRepository.count()).isEqualTo(CANTIDAD);
+		// Los INSERT (turnos y sus recordatorios en el outbox) van en batch: muchas menos sentencias que turnos
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(CANTIDAD / 3);
+	}
+
+	@Test
+	void cadaItemTieneSuResultadoYLosQueFallanNoFrenanAlResto() {
+		Long primero = turnoService.crear(pedido(MANIANA_10, 60)).id();
+		Long segundo = turnoService.crear(pedido(MANIANA_10.plusHours(1), 60)).id();
+
+		List<ResultadoOperacion> resultados = turnoLoteService.aplicar(List.of(
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, primero, cambioDeEstado(EstadoTurno.COMPLETADO)),
+				new OperacionTurno(OperacionTurno.Tipo.CREAR, null, pedido(MANIANA_10.plusMinutes(30), 60)),
+				new OperacionTurno(OperacionTurno.Tipo.ELIMINAR, 999_999L, null),
+				new OperacionTurno(OperacionTurno.Tipo.ELIMINAR, segundo, null),
+				// Entra porque el de las 11 se borro en este mismo lote
+				new OperacionTurno(OperacionTurno.Tipo.CREAR, null, pedido(MANIANA_10.plusHours(1), 60))));
+
+		assertThat(resultados).extracting(ResultadoOperacion::status).containsExactly(200, 409, 404, 204, 201);
+		assertThat(turnoRepository.findById(primero)).get()
+				.extracting(t -> t.getEstado()).isEqualTo(EstadoTurno.COMPLETADO);
+		assertThat(turnoRepository.findById(segundo)).isEmpty();
+		assertThat(turnoRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void siFallaElFlushSeInformaElItemQueFalloYElRestoSeGuarda() {
+		Long existente = turnoService.crear(pedido(MANIANA_10, 60)).id();
+		// Pasa todas las validaciones en memoria y recien la base lo rechaza (descripcion de mas de 500)
+		TurnoRequest demasiadoLargo = new TurnoRequest(MANIANA_10.plusHours(2), 60, EstadoTurno.SOLICITADO, "x".repeat(600),
+				new TurnoRequest.Ref(cliente.getId()), new TurnoRequest.Ref(dueno.getId()));
+
+		List<ResultadoOperacion> resultados = turnoLoteService.aplicar(List.of(
+				new OperacionTurno(OperacionTurno.Tipo.CREAR, null, pedido(MANIANA_10.plusHours(1), 60)),
+				new OperacionTurno(OperacionTurno.Tipo.CREAR, null, demasiadoLargo),
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, existente, cambioDeEstado(EstadoTurno.COMPLETADO)),
+				new OperacionTurno(OperacionTurno.Tipo.ELIMINAR, 999_999L, null)));
+
+		assertThat(resultados).extracting(ResultadoOperacion::indice).containsExactly(0, 1, 2, 3);
+		assertThat(resultados).extracting(ResultadoOperacion::status).containsExactly(201, 409, 200, 404);
+		assertThat(resultados.get(2).turno().estado()).isEqualTo(EstadoTurno.COMPLETADO);
+		assertThat(turnoRepository.count()).isEqualTo(2);
+		assertThat(turnoRepository.findById(existente)).get()
+				.extracting(t -> t.getEstado()).isEqualTo(EstadoTurno.COMPLETADO);
+	}
+
+	@Test
+	void cancelarYReactivarEnElMismoLoteVuelveAChequearLaAgenda() {
+		Long turno = turnoService.crear(pedido(MANIANA_10, 60)).id();
+		Long otro = turnoService.crear(pedido(MANIANA_10.plusHours(2), 60)).id();
+
+		// El dueño se bloquea al cargar el lote aunque ningun item pida mover el turno
+		List<ResultadoOperacion> resultados = turnoLoteService.aplicar(List.of(
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, turno, cambioDeEstado(EstadoTurno.CANCELADO)),
+				new OperacionTurno(OperacionTurno.Tipo.CREAR, null, pedido(MANIANA_10, 60)),
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, turno, cambioDeEstado(EstadoTurno.CONFIRMADO)),
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, otro, cambioDeEstado(EstadoTurno.CANCELADO)),
+				new OperacionTurno(OperacionTurno.Tipo.ACTUALIZAR, otro, cambioDeEstado(EstadoTurno.CONFIRMADO))));
+
+		// Reactivarlo pisa al que se creo en su lugar; el otro vuelve sin problema
+		assertThat(resultados).extracting(ResultadoOperacion::status).containsExactly(200, 201, 409, 200, 200);
+		assertThat(turnoRepository.findById(otro)).get()
+				.extracting(t -> t.getEstado()).isEqualTo(EstadoTurno.CONFIRMADO);
+	}
+
+	private static TurnoRequest cambioDeEstado(EstadoTurno estado) {
+		return new TurnoRequest(null, null, estado, null, null, null);
+	}
+}
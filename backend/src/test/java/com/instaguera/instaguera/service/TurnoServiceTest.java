@@ -0,0 +1,101 @@
+package com.instaguera.instaguera.service;
+
+import com.instaguera.instaguera.EscenarioBase;
+import com.instaguera.instaguera.dto.FranjaLibre;
+import com.instaguera.instaguera.dto.TurnoRequest;
+import com.instaguera.instaguera.dto.TurnoResponse;
+import com.instaguera.instaguera.model.EstadoTurno;
+import com.instaguera.instaguera.model.Turno;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TurnoServiceTest extends EscenarioBase {
+
+	@Autowired
+	private TurnoService turnoService;
+
+	@Autowired
+	private DisponibilidadIndex disponibilidad;
+
+	@Test
+	void rechazaTurnoQuePisaOtroDelMismoDueno() {
+		turnoService.crear(pedido(MANIANA_10, 120));
+
+		assertThatThrownBy(() -> turnoService.crear(pedido(MANIANA_10.plusHours(1), 60)))
+				.isInstanceOf(TurnoSolapadoException.class);
+		assertThat(turnoRepository.count()).isEqualTo(1);
+	}
+
+	@Test
+	void unIndiceDesactualizadoNoRechazaUnHorarioLibre() {
+		TurnoResponse turno = turnoService.crear(pedido(MANIANA_10, 60));
+		// Carga el indice con el turno y despues se borra sin TurnoEvent (como una baja hecha en otra instancia)
+		assertThat(disponibilidad.franjasLibres(dueno.getId(), MANIANA_10, MANIANA_10.plusHours(1))).isEmpty();
+		turnoRepository.deleteById(turno.id());
+
+		turnoService.crear(pedido(MANIANA_10, 60));
+
+		assertThat(turnoRepository.count()).isEqualTo(1);
+	}
+
+	@Test
+	void aceptaTurnoPegadoAlAnterior() {
+		turnoService.crear(pedido(MANIANA_10, 60));
+		turnoService.crear(pedido(MANIANA_10.plusHours(1), 60));
+
+		assertThat(turnoRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void cancelarLiberaElHorario() {
+		TurnoResponse turno = turnoService.crear(pedido(MANIANA_10, 60));
+		turnoService.actualizar(turno.id(), new TurnoRequest(null, null, EstadoTurno.CANCELADO, null, null, null));
+
+		turnoService.crear(pedido(MANIANA_10, 60));
+
+		assertThat(turnoRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void franjasLibresSonLosHuecosEntreTurnos() {
+		turnoService.crear(pedido(MANIANA_10.plusHours(1), 60));
+		turnoService.crear(pedido(MANIANA_10.plusHours(4), 120));
+
+		List<FranjaLibre> libres = turnoService.franjasLibres(dueno.getId(), MANIANA_10, MANIANA_10.plusHours(8));
+
+		assertThat(libres).containsExactly(
+				new FranjaLibre(MANIANA_10, MANIANA_10.plusHours(1)),
+				new FranjaLibre(MANIANA_10.plusHours(2), MANIANA_10.plusHours(4)),
+				new FranjaLibre(MANIANA_10.plusHours(6), MANIANA_10.plusHours(8)));
+	}
+
+	@Test
+	void reconciliarVeLoEscritoPorFueraYSueltaLoPasado() {
+		turnoService.crear(pedido(MANIANA_10, 60));
+		assertThat(disponibilidad.franjasLibres(dueno.getId(), MANIANA_15, MANIANA_15.plusHours(1))).hasSize(1);
+
+		// Escrito sin TurnoEvent (otra instancia, SQL directo): uno mañana y uno que ya termino
+		turnoRepository.save(new Turno(MANIANA_15, EstadoTurno.SOLICITADO, "brazo", cliente, dueno));
+		turnoRepository.save(new Turno(OffsetDateTime.now(ZoneOffset.UTC).minusHours(3), EstadoTurno.COMPLETADO,
+				"espalda", cliente, dueno));
+		assertThat(disponibilidad.franjasLibres(dueno.getId(), MANIANA_15, MANIANA_15.plusHours(1))).hasSize(1);
+
+		disponibilidad.reconciliar();
+		assertThat(disponibilidad.franjasLibres(dueno.getId(), MANIANA_15, MANIANA_15.plusHours(1))).isEmpty();
+		assertThat(disponibilidad.intervalos(dueno.getId())).isEqualTo(2);
+
+		// Sin consultas entre dos pasadas la agenda se suelta
+		disponibilidad.reconciliar();
+		disponibilidad.reconciliar();
+		assertThat(disponibilidad.intervalos(dueno.getId())).isZero();
+	}
+}
@@ -0,0 +1,50 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Una base que ya existia antes de Flyway (esquema de ddl-auto=update, con datos) se toma como V1
+// y tiene que llegar a la ultima version con lo que le faltaba
+class MigracionesTest {
+
+	private static final String URL = "jdbc:h2:mem:baseline;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	@Test
+	void baseExistenteSeMigraDesdeElBaseline() throws Exception {
+		try (Connection conexion = DriverManager.getConnection(URL, "sa", "");
+			 Statement statement = conexion.createStatement()) {
+			// Tal cual quedaba con ddl-auto=update: sin duracion_minutos y con fechas nulas permitidas
+			statement.execute("""
+					create table usuario (id bigint generated by default as identity primary key, nombre varchar(255),
+					    apellido varchar(255), celular varchar(255), username varchar(255) not null unique,
+					    password varchar(255) not null, role varchar(255) not null, email varchar(255) not null unique)""");
+			statement.execute("""
+					create table turno (id bigint generated by default as identity primary key,
+					    fecha_hora timestamp(6) with time zone, estado varchar(255) not null, descripcion varchar(500),
+					    cliente_id bigint not null references usuario (id), dueno_id bigint not null references usuario (id))""");
+			statement.execute("insert into usuario (id, username, password, role, email) values (1, 'thiago', 'x', 'DUENO', 'thiago@test.com')");
+			statement.execute("insert into turno (id, fecha_hora, estado, cliente_id, dueno_id) values (1, null, 'SOLICITADO', 1, 1)");
+			statement.execute("insert into turno (id, fecha_hora, estado, cliente_id, dueno_id) values (2, timestamp with time zone '2024-05-01 10:00:00+00', 'COMPLETADO', 1, 1)");
+
+			Flyway.configure()
+					.dataSource(URL, "sa", "")
+					.baselineOnMigrate(true)
+					.baselineVersion("1")
+					.load()
+					.migrate();
+
+			try (ResultSet rs = statement.executeQuery("select count(*) from turno where duracion_minutos = 60 and fecha_hora is not null")) {
+				rs.next();
+				assertThat(rs.getInt(1)).isEqualTo(2);
+			}
+			statement.execute("drop all objects");
+		}
+	}
+}
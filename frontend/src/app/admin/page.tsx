@@ -1,6 +1,6 @@
 "use client";
 
-import { useEffect, useState, useCallback } from "react";
+import { useEffect, useState, useCallback, useRef } from "react";
 import { useRouter } from "next/navigation";
 import { useAuthStore } from "@/store/auth";
 import { toast } from "sonner";
@@ -12,6 +12,7 @@ import {
   CardTitle,
 } from "@/components/ui/card";
 import { Button } from "@/components/ui/button";
+import { Input } from "@/components/ui/input";
 import {
   Dialog,
   DialogContent,
@@ -22,6 +23,7 @@ import {
 } from "@/components/ui/dialog";
 import { Trash2, LogOut, Users } from "lucide-react";
 import Link from "next/link";
+import { fetchPage } from "@/lib/api";
 
 // Importar componentes de tabla de shadcn/ui
 import {
@@ -40,6 +42,9 @@ import {
 } from "@/components/ui/dropdown-menu";
 
 const API_URL = process.env.NEXT_PUBLIC_API_URL;
+const PAGE_SIZE = 100;
+// Igual que BuscadorClientes.TERMINO_MINIMO en el backend
+const MIN_SEARCH_LENGTH = 2;
 
 // Definir un tipo para el cliente, si no lo tienes ya en `types`
 interface Cliente {
@@ -58,65 +63,96 @@ export default function AdminPanelPage() {
     const { user, token, logout } = useAuthStore();
     const [clientes, setClientes] = useState<Cliente[]>([]);
     const [loadingClientes, setLoadingClientes] = useState(true);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const [searchTerm, setSearchTerm] = useState("");
+    // Listado o busqueda que se esta mostrando, para pedirle la pagina siguiente
+    const clientesUrl = useRef<string | null>(null);
     const [deletingClientId, setDeletingClientId] = useState<number | null>(null);
     const [isClientDeleteDialogOpen, setIsClientDeleteDialogOpen] = useState(false);
 
-    // GET de TODOS los clientes
-    const fetchAllClients = useCallback(async () => {
+    // GET de la primera pagina de clientes: todos por id o, si hay algo escrito, lo que coincide (por apellido)
+    const fetchClients = useCallback(async (term: string, signal: AbortSignal) => {
 
         if (!token) {
             setLoadingClientes(false);
             return;
         }
+        if (term.length > 0 && term.length < MIN_SEARCH_LENGTH) {
+            setClientes([]);
+            setNextCursor(null);
+            setLoadingClientes(false);
+            return;
+        }
 
         setLoadingClientes(true);
         try {
-            const res = await fetch(`${API_URL}/usuarios/clientes`, {
-                headers: {
-                    Authorization: `Bearer ${token}`,
-                },
-            });
-
-            if (!res.ok) {
-                if (res.status === 403) {
-                    toast.error("No tienes permisos para ver los clientes.");
-                    // router.push("/"); // O puedes manejarlo de otra forma si no quieres redirigir
-                    return;
-                }
-                throw new Error("Error al cargar los clientes.");
-            }
-
-            const clients: Cliente[] = await res.json();
-            setClientes(clients);
+            // Cada pagina ya viene sin password ni turnos; la siguiente solo si el admin la pide
+            clientesUrl.current = term
+                ? `${API_URL}/usuarios/clientes/search?${new URLSearchParams({ q: term, limite: String(PAGE_SIZE) })}`
+                : `${API_URL}/usuarios/clientes?limite=${PAGE_SIZE}`;
+            const page = await fetchPage<Cliente>(clientesUrl.current, token, null, signal);
+            setClientes(page.items);
+            setNextCursor(page.nextCursor);
         } catch (error) {
+            if (signal.aborted) return;
+            if ((error as { status?: number }).status === 403) {
+                toast.error("No tienes permisos para ver los clientes.");
+                return;
+            }
             toast.error("Hubo un error al cargar los clientes.");
             console.error("Error fetching clients:", error);
             setClientes([]);
+            setNextCursor(null);
         } finally {
-            setLoadingClientes(false);
+            if (!signal.aborted) setLoadingClientes(false);
         }
     }, [token]);
 
+    // Siguiente pagina del listado o de la busqueda actual
+    const fetchMoreClients = async () => {
+        if (!token || !nextCursor || !clientesUrl.current) return;
+        setLoadingMore(true);
+        try {
+            const page = await fetchPage<Cliente>(clientesUrl.current, token, nextCursor);
+            setClientes((prev) => [...prev, ...page.items]);
+            setNextCursor(page.nextCursor);
+        } catch (error) {
+            toast.error("Hubo un error al cargar más clientes.");
+            console.error("Error fetching more clients:", error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
 
-    // useEffect para la autenticación y carga de turnos Y CLIENTES
+    // useEffect para la autenticación
     useEffect(() => {
 
         if (typeof window !== "undefined") {
 
             if (!token) {
                 router.push("/login");
-                
-            } else if (user && (user.role === "ADMIN")) { 
 
-                fetchAllClients(); 
-
-            } else if (user) {
+            } else if (user && user.role !== "ADMIN") {
 
                 toast.error("No tienes permisos para acceder a esta página.");
                 router.push("/"); 
             }
         }
-    }, [token, router, user, fetchAllClients]);
+    }, [token, router, user]);
+
+    // Carga de clientes: al entrar y cada vez que se deja de tipear en el buscador (cancela la anterior si sigue en vuelo)
+    const isAdmin = user?.role === "ADMIN";
+    useEffect(() => {
+        if (!token || !isAdmin) return;
+        const controller = new AbortController();
+        const timeout = setTimeout(() => fetchClients(searchTerm.trim(), controller.signal), searchTerm ? 250 : 0);
+        return () => {
+            clearTimeout(timeout);
+            controller.abort();
+        };
+    }, [token, isAdmin, searchTerm, fetchClients]);
 
 
     // DELETE Cliente - solo el admin puede
@@ -140,7 +176,8 @@ export default function AdminPanelPage() {
             }
 
             toast.success("Cliente eliminado exitosamente.");
-            fetchAllClients(); // Recargar la lista de clientes
+            // Sacarlo de la lista local en vez de volver a bajar todos los clientes
+            setClientes((prev) => prev.filter((cliente) => cliente.id !== deletingClientId));
             setDeletingClientId(null);
             setIsClientDeleteDialogOpen(false);
 
@@ -198,12 +235,24 @@ export default function AdminPanelPage() {
                         </CardDescription>
                     </CardHeader>
                     <CardContent className="space-y-4">
+                        <Input
+                            placeholder="Buscar por nombre, email, username o celular"
+                            value={searchTerm}
+                            onChange={(e) => setSearchTerm(e.target.value)}
+                            className="max-w-md bg-gray-800 border-gray-600 text-white"
+                        />
                         {loadingClientes ? (
                             <p className="text-gray-400">Cargando clientes...</p>
                         ) : (
                             <div className="overflow-x-auto">
                                 {clientes.length === 0 ? (
-                                    <p className="text-gray-400">No hay clientes registrados.</p>
+                                    <p className="text-gray-400">
+                                        {searchTerm.trim().length === 0
+                                            ? "No hay clientes registrados."
+                                            : searchTerm.trim().length < MIN_SEARCH_LENGTH
+                                            ? `Escribe al menos ${MIN_SEARCH_LENGTH} letras para buscar.`
+                                            : "No se encontraron clientes."}
+                                    </p>
                                 ) : (
                                     <Table>
                                         <TableHeader>
@@ -256,6 +305,19 @@ export default function AdminPanelPage() {
                                 )}
                             </div>
                         )}
+
+                        {nextCursor && !loadingClientes && (
+                            <div className="flex justify-center">
+                                <Button
+                                    variant="outline"
+                                    onClick={fetchMoreClients}
+                                    disabled={loadingMore}
+                                    className="text-white hover:bg-gray-700 cursor-pointer"
+                                >
+                                    {loadingMore ? "Cargando..." : "Cargar más clientes"}
+                                </Button>
+                            </div>
+                        )}
                     </CardContent>
                 </Card>
             </div>
@@ -17,6 +17,8 @@ import { useAuthStore } from "@/store/auth";
 import { useRouter } from "next/navigation";
 
 const API_URL = process.env.NEXT_PUBLIC_API_URL;
+// Igual que BuscadorClientes.TERMINO_MINIMO en el backend
+const MIN_SEARCH_LENGTH = 2;
 
 // TimePicker para horario
 interface TimePickerProps {
@@ -104,19 +106,28 @@ export default function TurnoDuenoForm({ initialData, onSubmitSuccess, onClose }
         }
     }, [initialData]);
 
-    const fetchAllClients = useCallback(async () => {
+    // Typeahead contra el backend: solo viaja la primera pagina de lo que coincide con lo escrito.
+    // Con una sola letra el backend no busca, asi que ni se pide
+    const searchClients = useCallback(async (term: string, signal: AbortSignal) => {
 
         if (!token) {
             setLoadingClientes(false);
             return;
         }
+        if (term.length > 0 && term.length < MIN_SEARCH_LENGTH) {
+            setClientes([]);
+            setLoadingClientes(false);
+            return;
+        }
         setLoadingClientes(true);
 
         try {
-            const res = await fetch(`${API_URL}/usuarios/clientes`, {
+            const params = new URLSearchParams({ q: term, limite: "20" });
+            const res = await fetch(`${API_URL}/usuarios/clientes/search?${params}`, {
                 headers: {
                     Authorization: `Bearer ${token}`,
                 },
+                signal,
             });
 
             if (!res.ok) {
@@ -132,27 +143,27 @@ export default function TurnoDuenoForm({ initialData, onSubmitSuccess, onClose }
             setClientes(clients);
 
         } catch (error) {
+            if (signal.aborted) return;
             toast.error("Hubo un error al cargar los clientes.");
             console.error("Error fetching clients:", error);
             setClientes([]);
 
         } finally {
-            setLoadingClientes(false);
+            if (!signal.aborted) setLoadingClientes(false);
         }
     }, [token, router]);
 
+    // Espera a que se deje de tipear y cancela la busqueda anterior si sigue en vuelo
     useEffect(() => {
-        fetchAllClients();
-    }, [fetchAllClients]);
-
-    const filteredClients = searchTerm
-        ? clientes.filter(
-            (client) =>
-                client.nombre?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                client.apellido?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                client.username?.toLowerCase().includes(searchTerm.toLowerCase())
-        )
-        : clientes;
+        const controller = new AbortController();
+        const timeout = setTimeout(() => searchClients(searchTerm.trim(), controller.signal), 250);
+        return () => {
+            clearTimeout(timeout);
+            controller.abort();
+        };
+    }, [searchTerm, searchClients]);
+
+    const filteredClients = clientes;
 
     const handleSubmit = (e: React.FormEvent) => {
 
@@ -213,7 +224,7 @@ export default function TurnoDuenoForm({ initialData, onSubmitSuccess, onClose }
                         <div className="p-2">
                             <Input
                                 id="clienteSearch"
-                                placeholder="Buscar cliente por nombre o username"
+                                placeholder="Buscar por nombre, email, username o celular"
                                 value={searchTerm}
                                 onChange={(e) => setSearchTerm(e.target.value)}
                                 className="mb-2 bg-gray-700 border-gray-600 text-white"
@@ -238,7 +249,9 @@ export default function TurnoDuenoForm({ initialData, onSubmitSuccess, onClose }
                                     )}
                                     {!loadingClientes && filteredClients.length === 0 && (
                                         <SelectItem value="no-clients" disabled>
-                                            No se encontraron clientes
+                                            {searchTerm.trim().length > 0 && searchTerm.trim().length < MIN_SEARCH_LENGTH
+                                                ? `Escribe al menos ${MIN_SEARCH_LENGTH} letras`
+                                                : "No se encontraron clientes"}
                                         </SelectItem>
                                     )}
                                     {filteredClients.map((client) => (
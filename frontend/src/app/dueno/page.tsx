@@ -1,6 +1,6 @@
 "use client";
 
-import { useEffect, useState, useCallback } from "react";
+import { useEffect, useState, useCallback, useRef } from "react";
 import { useRouter } from "next/navigation";
 import { useAuthStore } from "@/store/auth";
 import { toast } from "sonner";
@@ -22,7 +22,8 @@ import {
 } from "@/components/ui/dialog";
 import { UserRoundPen, Trash2, CalendarCheck, LogOut, Plus } from "lucide-react";
 import Link from "next/link";
-import { Turno } from "@/types"; 
+import { EstadisticasDueno, Turno } from "@/types"; 
+import { applyTurnoChange, fetchPage, subscribeTurnos } from "@/lib/api";
 import TurnoDuenoForm from "./TurnoDuenoForm";
 
 const API_URL = process.env.NEXT_PUBLIC_API_URL;
@@ -33,13 +34,43 @@ export default function DuenoPanelPage() {
     const router = useRouter();
     const { user, token, logout } = useAuthStore();
     const [allTurns, setAllTurns] = useState<Turno[]>([]); 
-    const [loadingTurns, setLoadingTurns] = useState(true);
+    const [loadingTurns, setLoadingTurns] = useState(false);
+    // La agenda sale de stats.proximos; la lista paginada de turnos solo se pide si el dueño la abre
+    const [listaAbierta, setListaAbierta] = useState(false);
+    const listaAbiertaRef = useRef(false);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+    // La URL de la primera pagina: las siguientes usan el mismo filtro, si no el cursor no sirve
+    const turnosUrl = useRef<string | null>(null);
     const [isTurnoFormOpen, setIsTurnoFormOpen] = useState(false); 
     const [editingTurno, setEditingTurno] = useState<Turno | null>(null); 
+    // Misma clave mientras no se confirme la creacion: reintentar no duplica el turno
+    const claveCreacion = useRef<string | null>(null);
     const [deletingTurnoId, setDeletingTurnoId] = useState<number | null>(null);
     const [isDeleteDialogOpen, setIsDeleteDialogOpen] = useState(false); 
+    const [stats, setStats] = useState<EstadisticasDueno | null>(null);
 
-    // GET de TODOS los turnos para el Dueño
+    // Resumen precalculado en el back (contadores por estado y carga de la semana)
+    const fetchStats = useCallback(async () => {
+        if (!token) return;
+        try {
+            const res = await fetch(`${API_URL}/turnos/stats`, {
+                headers: { Authorization: `Bearer ${token}` },
+            });
+            if (res.status === 403) {
+                toast.error("No tienes permisos para acceder a esta página.");
+                router.push("/");
+                return;
+            }
+            if (!res.ok) throw new Error(`Error ${res.status} al cargar el resumen`);
+            setStats(await res.json());
+        } catch (error) {
+            toast.error("Hubo un error al cargar la agenda.");
+            console.error("Error fetching stats:", error);
+        }
+    }, [token, router]);
+
+    // GET de la primera pagina de turnos desde ahora (sin filtro seria todo el historial del estudio)
     const fetchAllTurns = useCallback(async () => {
 
         if (!token) {
@@ -50,35 +81,57 @@ export default function DuenoPanelPage() {
         setLoadingTurns(true);
 
         try {
-            const res = await fetch(`${API_URL}/turnos`, {
-                headers: {
-                    Authorization: `Bearer ${token}`,
-                },
-            });
-
-            if (!res.ok) {
-                if (res.status === 403) {
-                    toast.error("No tienes permisos para acceder a esta página.");
-                    router.push("/"); 
-                    return;
-                }
-                throw new Error("Error al cargar los turnos.");
-            }
-
-            const turns: Turno[] = await res.json();
-            console.log(turns);
-            setAllTurns(turns);
+            turnosUrl.current = `${API_URL}/turnos?desde=${encodeURIComponent(new Date().toISOString())}`;
+            const page = await fetchPage<Turno>(turnosUrl.current, token);
+            setAllTurns(page.items);
+            setNextCursor(page.nextCursor);
 
         } catch (error) {
+            if ((error as { status?: number }).status === 403) {
+                toast.error("No tienes permisos para acceder a esta página.");
+                router.push("/"); 
+                return;
+            }
             toast.error("Hubo un error al cargar todos los turnos.");
             console.error("Error fetching all turns:", error);
             setAllTurns([]);
+            setNextCursor(null);
 
         } finally {
             setLoadingTurns(false);
         }
     }, [token, router]);
 
+    // Abre la lista completa (paginada) o vuelve a la agenda
+    const toggleLista = () => {
+        const abrir = !listaAbiertaRef.current;
+        listaAbiertaRef.current = abrir;
+        setListaAbierta(abrir);
+        if (abrir) {
+            fetchAllTurns();
+        } else {
+            setAllTurns([]);
+            setNextCursor(null);
+        }
+    };
+
+    // Siguiente pagina, solo cuando el dueño la pide
+    const fetchMoreTurns = async () => {
+        if (!token || !nextCursor || !turnosUrl.current) return;
+        setLoadingMore(true);
+        try {
+            const page = await fetchPage<Turno>(turnosUrl.current, token, nextCursor);
+            // Si el stream ya agrego alguno de esta pagina no lo duplicamos
+            setAllTurns((prev) => [...prev, ...page.items.filter((t) => !prev.some((p) => p.id === t.id))]);
+            setNextCursor(page.nextCursor);
+        } catch (error) {
+            toast.error("Hubo un error al cargar más turnos.");
+            console.error("Error fetching more turns:", error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     // useEffect para la autenticación y carga de turnos
     useEffect(() => {
 
@@ -89,18 +142,37 @@ export default function DuenoPanelPage() {
                 
             } else if (user && (user.role === "DUENO")) { // Validar rol
 
-                fetchAllTurns();
+                fetchStats();
 
             } else if (user) { 
                 toast.error("No tienes permisos para acceder a esta página.");
                 router.push("/"); 
             }
         }
-    }, [token, router, user, fetchAllTurns]);
+    }, [token, router, user, fetchStats]);
+
+    // Cambios en vivo: la agenda se vuelve a pedir (es chica y ya viene armada) y a la lista, si esta abierta,
+    // se le aplica cada delta en vez de volver a pedirla
+    useEffect(() => {
+        if (!token || user?.role !== "DUENO") return;
+        return subscribeTurnos<Turno>(
+            `${API_URL}/turnos/stream`,
+            token,
+            (change) => {
+                if (listaAbiertaRef.current) setAllTurns((prev) => applyTurnoChange(prev, change));
+                fetchStats();
+            },
+            () => {
+                fetchStats();
+                if (listaAbiertaRef.current) fetchAllTurns();
+            },
+        );
+    }, [token, user, fetchAllTurns, fetchStats]);
 
     // Abre el formulario para crear un nuevo turno (si el dueño lo necesita)
     const handleOpenCreateTurno = () => {
         setEditingTurno(null); 
+        claveCreacion.current = null;
         setIsTurnoFormOpen(true);
     };
 
@@ -128,6 +200,7 @@ export default function DuenoPanelPage() {
                     headers: {
                         "Content-Type": "application/json",
                         Authorization: `Bearer ${token}`,
+                        ...(editingTurno.version != null ? { "If-Match": `"${editingTurno.version}"` } : {}),
                     },
                     body: JSON.stringify({
                         descripcion: turnoData.descripcion,
@@ -140,11 +213,13 @@ export default function DuenoPanelPage() {
 
             } else {
                 
+                claveCreacion.current ??= crypto.randomUUID();
                 res = await fetch(`${API_URL}/turnos`, {
                     method: "POST",
                     headers: {
                         "Content-Type": "application/json",
                         Authorization: `Bearer ${token}`,
+                        "Idempotency-Key": claveCreacion.current,
                     },
                     body: JSON.stringify({
                         ...turnoData,
@@ -154,13 +229,19 @@ export default function DuenoPanelPage() {
                 });
             }
 
+            if (res.status === 412) {
+                toast.error("El turno cambió mientras lo editabas. Recargá para ver la última versión.");
+                return;
+            }
+
             if (!res.ok) {
                 const errorData = await res.json();
                 throw new Error(errorData.message || `Error al ${editingTurno ? 'actualizar' : 'crear'} el turno`);
             }
 
+            if (!editingTurno) claveCreacion.current = null;
+
             toast.success(`Turno ${editingTurno ? 'actualizado' : 'creado'} exitosamente.`);
-            fetchAllTurns(); 
             setIsTurnoFormOpen(false); 
             
         } catch (error) {
@@ -191,7 +272,6 @@ export default function DuenoPanelPage() {
             }
 
             toast.success("Turno eliminado exitosamente.");
-            fetchAllTurns(); 
             setDeletingTurnoId(null); 
             setIsDeleteDialogOpen(false); 
 
@@ -201,6 +281,69 @@ export default function DuenoPanelPage() {
         }
     };
 
+    const turnosVisibles = listaAbierta ? allTurns : stats?.proximos ?? [];
+
+    const renderTurno = (turno: Turno) => (
+        <Card
+            key={turno.id}
+            className="bg-gray-800 border-gray-600 text-white p-8 transition-transform hover:scale-105 duration-200 relative"
+        >
+            <CardTitle className="text-xl text-blue-500 mb-2">
+                Cliente: {turno.cliente?.nombre || "N/A"} {turno.cliente?.apellido || ""}
+            </CardTitle>
+            <CardDescription className="text-gray-200 text-md">
+                Descripción: {turno.descripcion}
+            </CardDescription>
+            <p className="mt-2 text-lg">
+                <strong className="text-gray-300 sm:text-lg">Fecha y Hora:</strong>{" "}
+                {new Date(turno.fechaHora).toLocaleString()}
+            </p>
+            <p className="text-sm">
+                <strong className="text-gray-300 sm:text-md">Estado:</strong>{" "}
+                <span
+                    className={`font-semibold sm:text-md ${
+                        turno.estado === "CONFIRMADO"
+                            ? "text-green-400"
+                            : turno.estado === "SOLICITADO"
+                            ? "text-yellow-400"
+                            : turno.estado === "CANCELADO"
+                            ? "text-red-400"
+                            : "text-blue-400"
+                    }`}
+                >
+                    {turno.estado}
+                </span>
+            </p>
+            <div className="absolute top-2 right-2 flex gap-2">
+                <Button
+                    variant="ghost"
+                    size="icon"
+                    onClick={(e) => {
+                        e.stopPropagation(); 
+                        handleOpenEditTurno(turno);
+                    }}
+                    className="text-gray-400 hover:text-indigo-400 cursor-pointer"
+                    title="Editar Turno"
+                >
+                    <UserRoundPen className="h-4 w-4" />
+                </Button>
+                <Button
+                    variant="ghost"
+                    size="icon"
+                    onClick={(e) => {
+                        e.stopPropagation(); 
+                        setDeletingTurnoId(turno.id); 
+                        setIsDeleteDialogOpen(true); 
+                    }}
+                    className="text-gray-400 hover:text-red-400 cursor-pointer"
+                    title="Eliminar Turno"
+                >
+                    <Trash2 className="h-4 w-4" />
+                </Button>
+            </div>
+        </Card>
+    );
+
     // Logout desde panel de admin
     const handleLogout = () => {
         toast.error("Sesión de dueño cerrada!");
@@ -245,14 +388,27 @@ export default function DuenoPanelPage() {
                         <CardTitle className="text-2xl font-bold text-gray-100 flex items-center gap-2">
                             <CalendarCheck className="h-6 w-6 text-green-400" /> Gestión de Turnos
                         </CardTitle>
-                        <CardDescription className="text-gray-300">
-                            Administra todos los turnos del estudio.
+                        <CardDescription className="text-gray-300 flex items-center justify-between gap-4">
+                            {listaAbierta ? "Todos los turnos desde hoy." : "Los próximos turnos del estudio."}
+                            <Button
+                                variant="outline"
+                                onClick={toggleLista}
+                                className="text-white hover:bg-gray-700 cursor-pointer"
+                            >
+                                {listaAbierta ? "Ver solo los próximos" : "Ver todos los turnos"}
+                            </Button>
                         </CardDescription>
+                        {stats && (
+                            <p className="text-sm text-gray-300">
+                                Solicitados: {stats.porEstado.SOLICITADO} · Confirmados: {stats.porEstado.CONFIRMADO} ·
+                                Completados: {stats.porEstado.COMPLETADO} · Esta semana: {stats.semanas[0]?.turnos ?? 0} turnos
+                            </p>
+                        )}
                     </CardHeader>
 
                     <CardContent className="space-y-4">
                         {loadingTurns ? (
-                            <p className="text-gray-400">Cargando todos los turnos...</p>
+                            <p className="text-gray-400">Cargando turnos...</p>
                         ) : (
                             <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
 
@@ -265,73 +421,27 @@ export default function DuenoPanelPage() {
                                     <p className="mt-2 text-lg text-indigo-300">Crear Nuevo Turno</p>
                                 </Card>
 
-                                {/* Renderizado de TODOS los turnos */}
-                                {allTurns.length === 0 && !loadingTurns ? (
+                                {/* La agenda (proximos del resumen) o la lista paginada */}
+                                {turnosVisibles.length === 0 && !loadingTurns ? (
                                     <p className="text-gray-400 col-span-full">No hay turnos programados.</p>
                                 ) : (
-                                    allTurns.map((turno) => (
-                                        <Card
-                                            key={turno.id}
-                                            className="bg-gray-800 border-gray-600 text-white p-8 transition-transform hover:scale-105 duration-200 relative"
-                                        >
-                                            <CardTitle className="text-xl text-blue-500 mb-2">
-                                                Cliente: {turno.cliente?.nombre || "N/A"} {turno.cliente?.apellido || ""}
-                                            </CardTitle>
-                                            <CardDescription className="text-gray-200 text-md">
-                                                Descripción: {turno.descripcion}
-                                            </CardDescription>
-                                            <p className="mt-2 text-lg">
-                                                <strong className="text-gray-300 sm:text-lg">Fecha y Hora:</strong>{" "}
-                                                {new Date(turno.fechaHora).toLocaleString()}
-                                            </p>
-                                            <p className="text-sm">
-                                                <strong className="text-gray-300 sm:text-md">Estado:</strong>{" "}
-                                                <span
-                                                    className={`font-semibold sm:text-md ${
-                                                        turno.estado === "CONFIRMADO"
-                                                            ? "text-green-400"
-                                                            : turno.estado === "SOLICITADO"
-                                                            ? "text-yellow-400"
-                                                            : turno.estado === "CANCELADO"
-                                                            ? "text-red-400"
-                                                            : "text-blue-400"
-                                                    }`}
-                                                >
-                                                    {turno.estado}
-                                                </span>
-                                            </p>
-                                            <div className="absolute top-2 right-2 flex gap-2">
-                                                <Button
-                                                    variant="ghost"
-                                                    size="icon"
-                                                    onClick={(e) => {
-                                                        e.stopPropagation(); 
-                                                        handleOpenEditTurno(turno);
-                                                    }}
-                                                    className="text-gray-400 hover:text-indigo-400 cursor-pointer"
-                                                    title="Editar Turno"
-                                                >
-                                                    <UserRoundPen className="h-4 w-4" />
-                                                </Button>
-                                                <Button
-                                                    variant="ghost"
-                                                    size="icon"
-                                                    onClick={(e) => {
-                                                        e.stopPropagation(); 
-                                                        setDeletingTurnoId(turno.id); 
-                                                        setIsDeleteDialogOpen(true); 
-                                                    }}
-                                                    className="text-gray-400 hover:text-red-400 cursor-pointer"
-                                                    title="Eliminar Turno"
-                                                >
-                                                    <Trash2 className="h-4 w-4" />
-                                                </Button>
-                                            </div>
-                                        </Card>
-                                    ))
+                                    turnosVisibles.map(renderTurno)
                                 )}
                             </div>
                         )}
+
+                        {listaAbierta && nextCursor && !loadingTurns && (
+                            <div className="flex justify-center">
+                                <Button
+                                    variant="outline"
+                                    onClick={fetchMoreTurns}
+                                    disabled={loadingMore}
+                                    className="text-white hover:bg-gray-700 cursor-pointer"
+                                >
+                                    {loadingMore ? "Cargando..." : "Cargar más turnos"}
+                                </Button>
+                            </div>
+                        )}
                     
                     </CardContent>
                 </Card>
@@ -1,6 +1,6 @@
 "use client";
 
-import { useEffect, useState, useCallback } from "react";
+import { useEffect, useState, useCallback, useRef } from "react";
 import { useRouter } from "next/navigation";
 import { useAuthStore } from "@/store/auth";
 import { toast } from "sonner";
@@ -26,6 +26,7 @@ import UserEditForm from "./UserEditForm";
 import Link from "next/link";
 import TurnoForm from "./TurnoForm";
 import { Usuario, Turno } from "@/types"; 
+import { applyTurnoChange, fetchPage, subscribeTurnos } from "@/lib/api";
 
 const API_URL = process.env.NEXT_PUBLIC_API_URL;
 const TATUADOR_ID = 1; // thiago xd
@@ -38,8 +39,12 @@ export default function UserPanelPage() {
     const [isDeleteUserDialogOpen, setIsDeleteUserDialogOpen] = useState(false); 
     const [userTurns, setUserTurns] = useState<Turno[]>([]);
     const [loadingTurns, setLoadingTurns] = useState(true);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [isTurnoFormOpen, setIsTurnoFormOpen] = useState(false); 
     const [editingTurno, setEditingTurno] = useState<Turno | null>(null); 
+    // Misma clave mientras no se confirme la creacion: reintentar no duplica el turno
+    const claveCreacion = useRef<string | null>(null);
     const [deletingTurnoId, setDeletingTurnoId] = useState<number | null>(null);
 
     // Función para obtener los turnos del usuario - Envuelto en useCallback
@@ -51,30 +56,39 @@ export default function UserPanelPage() {
         setLoadingTurns(true);
         try {
            
-            const res = await fetch(`${API_URL}/turnos?clienteId=${userId}`, {
-                headers: {
-                    Authorization: `Bearer ${token}`,
-                },
-            });
-
-            if (!res.ok) {
-                throw new Error("Error al cargar los turnos.");
-            }
-
-            const allTurns: Turno[] = await res.json();
-            const userSpecificTurns = allTurns.filter(turno => turno.cliente?.id === userId); 
-            setUserTurns(userSpecificTurns);
+            // El back ya filtra por cliente, no hace falta filtrar aca. Solo la primera pagina del historial
+            const page = await fetchPage<Turno>(`${API_URL}/turnos?clienteId=${userId}`, token);
+            setUserTurns(page.items);
+            setNextCursor(page.nextCursor);
 
         } catch (error) {
             toast.error("Hubo un error al cargar tus turnos.");
             console.error("Error fetching user turns:", error);
             setUserTurns([]);
+            setNextCursor(null);
 
         } finally {
             setLoadingTurns(false);
         }
     }, [token]);
 
+    // Siguiente pagina de mis turnos, solo si el usuario la pide
+    const fetchMoreUserTurns = async () => {
+        if (!token || !user?.id || !nextCursor) return;
+        setLoadingMore(true);
+        try {
+            const page = await fetchPage<Turno>(`${API_URL}/turnos?clienteId=${user.id}`, token, nextCursor);
+            // Si el stream ya agrego alguno de esta pagina no lo duplicamos
+            setUserTurns((prev) => [...prev, ...page.items.filter((t) => !prev.some((p) => p.id === t.id))]);
+            setNextCursor(page.nextCursor);
+        } catch (error) {
+            toast.error("Hubo un error al cargar más turnos.");
+            console.error("Error fetching more user turns:", error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     // useEffect para la autenticación y carga de turnos
     useEffect(() => {
 
@@ -90,6 +104,18 @@ export default function UserPanelPage() {
 
     }, [token, router, user, fetchUserTurns]);
 
+    // Cambios en vivo de mis turnos: el back solo manda los del cliente logueado
+    useEffect(() => {
+        if (!token || !user?.id) return;
+        const userId = user.id;
+        return subscribeTurnos<Turno>(
+            `${API_URL}/turnos/stream`,
+            token,
+            (change) => setUserTurns((prev) => applyTurnoChange(prev, change)),
+            () => fetchUserTurns(userId),
+        );
+    }, [token, user, fetchUserTurns]);
+
 
     // Actualiza al user con el nuevo patch (existente)
     const handleUserUpdate = (updatedUser: Usuario) => {
@@ -133,6 +159,7 @@ export default function UserPanelPage() {
     // Abre el formulario para crear un nuevo turno
     const handleOpenCreateTurno = () => {
         setEditingTurno(null); 
+        claveCreacion.current = null;
         setIsTurnoFormOpen(true);
     };
 
@@ -159,6 +186,7 @@ export default function UserPanelPage() {
                     headers: {
                         "Content-Type": "application/json",
                         Authorization: `Bearer ${token}`,
+                        ...(editingTurno.version != null ? { "If-Match": `"${editingTurno.version}"` } : {}),
                     },
                     
                     body: JSON.stringify({
@@ -170,11 +198,13 @@ export default function UserPanelPage() {
             } else {
 
                 // Crear nuevo turno
+                claveCreacion.current ??= crypto.randomUUID();
                 res = await fetch(`${API_URL}/turnos`, {
                     method: "POST",
                     headers: {
                         "Content-Type": "application/json",
                         Authorization: `Bearer ${token}`,
+                        "Idempotency-Key": claveCreacion.current,
                     },
                     body: JSON.stringify({
                         ...turnoData,
@@ -185,13 +215,19 @@ export default function UserPanelPage() {
                 });
             }
 
+            if (res.status === 412) {
+                toast.error("El turno cambió mientras lo editabas. Recargá para ver la última versión.");
+                return;
+            }
+
             if (!res.ok) {
                 const errorData = await res.json();
                 throw new Error(errorData.message || `Error al ${editingTurno ? 'actualizar' : 'crear'} el turno`);
             }
 
+            if (!editingTurno) claveCreacion.current = null;
+
             toast.success(`Turno ${editingTurno ? 'actualizado' : 'creado'} exitosamente.`);
-            fetchUserTurns(user.id);
             setIsTurnoFormOpen(false); 
             
         } catch (error) { 
@@ -222,7 +258,6 @@ export default function UserPanelPage() {
             }
 
             toast.success("Turno eliminado exitosamente.");
-            fetchUserTurns(user.id); 
             setDeletingTurnoId(null); 
             setIsDeleteUserDialogOpen(false);
 
@@ -484,6 +519,19 @@ export default function UserPanelPage() {
                                 )}
                             </div>
                         )}
+
+                        {nextCursor && !loadingTurns && (
+                            <div className="flex justify-center">
+                                <Button
+                                    variant="outline"
+                                    onClick={fetchMoreUserTurns}
+                                    disabled={loadingMore}
+                                    className="text-white hover:bg-gray-700 cursor-pointer"
+                                >
+                                    {loadingMore ? "Cargando..." : "Cargar más turnos"}
+                                </Button>
+                            </div>
+                        )}
                     
                     </CardContent>
                 </Card>
@@ -1,10 +1,20 @@
 "use client"
 
-import { useState } from "react"
+import { useEffect, useState } from "react"
 import Image from "next/image"
 import { motion, AnimatePresence } from "framer-motion"
 
-const images = [
+const API_URL = process.env.NEXT_PUBLIC_API_URL;
+
+// miniatura para la grilla, grande para el lightbox
+interface Foto {
+  miniatura: string
+  grande: string
+  remota: boolean
+}
+
+// Las de siempre, mientras el dueño no suba fotos a la galeria
+const images: Foto[] = [
   "/tattoos/tattoo1.jpg",
   "/tattoos/tattoo2.jpg",
   "/tattoos/tattoo3.jpg",
@@ -14,13 +24,39 @@ const images = [
   "/tattoos/tattoo7.jpg",
   "/tattoos/tattoo8.jpg",
   "/tattoos/tattoo10.jpg",
-]
+].map((src) => ({ miniatura: src, grande: src, remota: false }))
+
+interface ImagenGaleria {
+  hash: string
+  original: string
+  mediana: string
+  miniatura: string
+}
 
 export default function GridTatuajes() {
 
+    const [fotos, setFotos] = useState<Foto[]>(images)
     const [selectedImage, setSelectedImage] = useState<string | null>(null)
     const [zoom, setZoom] = useState(false)
 
+    // Galeria del backend: miniaturas de ~400px en la grilla y la mediana en el lightbox, nunca el original
+    useEffect(() => {
+        const controller = new AbortController()
+        fetch(`${API_URL}/media?limite=30`, { signal: controller.signal })
+            .then((res) => (res.ok ? res.json() : []))
+            .then((galeria: ImagenGaleria[]) => {
+                if (galeria.length > 0) {
+                    setFotos(galeria.map((i) => ({
+                        miniatura: `${API_URL}${i.miniatura}`,
+                        grande: `${API_URL}${i.mediana}`,
+                        remota: true,
+                    })))
+                }
+            })
+            .catch(() => {})
+        return () => controller.abort()
+    }, [])
+
     return (
         <section id="tattoos" className="py-16 bg-gray-900">
             <div className="max-w-6xl mx-auto px-4">
@@ -30,22 +66,24 @@ export default function GridTatuajes() {
 
                 {/* Grid de imágenes */}
                 <div className="px-4 grid grid-cols-2 sm:grid-cols-3 md:grid-cols-3 gap-8">
-                {images.map((src, i) => (
+                {fotos.map((foto, i) => (
                     <motion.div
-                    key={i}
+                    key={foto.miniatura}
                     className="relative overflow-hidden rounded-2xl shadow-lg cursor-pointer"
                     whileHover={{ scale: 1.05 }}
                     transition={{ type: "spring", stiffness: 300 }}
                     onClick={() => {
-                        setSelectedImage(src)
+                        setSelectedImage(foto.grande)
                         setZoom(false)
                     }}
                     >
+                    {/* Las del backend ya vienen achicadas y con cache inmutable: sin optimizador de Next */}
                     <Image
-                        src={src}
+                        src={foto.miniatura}
                         alt={`Tatuaje ${i + 1}`}
                         width={400}
                         height={400}
+                        unoptimized={foto.remota}
                         className="w-full h-full object-cover"
                     />
                     <div className="absolute inset-0 bg-black/30 opacity-0 hover:opacity-100 transition flex items-center justify-center">
@@ -0,0 +1,101 @@
+export type Page<T> = {
+  items: T[];
+  nextCursor: string | null;
+};
+
+// Trae UNA pagina de un listado paginado por cursor; nextCursor (header X-Next-Cursor) es null en la ultima.
+// Las pantallas cargan la primera y piden la siguiente solo cuando el usuario la quiere ver.
+export async function fetchPage<T>(
+  url: string,
+  token: string,
+  cursor?: string | null,
+  signal?: AbortSignal,
+): Promise<Page<T>> {
+  const separator = url.includes("?") ? "&" : "?";
+  const pageUrl = cursor ? `${url}${separator}cursor=${encodeURIComponent(cursor)}` : url;
+  const res = await fetch(pageUrl, {
+    headers: {
+      Authorization: `Bearer ${token}`,
+    },
+    signal,
+  });
+
+  if (!res.ok) {
+    throw Object.assign(new Error(`Error ${res.status} al cargar ${url}`), { status: res.status });
+  }
+
+  return { items: (await res.json()) as T[], nextCursor: res.headers.get("X-Next-Cursor") };
+}
+
+export type TurnoChange<T> = {
+  tipo: "CREADO" | "ACTUALIZADO" | "ELIMINADO";
+  id: number;
+  turno: T | null;
+};
+
+// Escucha /turnos/stream (SSE) y llama a onChange con cada delta. Usa fetch y no EventSource porque
+// EventSource no deja mandar el header Authorization. Si se corta reconecta solo; lo que paso mientras
+// estaba desconectado no se reenvia, por eso en cada reconexion se llama a onReconnect (para recargar).
+// Devuelve la funcion para desuscribirse.
+export function subscribeTurnos<T>(
+  url: string,
+  token: string,
+  onChange: (change: TurnoChange<T>) => void,
+  onReconnect: () => void,
+): () => void {
+  const controller = new AbortController();
+  let connections = 0;
+
+  const connect = async () => {
+    while (!controller.signal.aborted) {
+      try {
+        const res = await fetch(url, {
+          headers: { Authorization: `Bearer ${token}`, Accept: "text/event-stream" },
+          signal: controller.signal,
+        });
+        if (res.status === 401 || res.status === 403) return;
+        if (!res.ok || !res.body) throw new Error(`Error ${res.status} en ${url}`);
+
+        if (connections++ > 0) onReconnect();
+
+        const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = "";
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          // Los eventos vienen separados por una linea en blanco
+          let end;
+          while ((end = buffer.indexOf("\n\n")) >= 0) {
+            const data = buffer
+              .slice(0, end)
+              .split("\n")
+              .filter((line) => line.startsWith("data:"))
+              .map((line) => line.slice(5))
+              .join("\n");
+            buffer = buffer.slice(end + 2);
+            if (data) onChange(JSON.parse(data) as TurnoChange<T>);
+          }
+        }
+      } catch (error) {
+        if (controller.signal.aborted) return;
+        console.error("Stream de turnos cortado:", error);
+      }
+      await new Promise((resolve) => setTimeout(resolve, 3000));
+    }
+  };
+
+  connect();
+  return () => controller.abort();
+}
+
+// Aplica un delta del stream a la lista que ya tenemos cargada
+export function applyTurnoChange<T extends { id: number }>(items: T[], change: TurnoChange<T>): T[] {
+  if (change.tipo === "ELIMINADO" || !change.turno) {
+    return items.filter((item) => item.id !== change.id);
+  }
+  const turno = change.turno;
+  return items.some((item) => item.id === change.id)
+    ? items.map((item) => (item.id === change.id ? turno : item))
+    : [...items, turno];
+}
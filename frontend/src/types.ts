@@ -13,13 +13,28 @@ export interface Usuario {
 export interface Turno {
   id: number;
   fechaHora: string;
+  duracionMinutos?: number;
   estado: "SOLICITADO" | "CONFIRMADO" | "CANCELADO";
   descripcion: string;
   cliente: Usuario;
   dueno: Usuario;
+  version?: number;
 }
 
 export interface AuthResponse {
   token: string;
   user: Usuario;
-}
\ No newline at end of file
+}
+export interface Carga {
+  desde: string;
+  turnos: number;
+  minutos: number;
+}
+
+export interface EstadisticasDueno {
+  duenoId: number;
+  porEstado: Record<Turno["estado"] | "COMPLETADO", number>;
+  dias: Carga[];
+  semanas: Carga[];
+  proximos: Turno[];
+}